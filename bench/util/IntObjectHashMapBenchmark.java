@@ -0,0 +1,106 @@
+package util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IntObjectHashMap против HashMap<Integer, ...> на последовательных id, как их выдает менеджер.
+ * get - поиск по случайному id, removeAndPut - удаление и повторная вставка (сдвиг серии при удалении),
+ * fill - заполнение пустой таблицы всеми id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntObjectHashMapBenchmark {
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"1000000"})
+    public int size;
+
+    private IntObjectHashMap<String> primitive;
+    private HashMap<Integer, String> boxed;
+    private int[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        primitive = new IntObjectHashMap<>();
+        boxed = new HashMap<>();
+        for (int id = 1; id <= size; id++) {
+            primitive.put(id, "v");
+            boxed.put(id, "v");
+        }
+        Random random = new Random(42);
+        ids = new int[LOOKUPS];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + random.nextInt(size);
+        }
+    }
+
+    private int nextId() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return ids[next];
+    }
+
+    @Benchmark
+    public String getPrimitive() {
+        return primitive.get(nextId());
+    }
+
+    @Benchmark
+    public String getBoxed() {
+        return boxed.get(nextId());
+    }
+
+    @Benchmark
+    public String removeAndPutPrimitive() {
+        int id = nextId();
+        primitive.remove(id);
+        return primitive.put(id, "v");
+    }
+
+    @Benchmark
+    public String removeAndPutBoxed() {
+        int id = nextId();
+        boxed.remove(id);
+        return boxed.put(id, "v");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public IntObjectHashMap<String> fillPrimitive() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        for (int id = 1; id <= size; id++) {
+            map.put(id, "v");
+        }
+        return map;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public HashMap<Integer, String> fillBoxed() {
+        HashMap<Integer, String> map = new HashMap<>();
+        for (int id = 1; id <= size; id++) {
+            map.put(id, "v");
+        }
+        return map;
+    }
+}
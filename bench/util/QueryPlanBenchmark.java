@@ -0,0 +1,100 @@
+package util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * query по плану из explain против полного перебора всех задач с проверкой TaskQuery.matches.
+ * 1000 эпиков по 50 подзадач и столько же задач; у каждой задачи и подзадачи своя минута начала,
+ * DONE - у каждой сотой. Запросы подобраны под каждый индекс: эпик, статус, время, тип.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryPlanBenchmark {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Param({
+            "epicId=500 AND status=NEW",
+            "status=DONE",
+            "startTime>=2025-01-10T00:00 AND startTime<2025-01-10T02:00",
+            "type=EPIC AND status=NEW"
+    })
+    public String text;
+
+    private InMemoryTaskManager taskManager;
+    private TaskQuery query;
+
+    @Setup
+    public void setUp() {
+        taskManager = new InMemoryTaskManager();
+        int minute = 0;
+        for (int e = 0; e < 1_000; e++) {
+            Epic epic = taskManager.createEpic(new Epic("Epic " + e, "Description"));
+            for (int s = 0; s < 50; s++) {
+                taskManager.createSubtask(new Subtask(0, "Subtask " + s, "Description", statusOf(minute),
+                        epic.getId(), START.plusMinutes(minute), Duration.ofSeconds(30)));
+                minute++;
+                taskManager.createTask(new Task(0, "Task " + s, "Description", statusOf(minute),
+                        START.plusMinutes(minute), Duration.ofSeconds(30)));
+                minute++;
+            }
+        }
+        query = TaskQuery.parse(text);
+    }
+
+    private static TaskStatus statusOf(int number) {
+        return number % 100 == 0 ? TaskStatus.DONE : TaskStatus.NEW;
+    }
+
+    @Benchmark
+    public List<Task> indexed() {
+        return taskManager.query(query);
+    }
+
+    // план SCAN для любого запроса: все задачи проверяются условием и упорядочиваются по id, как в query
+    @Benchmark
+    public List<Task> fullScan() {
+        List<Task> result = new ArrayList<>();
+        for (Task task : taskManager.getAllTasks()) {
+            if (query.matches(task)) {
+                result.add(task);
+            }
+        }
+        for (Task task : taskManager.getAllSubtasks()) {
+            if (query.matches(task)) {
+                result.add(task);
+            }
+        }
+        for (Task task : taskManager.getAllEpics()) {
+            if (query.matches(task)) {
+                result.add(task);
+            }
+        }
+        result.sort(Comparator.comparingInt(Task::getId));
+        return result;
+    }
+}
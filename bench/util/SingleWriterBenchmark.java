@@ -0,0 +1,89 @@
+package util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SingleWriterTaskManager против ConcurrentTaskManager (один RW-лок) на size задачах.
+ * writes - только обновления из нескольких потоков, mixed - один писатель и три читателя списка задач.
+ * Обновления не меняют число задач, поэтому стоимость операции не растет за время замера.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SingleWriterBenchmark {
+    @Param({"single-writer", "lock"})
+    public String manager;
+
+    @Param({"10000"})
+    public int size;
+
+    private TaskManager taskManager;
+    private int firstId;
+
+    @Setup
+    public void setUp() {
+        InMemoryTaskManager inner = new InMemoryTaskManager();
+        taskManager = "lock".equals(manager) ? new ConcurrentTaskManager(inner) : new SingleWriterTaskManager(inner);
+        firstId = taskManager.createTask(new Task("Task 0", "Description")).getId();
+        for (int i = 1; i < size; i++) {
+            taskManager.createTask(new Task("Task " + i, "Description"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (taskManager instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private Task update() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int id = firstId + random.nextInt(size);
+        TaskStatus status = TaskStatus.values()[random.nextInt(TaskStatus.values().length)];
+        return taskManager.updateTask(new Task(id, "Task " + id, "Description").withStatus(status));
+    }
+
+    @Benchmark
+    @Group("writes")
+    @GroupThreads(4)
+    public Task write() {
+        return update();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Task mixedWrite() {
+        return update();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public List<Task> mixedRead() {
+        return taskManager.getAllTasks();
+    }
+}
@@ -70,8 +70,8 @@ public class Main {
         System.out.println(taskManager.getAllEpics());
         System.out.println(taskManager.getAllSubtasks());
         taskManager.deleteSubtaskById(subtask1.getId());
-        subtask2.setStatus(TaskStatus.IN_PROGRESS);
-        taskManager.updateSubtask(subtask2);
+        // задачи, полученные от менеджера, неизменяемы: изменения передаются новыми версиями из with-методов
+        taskManager.updateSubtask(subtask2.withStatus(TaskStatus.IN_PROGRESS));
         taskManager.updateSubtask(new Subtask(subtask3.getId(),
                 "titleChanged",
                 "Changed",
@@ -81,9 +81,7 @@ public class Main {
                 Duration.ofHours(1)
         ));
         taskManager.updateEpic(epic1);
-        epic2.setStatus(TaskStatus.DONE);
-        epic2.setDescription("new description");
-        taskManager.updateEpic(epic2);
+        taskManager.updateEpic(epic2.withStatus(TaskStatus.DONE).withDescription("new description"));
 
         taskManager.getTaskById(task1.getId());
         task1.setTitle("pupupu");
@@ -0,0 +1,195 @@
+package collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Неизменяемая таблица int -> значение. with и without возвращают новую таблицу, разделяющую с прежней
+ * все узлы, кроме пути к измененному ключу, поэтому стоят O(log32 n) независимо от размера.
+ * Устроена как PersistentIntSet: префиксное дерево по 5 бит ключа на уровень, узлы - битовые маски
+ * с плотными массивами; на последнем уровне вместо потомков лежат значения.
+ * Обход идет по возрастанию ключей (отрицательные, как беззнаковые, идут после положительных).
+ */
+public final class PersistentIntMap<V> {
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null, 0);
+    private static final int TOP_SHIFT = 30;
+    private static final int BITS = 5;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentIntMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    /**
+     * Значение по ключу или null.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        Node node = root;
+        for (int shift = TOP_SHIFT; node != null; shift -= BITS) {
+            int bit = bit(key, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[index(node.bitmap, bit)];
+            if (shift == 0) {
+                return (V) slot;
+            }
+            node = (Node) slot;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Таблица, в которой по ключу лежит value; это же таблица, если там уже то же значение.
+     */
+    public PersistentIntMap<V> with(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Значение не может быть null");
+        }
+        boolean added = get(key) == null;
+        Node updated = insert(root, TOP_SHIFT, key, value);
+        return updated == root ? this : new PersistentIntMap<>(updated, added ? size + 1 : size);
+    }
+
+    /**
+     * Таблица без ключа; это же таблица, если ключа нет.
+     */
+    public PersistentIntMap<V> without(int key) {
+        if (root == null) {
+            return this;
+        }
+        Node updated = delete(root, TOP_SHIFT, key);
+        if (updated == root) {
+            return this;
+        }
+        return updated == null ? empty() : new PersistentIntMap<>(updated, size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Обход значений по возрастанию ключей без копирования.
+     */
+    public void forEach(Consumer<? super V> action) {
+        forEachWhile(value -> {
+            action.accept(value);
+            return true;
+        });
+    }
+
+    /**
+     * Обход значений по возрастанию ключей, пока action возвращает true.
+     *
+     * @return false, если обход остановлен
+     */
+    public boolean forEachWhile(Predicate<? super V> action) {
+        return root == null || forEachWhile(root, TOP_SHIFT, action);
+    }
+
+    /**
+     * Новый список значений по возрастанию ключей.
+     */
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        forEach(result::add);
+        return result;
+    }
+
+    private static Node insert(Node node, int shift, int key, Object value) {
+        int bit = bit(key, shift);
+        if (node == null) {
+            Object slot = shift == 0 ? value : insert(null, shift - BITS, key, value);
+            return new Node(bit, new Object[]{slot});
+        }
+        int index = index(node.bitmap, bit);
+        if ((node.bitmap & bit) != 0) {
+            Object current = node.slots[index];
+            Object updated = shift == 0 ? value : insert((Node) current, shift - BITS, key, value);
+            if (updated == current) {
+                return node;
+            }
+            Object[] slots = node.slots.clone();
+            slots[index] = updated;
+            return new Node(node.bitmap, slots);
+        }
+        Object[] slots = new Object[node.slots.length + 1];
+        System.arraycopy(node.slots, 0, slots, 0, index);
+        slots[index] = shift == 0 ? value : insert(null, shift - BITS, key, value);
+        System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+        return new Node(node.bitmap | bit, slots);
+    }
+
+    // null - узел опустел
+    private static Node delete(Node node, int shift, int key) {
+        int bit = bit(key, shift);
+        if ((node.bitmap & bit) == 0) {
+            return node;
+        }
+        int index = index(node.bitmap, bit);
+        if (shift > 0) {
+            Node child = (Node) node.slots[index];
+            Node updated = delete(child, shift - BITS, key);
+            if (updated == child) {
+                return node;
+            }
+            if (updated != null) {
+                Object[] slots = node.slots.clone();
+                slots[index] = updated;
+                return new Node(node.bitmap, slots);
+            }
+        }
+        if (node.slots.length == 1) {
+            return null;
+        }
+        Object[] slots = new Object[node.slots.length - 1];
+        System.arraycopy(node.slots, 0, slots, 0, index);
+        System.arraycopy(node.slots, index + 1, slots, index, slots.length - index);
+        return new Node(node.bitmap & ~bit, slots);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> boolean forEachWhile(Node node, int shift, Predicate<? super V> action) {
+        for (Object slot : node.slots) {
+            boolean proceed = shift == 0
+                    ? action.test((V) slot)
+                    : forEachWhile((Node) slot, shift - BITS, action);
+            if (!proceed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int bit(int key, int shift) {
+        return 1 << ((key >>> shift) & 31);
+    }
+
+    // позиция в плотном массиве - число установленных бит младше бита ключа
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private record Node(int bitmap, Object[] slots) {
+    }
+}
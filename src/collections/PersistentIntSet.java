@@ -0,0 +1,208 @@
+package collections;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Неизменяемое множество int. with и without возвращают новое множество, разделяющее с прежним
+ * все узлы, кроме пути к измененному значению, поэтому стоят O(log32 n) независимо от размера.
+ * Значения хранятся в префиксном дереве по 5 бит значения на уровень (7 уровней на int),
+ * узлы - битовые маски с плотными массивами потомков; обход идет по возрастанию значений
+ * (отрицательные значения, как беззнаковые, идут после положительных).
+ */
+public final class PersistentIntSet {
+    private static final PersistentIntSet EMPTY = new PersistentIntSet(null, 0);
+    private static final int TOP_SHIFT = 30;
+    private static final int BITS = 5;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentIntSet(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static PersistentIntSet empty() {
+        return EMPTY;
+    }
+
+    public static PersistentIntSet of(int... values) {
+        PersistentIntSet set = EMPTY;
+        for (int value : values) {
+            set = set.with(value);
+        }
+        return set;
+    }
+
+    public boolean contains(int value) {
+        Node node = root;
+        for (int shift = TOP_SHIFT; node != null; shift -= BITS) {
+            int bit = bit(value, shift);
+            if ((node.bitmap & bit) == 0) {
+                return false;
+            }
+            if (shift == 0) {
+                return true;
+            }
+            node = node.children[index(node.bitmap, bit)];
+        }
+        return false;
+    }
+
+    /**
+     * Множество с добавленным значением; это же множество, если значение уже есть.
+     */
+    public PersistentIntSet with(int value) {
+        Node updated = insert(root, TOP_SHIFT, value);
+        return updated == root ? this : new PersistentIntSet(updated, size + 1);
+    }
+
+    /**
+     * Множество без значения; это же множество, если значения нет.
+     */
+    public PersistentIntSet without(int value) {
+        if (root == null) {
+            return this;
+        }
+        Node updated = delete(root, TOP_SHIFT, value);
+        if (updated == root) {
+            return this;
+        }
+        return updated == null ? EMPTY : new PersistentIntSet(updated, size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Обход значений по возрастанию без копирования.
+     */
+    public void forEach(IntConsumer action) {
+        if (root != null) {
+            forEach(root, TOP_SHIFT, 0, action);
+        }
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size];
+        int[] count = new int[1];
+        forEach(value -> result[count[0]++] = value);
+        return result;
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(toArray());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PersistentIntSet that) || size != that.size) {
+            return false;
+        }
+        return Arrays.equals(toArray(), that.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        forEach(value -> joiner.add(String.valueOf(value)));
+        return joiner.toString();
+    }
+
+    private static Node insert(Node node, int shift, int value) {
+        int bit = bit(value, shift);
+        if (shift == 0) {
+            int bitmap = node == null ? 0 : node.bitmap;
+            return (bitmap & bit) != 0 ? node : new Node(bitmap | bit, null);
+        }
+        if (node == null) {
+            return new Node(bit, new Node[]{insert(null, shift - BITS, value)});
+        }
+        int index = index(node.bitmap, bit);
+        if ((node.bitmap & bit) != 0) {
+            Node child = node.children[index];
+            Node updated = insert(child, shift - BITS, value);
+            if (updated == child) {
+                return node;
+            }
+            Node[] children = node.children.clone();
+            children[index] = updated;
+            return new Node(node.bitmap, children);
+        }
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        children[index] = insert(null, shift - BITS, value);
+        System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+        return new Node(node.bitmap | bit, children);
+    }
+
+    // null - узел опустел
+    private static Node delete(Node node, int shift, int value) {
+        int bit = bit(value, shift);
+        if ((node.bitmap & bit) == 0) {
+            return node;
+        }
+        if (shift == 0) {
+            int bitmap = node.bitmap & ~bit;
+            return bitmap == 0 ? null : new Node(bitmap, null);
+        }
+        int index = index(node.bitmap, bit);
+        Node child = node.children[index];
+        Node updated = delete(child, shift - BITS, value);
+        if (updated == child) {
+            return node;
+        }
+        if (updated != null) {
+            Node[] children = node.children.clone();
+            children[index] = updated;
+            return new Node(node.bitmap, children);
+        }
+        if (node.children.length == 1) {
+            return null;
+        }
+        Node[] children = new Node[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        return new Node(node.bitmap & ~bit, children);
+    }
+
+    private static void forEach(Node node, int shift, int prefix, IntConsumer action) {
+        int bitmap = node.bitmap;
+        int index = 0;
+        while (bitmap != 0) {
+            int digit = Integer.numberOfTrailingZeros(bitmap);
+            bitmap &= bitmap - 1;
+            int value = prefix | (digit << shift);
+            if (shift == 0) {
+                action.accept(value);
+            } else {
+                forEach(node.children[index++], shift - BITS, value, action);
+            }
+        }
+    }
+
+    private static int bit(int value, int shift) {
+        return 1 << ((value >>> shift) & 31);
+    }
+
+    // позиция потомка в плотном массиве - число установленных бит младше его бита
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private record Node(int bitmap, Node[] children) {
+    }
+}
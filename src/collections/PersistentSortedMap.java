@@ -0,0 +1,178 @@
+package collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+/**
+ * Неизменяемая упорядоченная таблица. with и without копируют только путь от корня до ключа,
+ * остальные узлы разделяются с прежней версией, поэтому стоят O(log n) в среднем.
+ * Устроена как декартово дерево: приоритет узла получается перемешиванием hashCode ключа,
+ * так что форма дерева не зависит от порядка вставки.
+ */
+public final class PersistentSortedMap<K, V> {
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentSortedMap(Comparator<? super K> comparator, Node<K, V> root, int size) {
+        this.comparator = comparator;
+        this.root = root;
+        this.size = size;
+    }
+
+    public static <K, V> PersistentSortedMap<K, V> empty(Comparator<? super K> comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator cannot be null");
+        }
+        return new PersistentSortedMap<>(comparator, null, 0);
+    }
+
+    /**
+     * Значение по ключу или null.
+     */
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(key, node.key);
+            if (cmp == 0) {
+                return node.value;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Таблица, в которой по ключу лежит value; это же таблица, если там уже то же значение.
+     */
+    public PersistentSortedMap<K, V> with(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Ключ и значение не могут быть null");
+        }
+        V current = get(key);
+        if (current == value) {
+            return this;
+        }
+        Node<K, V> updated = insert(root, key, value, priority(key));
+        return new PersistentSortedMap<>(comparator, updated, current == null ? size + 1 : size);
+    }
+
+    /**
+     * Таблица без ключа; это же таблица, если ключа нет.
+     */
+    public PersistentSortedMap<K, V> without(K key) {
+        if (get(key) == null) {
+            return this;
+        }
+        return new PersistentSortedMap<>(comparator, delete(root, key), size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Обход пар с ключами не меньше from (null - с начала) по возрастанию, пока action возвращает true.
+     * Пропущенные поддеревья не посещаются, поэтому обход k пар стоит O(log n + k).
+     *
+     * @return false, если обход остановлен
+     */
+    public boolean forEachFrom(K from, BiPredicate<? super K, ? super V> action) {
+        return forEachFrom(root, from, action);
+    }
+
+    /**
+     * Новый список значений по возрастанию ключей.
+     */
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        forEachFrom(null, (key, value) -> result.add(value));
+        return result;
+    }
+
+    private boolean forEachFrom(Node<K, V> node, K from, BiPredicate<? super K, ? super V> action) {
+        while (node != null) {
+            boolean inRange = from == null || comparator.compare(node.key, from) >= 0;
+            if (inRange) {
+                if (!forEachFrom(node.left, from, action) || !action.test(node.key, node.value)) {
+                    return false;
+                }
+                // в правом поддереве все ключи больше: граница больше не нужна
+                from = null;
+            }
+            node = node.right;
+        }
+        return true;
+    }
+
+    private Node<K, V> insert(Node<K, V> node, K key, V value, int priority) {
+        if (node == null) {
+            return new Node<>(key, value, priority, null, null);
+        }
+        int cmp = comparator.compare(key, node.key);
+        if (cmp == 0) {
+            return new Node<>(key, value, node.priority, node.left, node.right);
+        }
+        if (cmp < 0) {
+            Node<K, V> left = insert(node.left, key, value, priority);
+            if (left.priority > node.priority) {
+                // поворот вправо: новый узел поднимается над текущим
+                return new Node<>(left.key, left.value, left.priority, left.left,
+                        new Node<>(node.key, node.value, node.priority, left.right, node.right));
+            }
+            return new Node<>(node.key, node.value, node.priority, left, node.right);
+        }
+        Node<K, V> right = insert(node.right, key, value, priority);
+        if (right.priority > node.priority) {
+            return new Node<>(right.key, right.value, right.priority,
+                    new Node<>(node.key, node.value, node.priority, node.left, right.left), right.right);
+        }
+        return new Node<>(node.key, node.value, node.priority, node.left, right);
+    }
+
+    // ключ точно есть в дереве
+    private Node<K, V> delete(Node<K, V> node, K key) {
+        int cmp = comparator.compare(key, node.key);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            return new Node<>(node.key, node.value, node.priority, delete(node.left, key), node.right);
+        }
+        return new Node<>(node.key, node.value, node.priority, node.left, delete(node.right, key));
+    }
+
+    // все ключи left меньше ключей right
+    private static <K, V> Node<K, V> merge(Node<K, V> left, Node<K, V> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            return new Node<>(left.key, left.value, left.priority, left.left, merge(left.right, right));
+        }
+        return new Node<>(right.key, right.value, right.priority, merge(left, right.left), right.right);
+    }
+
+    // перемешивание из MurmurHash3: близкие хэши дают независимые приоритеты
+    private static int priority(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private record Node<K, V>(K key, V value, int priority, Node<K, V> left, Node<K, V> right) {
+    }
+}
@@ -1,35 +1,90 @@
 package server;
 
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import util.BoardRegistry;
+import util.HistorySessions;
 import util.TaskManager;
 import util.Managers;
 import server.handlers.*;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
 
 public class HttpTaskServer {
     public static final int PORT = 8080;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int RESIDENT_BOARDS = 32;
+    private static final int SESSION_HISTORY_CAPACITY = 100;
+    private static final int MAX_SESSIONS = 10_000;
+    private static final Duration SESSION_IDLE_TIMEOUT = Duration.ofMinutes(30);
     private final HttpServer server;
     private final TaskManager taskManager;
+    private final BoardRegistry boards;
+    private final HistorySessions sessions =
+            new HistorySessions(SESSION_HISTORY_CAPACITY, MAX_SESSIONS, SESSION_IDLE_TIMEOUT);
+    private final ExecutorService executor;
 
     public HttpTaskServer(TaskManager taskManager) throws IOException {
+        this(taskManager, null);
+    }
+
+    /**
+     * Создает сервер, обрабатывающий запросы в пуле потоков.
+     * Менеджер задач в этом случае должен быть потокобезопасным (см. Managers.getConcurrent()).
+     */
+    public HttpTaskServer(TaskManager taskManager, ExecutorService executor) throws IOException {
+        this(taskManager, null, executor);
+    }
+
+    /**
+     * Создает сервер, который кроме общего менеджера обслуживает доски из реестра
+     * по путям /boards/{id}/tasks, /boards/{id}/epics и т.д.
+     */
+    public HttpTaskServer(TaskManager taskManager, BoardRegistry boards, ExecutorService executor) throws IOException {
         if (taskManager == null) {
             throw new IllegalArgumentException("TaskManager cannot be null");
         }
         this.taskManager = taskManager;
+        this.boards = boards;
+        this.executor = executor;
         this.server = HttpServer.create(new InetSocketAddress("localhost", PORT), 0);
+        this.server.setExecutor(executor);
         this.setContext();
     }
 
 
+    /**
+     * Обработчики ресурсов по имени: одни и те же для общего менеджера и для каждой доски.
+     * Клиенты с заголовком X-Client-Id получают собственную историю просмотров.
+     */
+    private static Map<String, BiFunction<TaskManager, HistorySessions, HttpHandler>> resources() {
+        Map<String, BiFunction<TaskManager, HistorySessions, HttpHandler>> resources = new LinkedHashMap<>();
+        resources.put("tasks", TaskHandler::new);
+        resources.put("subtasks", SubtaskHandler::new);
+        resources.put("epics", EpicHandler::new);
+        resources.put("history", HistoryHandler::new);
+        resources.put("prioritized", (manager, sessions) -> new PrioritizedHandler(manager));
+        resources.put("slots", (manager, sessions) -> new SlotsHandler(manager));
+        resources.put("search", (manager, sessions) -> new SearchHandler(manager));
+        resources.put("archive", (manager, sessions) -> new ArchiveHandler(manager));
+        return resources;
+    }
+
     private void setContext() {
         // Создаем отдельные обработчики для каждого эндпоинта
-        server.createContext("/tasks", new TaskHandler(taskManager));
-        server.createContext("/subtasks", new SubtaskHandler(taskManager));
-        server.createContext("/epics", new EpicHandler(taskManager));
-        server.createContext("/history", new HistoryHandler(taskManager));
-        server.createContext("/prioritized", new PrioritizedHandler(taskManager));
+        Map<String, BiFunction<TaskManager, HistorySessions, HttpHandler>> resources = resources();
+        resources.forEach((name, factory) -> server.createContext("/" + name, factory.apply(taskManager, sessions)));
+        if (boards != null) {
+            server.createContext("/boards", new BoardHandler(boards, sessions, resources));
+        }
     }
 
     public TaskManager getTaskManager() {
@@ -41,15 +96,27 @@ public class HttpTaskServer {
         System.out.println("HTTP-сервер запущен на порту " + PORT);
     }
 
+    public BoardRegistry getBoards() {
+        return boards;
+    }
+
     public void stop() {
         server.stop(0);
+        if (boards != null) {
+            boards.evictAll();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
         System.out.println("HTTP-сервер остановлен");
     }
 
     public static void main(String[] args) {
         try {
-            TaskManager taskManager = Managers.getDefault();
-            HttpTaskServer httpTaskServer = new HttpTaskServer(taskManager);
+            TaskManager taskManager = Managers.getConcurrent();
+            BoardRegistry boards = new BoardRegistry(Path.of("boards"), RESIDENT_BOARDS);
+            HttpTaskServer httpTaskServer = new HttpTaskServer(taskManager, boards,
+                    Executors.newFixedThreadPool(THREADS));
             httpTaskServer.start();
         } catch (IOException e) {
             System.err.println("Ошибка при запуске сервера: " + e.getMessage());
@@ -0,0 +1,39 @@
+package server.adapters;
+
+import collections.PersistentIntSet;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+public class PersistentIntSetTypeAdapter extends TypeAdapter<PersistentIntSet> {
+    @Override
+    public void write(JsonWriter writer, PersistentIntSet set) throws IOException {
+        if (set == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginArray();
+        for (int value : set.toArray()) {
+            writer.value(value);
+        }
+        writer.endArray();
+    }
+
+    @Override
+    public PersistentIntSet read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        PersistentIntSet set = PersistentIntSet.empty();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            set = set.with(reader.nextInt());
+        }
+        reader.endArray();
+        return set;
+    }
+}
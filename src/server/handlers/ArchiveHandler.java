@@ -0,0 +1,58 @@
+package server.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import tasks.Task;
+import util.TaskManager;
+import util.TaskQuery;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Архив завершенных задач:
+ * POST /archive - перенести в архив задачи DONE и полностью завершенные эпики,
+ * GET /archive/{id} - задача из архива, GET /archive?query= - задачи архива по составному запросу.
+ */
+public class ArchiveHandler extends BaseHttpHandler {
+
+    public ArchiveHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = getPath(exchange);
+            String method = exchange.getRequestMethod();
+
+            if (path.equals("/archive") && method.equals("POST")) {
+                int archived = taskManager.archiveCompleted();
+                sendText(exchange, gson.toJson(Map.of("archived", archived)), 200);
+            } else if (path.equals("/archive") && method.equals("GET")) {
+                TaskQuery query;
+                try {
+                    query = TaskQuery.parse(getQueryParams(exchange).get("query"));
+                } catch (IllegalArgumentException e) {
+                    sendBadRequest(exchange, e.getMessage());
+                    return;
+                }
+                sendText(exchange, gson.toJson(taskManager.findArchived(query)), 200);
+            } else if (path.matches("/archive/\\d+") && method.equals("GET")) {
+                int id = extractIdFromPath(path);
+                Task task = taskManager.getArchived(id);
+                if (task == null) {
+                    sendNotFound(exchange, "Задача с ID " + id + " не найдена в архиве");
+                    return;
+                }
+                sendText(exchange, gson.toJson(task), 200);
+            } else {
+                sendNotFound(exchange, "Доступны POST /archive, GET /archive и GET /archive/{id}");
+            }
+        } catch (IllegalStateException e) {
+            // архив не настроен или открыта транзакция
+            sendText(exchange, gson.toJson(Map.of("error", e.getMessage())), 409);
+        } catch (Exception e) {
+            sendInternalError(exchange, "Ошибка при работе с архивом");
+        }
+    }
+}
@@ -3,17 +3,40 @@ package server.handlers;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import exceptions.VersionConflictException;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+import util.HistorySessions;
 import util.Managers;
+import util.Page;
 import util.TaskManager;
+import util.TaskQuery;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 public abstract class BaseHttpHandler implements HttpHandler {
+    protected static final int MAX_PAGE_SIZE = 1000;
+    /**
+     * Заголовок с идентификатором клиента: просмотры такого клиента попадают в его собственную историю.
+     */
+    public static final String CLIENT_HEADER = "X-Client-Id";
 
     protected final TaskManager taskManager;
+    protected final HistorySessions sessions;
     protected final Gson gson;
 
     /**
@@ -22,7 +45,18 @@ public abstract class BaseHttpHandler implements HttpHandler {
      * @param taskManager Менеджер задач для операций с данными.
      */
     public BaseHttpHandler(TaskManager taskManager) {
+        this(taskManager, null);
+    }
+
+    /**
+     * Создает обработчик, который ведет историю просмотров отдельно для каждого клиента.
+     *
+     * @param taskManager Менеджер задач для операций с данными.
+     * @param sessions    Истории клиентов; null - все просмотры попадают в общую историю менеджера.
+     */
+    public BaseHttpHandler(TaskManager taskManager, HistorySessions sessions) {
         this.taskManager = taskManager;
+        this.sessions = sessions;
         this.gson = Managers.getGson();
     }
 
@@ -80,6 +114,23 @@ public abstract class BaseHttpHandler implements HttpHandler {
         sendText(exchange, json, 406);
     }
 
+    /**
+     * Версия ресурса не совпала с условием запроса (412 Precondition Failed)
+     */
+    protected void sendPreconditionFailed(HttpExchange exchange) throws IOException {
+        String json = gson.toJson(Map.of("error", "Ресурс был изменен другим запросом"));
+        sendText(exchange, json, 412);
+    }
+
+    /**
+     * Ресурс не изменился с версии, известной клиенту (304 Not Modified)
+     */
+    protected void sendNotModified(HttpExchange exchange, long version) throws IOException {
+        setETag(exchange, version);
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+    }
+
     /**
      * Внутренняя ошибка сервера (500 Internal Server Error)
      */
@@ -88,6 +139,212 @@ public abstract class BaseHttpHandler implements HttpHandler {
         sendText(exchange, json, 500);
     }
 
+    /**
+     * Возвращает параметры строки запроса
+     */
+    protected Map<String, String> getQueryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Отправляет страницу списка по параметрам ?limit=&cursor= (cursor необязателен)
+     */
+    protected void sendPage(HttpExchange exchange, Map<String, String> params,
+                            BiFunction<Integer, Integer, Page<?>> pageSupplier) throws IOException {
+        int limit;
+        int cursor;
+        try {
+            limit = Integer.parseInt(params.get("limit"));
+            cursor = params.containsKey("cursor") ? Integer.parseInt(params.get("cursor")) : 0;
+        } catch (NumberFormatException e) {
+            sendBadRequest(exchange, "Параметры limit и cursor должны быть числами");
+            return;
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            sendBadRequest(exchange, "Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+            return;
+        }
+        sendText(exchange, gson.toJson(pageSupplier.apply(cursor, limit)), 200);
+    }
+
+    protected boolean hasFilterParams(Map<String, String> params) {
+        return params.containsKey("status") || params.containsKey("from") || params.containsKey("to");
+    }
+
+    /**
+     * Отправляет задачи указанного типа, отобранные по параметрам ?status=&from=&to=
+     * (время в формате ISO, интервал [from, to))
+     */
+    protected void sendFiltered(HttpExchange exchange, Map<String, String> params, TaskType type)
+            throws IOException {
+        TaskStatus status;
+        LocalDateTime from;
+        LocalDateTime to;
+        try {
+            status = params.containsKey("status") ? TaskStatus.valueOf(params.get("status")) : null;
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, "Неизвестный статус: " + params.get("status"));
+            return;
+        }
+        try {
+            from = params.containsKey("from") ? LocalDateTime.parse(params.get("from")) : null;
+            to = params.containsKey("to") ? LocalDateTime.parse(params.get("to")) : null;
+        } catch (DateTimeParseException e) {
+            sendBadRequest(exchange, "Параметры from и to должны быть в формате ISO (2025-07-21T08:00)");
+            return;
+        }
+        sendText(exchange, gson.toJson(taskManager.findTasks(type, status, from, to)), 200);
+    }
+
+    /**
+     * Отправляет задачи указанного типа по составному запросу ?query=
+     * (условия через AND, например status=NEW AND epicId=3 AND startTime>=2025-07-21T08:00)
+     */
+    protected void sendQueried(HttpExchange exchange, Map<String, String> params, TaskType type)
+            throws IOException {
+        TaskQuery query;
+        try {
+            query = TaskQuery.parse(params.get("query"));
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
+            return;
+        }
+        if (query.getType() != null && query.getType() != type) {
+            sendText(exchange, "[]", 200);
+            return;
+        }
+        sendText(exchange, gson.toJson(taskManager.query(query.withType(type))), 200);
+    }
+
+    protected void setETag(HttpExchange exchange, long version) {
+        exchange.getResponseHeaders().set("ETag", "\"" + version + "\"");
+    }
+
+    /**
+     * Проверяет If-None-Match для GET: true, если клиенту уже известна текущая версия
+     */
+    protected boolean isNotModified(HttpExchange exchange, long version) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        return ifNoneMatch != null && matches(ifNoneMatch, version);
+    }
+
+    /**
+     * Выполняет изменение с учетом заголовков If-Match и If-None-Match.
+     * Проверка версии и изменение идут в одной транзакции менеджера, поэтому между ними
+     * другой запрос не может изменить ресурс. Без условных заголовков изменение выполняется сразу.
+     *
+     * @throws VersionConflictException если условие не выполнено
+     */
+    protected <T> T writeConditionally(HttpExchange exchange, TaskType type, int id,
+                                       Function<TaskManager, T> action) {
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifMatch == null && ifNoneMatch == null) {
+            return action.apply(taskManager);
+        }
+        AtomicReference<T> result = new AtomicReference<>();
+        taskManager.inTransaction(manager -> {
+            long version = id == 0 ? 0 : manager.getVersion(type, id);
+            if (ifMatch != null && (version == 0 || !matches(ifMatch, version))) {
+                throw new VersionConflictException("Версия " + type + " " + id + " не совпадает с If-Match");
+            }
+            if (ifNoneMatch != null && version != 0 && matches(ifNoneMatch, version)) {
+                throw new VersionConflictException("Версия " + type + " " + id + " совпадает с If-None-Match");
+            }
+            result.set(action.apply(manager));
+        });
+        return result.get();
+    }
+
+    // Список ETag из заголовка ("*" - любая существующая версия), слабые W/ сравниваются как обычные
+    private static boolean matches(String header, long version) {
+        String expected = "\"" + version + "\"";
+        for (String tag : header.split(",")) {
+            String value = tag.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Путь запроса относительно доски: для /boards/team/tasks/1 это /tasks/1.
+     * Для запросов без доски путь возвращается как есть.
+     */
+    protected String getPath(HttpExchange exchange) {
+        return BoardHandler.resourcePath(exchange.getRequestURI().getPath());
+    }
+
+    /**
+     * Сессия клиента из заголовка X-Client-Id; у каждой доски свои сессии.
+     * null, если заголовка нет или истории клиентов не ведутся.
+     */
+    protected String getSessionId(HttpExchange exchange) {
+        if (sessions == null) {
+            return null;
+        }
+        String client = exchange.getRequestHeaders().getFirst(CLIENT_HEADER);
+        if (client == null || client.isBlank()) {
+            return null;
+        }
+        String path = exchange.getRequestURI().getPath();
+        String board = path.substring(0, path.length() - getPath(exchange).length());
+        return board + "#" + client;
+    }
+
+    /**
+     * Задача по id с записью просмотра: в историю клиента, если он указан, иначе в общую историю менеджера.
+     * Для клиента задача читается без записи в общую историю.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T extends Task> T view(HttpExchange exchange, TaskType type, int id, IntFunction<T> sharedView) {
+        String sessionId = getSessionId(exchange);
+        if (sessionId == null) {
+            return sharedView.apply(id);
+        }
+        List<Task> found = taskManager.query(TaskQuery.builder().id(id).type(type).build());
+        if (found.isEmpty()) {
+            return null;
+        }
+        T task = (T) found.getFirst();
+        sessions.record(sessionId, task);
+        return task;
+    }
+
+    /**
+     * История просмотров клиента с текущими версиями задач; удаленные задачи пропускаются.
+     * Без клиента - общая история менеджера.
+     */
+    protected List<Task> getHistory(HttpExchange exchange) {
+        String sessionId = getSessionId(exchange);
+        if (sessionId == null) {
+            return taskManager.getHistory();
+        }
+        List<Task> history = new ArrayList<>();
+        for (Task viewed : sessions.getHistory(sessionId)) {
+            List<Task> current = taskManager.query(TaskQuery.builder().id(viewed.getId()).build());
+            if (!current.isEmpty()) {
+                history.add(current.getFirst());
+            }
+        }
+        return history;
+    }
+
     /**
      * Возвращает id из пути
      */
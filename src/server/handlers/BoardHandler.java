@@ -0,0 +1,100 @@
+package server.handlers;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import exceptions.ManagerSaveException;
+import util.BoardRegistry;
+import util.HistorySessions;
+import util.Managers;
+import util.TaskManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Запросы к отдельным доскам: /boards/{id}/tasks, /boards/{id}/epics и т.д.
+ * Запрос передается тому же обработчику, что и без доски, но с менеджером этой доски.
+ * Обработчики создаются один раз для доски в памяти и сбрасываются при ее выгрузке из реестра.
+ */
+public class BoardHandler implements HttpHandler {
+    private static final String PREFIX = "/boards/";
+
+    private final BoardRegistry registry;
+    private final HistorySessions sessions;
+    private final Map<String, BiFunction<TaskManager, HistorySessions, HttpHandler>> factories;
+    private final Map<String, Routes> routes = new ConcurrentHashMap<>();
+    private final Gson gson = Managers.getGson();
+
+    /**
+     * @param registry  Реестр досок.
+     * @param sessions  Истории просмотров клиентов, общие для всех досок (сессии различаются по доске).
+     * @param factories Обработчики ресурсов доски по имени ресурса ("tasks", "epics", ...).
+     */
+    public BoardHandler(BoardRegistry registry, HistorySessions sessions,
+                        Map<String, BiFunction<TaskManager, HistorySessions, HttpHandler>> factories) {
+        this.registry = registry;
+        this.sessions = sessions;
+        this.factories = factories;
+        registry.addEvictionListener(routes::remove);
+    }
+
+    /**
+     * Путь ресурса внутри доски: /boards/team/tasks/1 -> /tasks/1. Остальные пути не меняются.
+     */
+    static String resourcePath(String path) {
+        if (!path.startsWith(PREFIX)) {
+            return path;
+        }
+        int slash = path.indexOf('/', PREFIX.length());
+        return slash < 0 ? "/" : path.substring(slash);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String[] parts = path.split("/");
+        // "", "boards", id, ресурс, ...
+        if (parts.length < 4 || !factories.containsKey(parts[3])) {
+            sendError(exchange, "Ресурс доски не найден", 404);
+            return;
+        }
+        try (BoardRegistry.Lease lease = registry.acquire(parts[2])) {
+            handlerOf(lease, parts[3]).handle(exchange);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, e.getMessage(), 400);
+        } catch (ManagerSaveException e) {
+            sendError(exchange, e.getMessage(), 500);
+        }
+    }
+
+    // Пока доска открыта, ее не выгружают, поэтому сохраненные обработчики относятся к текущему менеджеру.
+    private HttpHandler handlerOf(BoardRegistry.Lease lease, String resource) {
+        TaskManager manager = lease.getManager();
+        Routes current = routes.get(lease.getBoardId());
+        if (current == null || current.manager() != manager) {
+            current = routes.compute(lease.getBoardId(), (id, existing) ->
+                    existing != null && existing.manager() == manager ? existing : new Routes(manager, new HashMap<>()));
+        }
+        synchronized (current) {
+            return current.handlers().computeIfAbsent(resource, name -> factories.get(name).apply(manager, sessions));
+        }
+    }
+
+    private void sendError(HttpExchange exchange, String message, int statusCode) throws IOException {
+        byte[] response = gson.toJson(Map.of("error", message)).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+
+    private record Routes(TaskManager manager, Map<String, HttpHandler> handlers) {
+    }
+}
@@ -2,11 +2,15 @@ package server.handlers;
 
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
+import exceptions.VersionConflictException;
 import tasks.Epic;
+import tasks.TaskType;
+import util.HistorySessions;
 import util.TaskManager;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 public class EpicHandler extends BaseHttpHandler {
 
@@ -14,6 +18,10 @@ public class EpicHandler extends BaseHttpHandler {
         super(taskManager);
     }
 
+    public EpicHandler(TaskManager taskManager, HistorySessions sessions) {
+        super(taskManager, sessions);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -29,9 +37,16 @@ public class EpicHandler extends BaseHttpHandler {
     }
 
     private void handleGet(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
+        String path = getPath(exchange);
         if (path.equals("/epics")) {
-            sendText(exchange, gson.toJson(taskManager.getAllEpics()), 200);
+            Map<String, String> params = getQueryParams(exchange);
+            if (params.containsKey("query")) {
+                sendQueried(exchange, params, TaskType.EPIC);
+            } else if (params.containsKey("limit")) {
+                sendPage(exchange, params, taskManager::getEpicsPage);
+            } else {
+                sendText(exchange, gson.toJson(taskManager.getAllEpics()), 200);
+            }
         } else if (path.matches("/epics/\\d+")) {
             handleGetEpicById(exchange, path);
         } else if (path.matches("/epics/\\d+/subtasks")) {
@@ -44,10 +59,16 @@ public class EpicHandler extends BaseHttpHandler {
     private void handleGetEpicById(HttpExchange exchange, String path) throws IOException {
         try {
             int id = extractIdFromPath(path);
-            Epic epic = taskManager.getEpicById(id);
+            long version = taskManager.getVersion(TaskType.EPIC, id);
+            if (version != 0 && isNotModified(exchange, version)) {
+                sendNotModified(exchange, version);
+                return;
+            }
+            Epic epic = version == 0 ? null : view(exchange, TaskType.EPIC, id, taskManager::getEpicById);
             if (epic == null) {
                 sendNotFound(exchange, "Эпик не найден.");
             } else {
+                setETag(exchange, epic.getVersion());
                 sendText(exchange, gson.toJson(epic), 200);
             }
         } catch (NumberFormatException e) {
@@ -78,16 +99,13 @@ public class EpicHandler extends BaseHttpHandler {
                 return;
             }
 
-            Epic resultEpic;
-            if (epic.getId() == 0 || taskManager.getEpicById(epic.getId()) == null) {
-                resultEpic = taskManager.createEpic(epic); // Получаем созданный эпик
-                String responseBody = gson.toJson(resultEpic); // Сериализуем его
-                sendText(exchange, responseBody, 201); // Отправляем в ответе
-            } else {
-                resultEpic = taskManager.updateEpic(epic);
-                String responseBody = gson.toJson(resultEpic);
-                sendText(exchange, responseBody, 200);
-            }
+            boolean exists = epic.getId() != 0 && taskManager.getVersion(TaskType.EPIC, epic.getId()) != 0;
+            Epic resultEpic = writeConditionally(exchange, TaskType.EPIC, epic.getId(),
+                    manager -> exists ? manager.updateEpic(epic) : manager.createEpic(epic));
+            setETag(exchange, resultEpic.getVersion());
+            sendText(exchange, gson.toJson(resultEpic), exists ? 200 : 201);
+        } catch (VersionConflictException e) {
+            sendPreconditionFailed(exchange);
         } catch (JsonSyntaxException e) {
             sendBadRequest(exchange, "Неверный формат JSON");
         }
@@ -99,20 +117,24 @@ public class EpicHandler extends BaseHttpHandler {
      * - DELETE /epics - удаляет все эпики
      */
     private void handleDelete(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
+        String path = getPath(exchange);
         if (path.equals("/epics")) {
             taskManager.clearAllEpics();
             sendSuccess(exchange, "Все эпики удалены");
         } else if (path.matches("/epics/\\d+")) {
             try {
                 int id = extractIdFromPath(path);
-                Epic epic = taskManager.getEpicById(id);
-                if (epic == null) {
+                if (taskManager.getVersion(TaskType.EPIC, id) == 0) {
                     sendNotFound(exchange, "Эпик не найден");
                 } else {
-                    taskManager.deleteEpicById(id);
+                    writeConditionally(exchange, TaskType.EPIC, id, manager -> {
+                        manager.deleteEpicById(id);
+                        return null;
+                    });
                     sendSuccess(exchange, "Эпик удален");
                 }
+            } catch (VersionConflictException e) {
+                sendPreconditionFailed(exchange);
             } catch (NumberFormatException e) {
                 sendBadRequest(exchange, "ID эпика должен быть числом");
             }
@@ -1,6 +1,7 @@
 package server.handlers;
 
 import com.sun.net.httpserver.HttpExchange;
+import util.HistorySessions;
 import util.TaskManager;
 
 import java.io.IOException;
@@ -11,10 +12,14 @@ public class HistoryHandler extends BaseHttpHandler {
         super(taskManager);
     }
 
+    public HistoryHandler(TaskManager taskManager, HistorySessions sessions) {
+        super(taskManager, sessions);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
-            String path = exchange.getRequestURI().getPath();
+            String path = getPath(exchange);
 
             if (!path.equals("/history")) {
                 sendNotFound(exchange, "Доступен только путь /history");
@@ -24,7 +29,7 @@ public class HistoryHandler extends BaseHttpHandler {
                 sendText(exchange, "{\"error\":\"Метод не поддерживается\"}", 405);
                 return;
             }
-            sendText(exchange, gson.toJson(taskManager.getHistory()), 200);
+            sendText(exchange, gson.toJson(getHistory(exchange)), 200);
         } catch (Exception e) {
             sendInternalError(exchange, "Ошибка при получении истории задач");
         }
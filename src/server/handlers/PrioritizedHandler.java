@@ -13,7 +13,7 @@ public class PrioritizedHandler extends BaseHttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
-            String path = exchange.getRequestURI().getPath();
+            String path = getPath(exchange);
 
             if (!path.equals("/prioritized")) {
                 sendNotFound(exchange, "Доступен только путь /prioritized");
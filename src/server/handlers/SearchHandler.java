@@ -0,0 +1,62 @@
+package server.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import util.TaskManager;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Полнотекстовый поиск: GET /search?q=&limit=
+ * q - слова для поиска в названии и описании (последние буквы слова можно опустить),
+ * limit - наибольшее количество задач (по умолчанию 50).
+ */
+public class SearchHandler extends BaseHttpHandler {
+    private static final int DEFAULT_LIMIT = 50;
+
+    public SearchHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = getPath(exchange);
+
+            if (!path.equals("/search")) {
+                sendNotFound(exchange, "Доступен только путь /search");
+                return;
+            }
+
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendText(exchange,
+                        "{\"error\":\"Метод не поддерживается. Используйте GET\"}",
+                        405);
+                return;
+            }
+
+            Map<String, String> params = getQueryParams(exchange);
+            String query = params.get("q");
+            if (query == null || query.isBlank()) {
+                sendBadRequest(exchange, "Обязательный параметр: q");
+                return;
+            }
+            int limit;
+            try {
+                limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_LIMIT;
+            } catch (NumberFormatException e) {
+                sendBadRequest(exchange, "Параметр limit должен быть числом");
+                return;
+            }
+            if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+                sendBadRequest(exchange, "Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+                return;
+            }
+
+            sendText(exchange, gson.toJson(taskManager.search(query, limit)), 200);
+
+        } catch (Exception e) {
+            sendInternalError(exchange, "Ошибка при поиске задач");
+        }
+    }
+}
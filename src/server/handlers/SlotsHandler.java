@@ -0,0 +1,83 @@
+package server.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import util.TaskManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Поиск свободных окон: GET /slots?duration=&from=&to=&limit=
+ * duration - длительность в минутах, from и to - границы поиска в формате ISO,
+ * limit - наибольшее количество окон (по умолчанию 10).
+ */
+public class SlotsHandler extends BaseHttpHandler {
+    private static final int DEFAULT_LIMIT = 10;
+
+    public SlotsHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = getPath(exchange);
+
+            if (!path.equals("/slots")) {
+                sendNotFound(exchange, "Доступен только путь /slots");
+                return;
+            }
+
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendText(exchange,
+                        "{\"error\":\"Метод не поддерживается. Используйте GET\"}",
+                        405);
+                return;
+            }
+
+            Map<String, String> params = getQueryParams(exchange);
+            if (!params.containsKey("duration") || !params.containsKey("from") || !params.containsKey("to")) {
+                sendBadRequest(exchange, "Обязательные параметры: duration, from, to");
+                return;
+            }
+            Duration duration;
+            int limit;
+            try {
+                duration = Duration.ofMinutes(Long.parseLong(params.get("duration")));
+                limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_LIMIT;
+            } catch (NumberFormatException e) {
+                sendBadRequest(exchange, "Параметры duration и limit должны быть числами");
+                return;
+            }
+            if (duration.isNegative() || duration.isZero()) {
+                sendBadRequest(exchange, "Параметр duration должен быть положительным");
+                return;
+            }
+            if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+                sendBadRequest(exchange, "Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+                return;
+            }
+            LocalDateTime from;
+            LocalDateTime to;
+            try {
+                from = LocalDateTime.parse(params.get("from"));
+                to = LocalDateTime.parse(params.get("to"));
+            } catch (DateTimeParseException e) {
+                sendBadRequest(exchange, "Параметры from и to должны быть в формате ISO (2025-07-21T08:00)");
+                return;
+            }
+            if (!from.isBefore(to)) {
+                sendBadRequest(exchange, "Параметр from должен быть раньше to");
+                return;
+            }
+
+            sendText(exchange, gson.toJson(taskManager.findFreeSlots(duration, from, to, limit)), 200);
+
+        } catch (Exception e) {
+            sendInternalError(exchange, "Ошибка при поиске свободного времени");
+        }
+    }
+}
@@ -3,11 +3,15 @@ package server.handlers;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import exceptions.TimeConflictException;
+import exceptions.VersionConflictException;
 import tasks.Subtask;
+import tasks.TaskType;
+import util.HistorySessions;
 import util.TaskManager;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 public class SubtaskHandler extends BaseHttpHandler {
 
@@ -15,6 +19,10 @@ public class SubtaskHandler extends BaseHttpHandler {
         super(taskManager);
     }
 
+    public SubtaskHandler(TaskManager taskManager, HistorySessions sessions) {
+        super(taskManager, sessions);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -30,16 +38,29 @@ public class SubtaskHandler extends BaseHttpHandler {
     }
 
     private void handleGet(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
+        String path = getPath(exchange);
         if (path.equals("/subtasks")) {
-            sendText(exchange, gson.toJson(taskManager.getAllSubtasks()), 200);
+            Map<String, String> params = getQueryParams(exchange);
+            if (params.containsKey("query")) {
+                sendQueried(exchange, params, TaskType.SUBTASK);
+            } else if (params.containsKey("limit")) {
+                sendPage(exchange, params, taskManager::getSubtasksPage);
+            } else {
+                sendText(exchange, gson.toJson(taskManager.getAllSubtasks()), 200);
+            }
         } else if (path.matches("/subtasks/\\d+")) {
             try {
                 int id = extractIdFromPath(path);
-                Subtask subtask = taskManager.getSubtaskById(id);
+                long version = taskManager.getVersion(TaskType.SUBTASK, id);
+                if (version != 0 && isNotModified(exchange, version)) {
+                    sendNotModified(exchange, version);
+                    return;
+                }
+                Subtask subtask = version == 0 ? null : view(exchange, TaskType.SUBTASK, id, taskManager::getSubtaskById);
                 if (subtask == null) {
                     sendNotFound(exchange, "Подзадача не найдена.");
                 } else {
+                    setETag(exchange, subtask.getVersion());
                     sendText(exchange, gson.toJson(subtask), 200);
                 }
             } catch (NumberFormatException e) {
@@ -64,7 +85,7 @@ public class SubtaskHandler extends BaseHttpHandler {
             sendBadRequest(exchange, "Поля title и description должны быть инициализированы");
             return;
         }
-        if (subtask.getEpicId() == 0 || taskManager.getEpicById(subtask.getEpicId()) == null) {
+        if (subtask.getEpicId() == 0 || taskManager.getVersion(TaskType.EPIC, subtask.getEpicId()) == 0) {
             sendBadRequest(exchange, "Не указан или не существует эпик для подзадачи");
             return;
         }
@@ -76,13 +97,14 @@ public class SubtaskHandler extends BaseHttpHandler {
         }
 
         try {
-            if (subtask.getId() == 0 || taskManager.getSubtaskById(subtask.getId()) == null) {
-
-                sendText(exchange, gson.toJson(taskManager.createSubtask(subtask)), 201);
-            } else {
-                sendText(exchange, gson.toJson(taskManager.updateSubtask(subtask)), 200);
-            }
-
+            boolean exists = subtask.getId() != 0
+                    && taskManager.getVersion(TaskType.SUBTASK, subtask.getId()) != 0;
+            Subtask resultSubtask = writeConditionally(exchange, TaskType.SUBTASK, subtask.getId(),
+                    manager -> exists ? manager.updateSubtask(subtask) : manager.createSubtask(subtask));
+            setETag(exchange, resultSubtask.getVersion());
+            sendText(exchange, gson.toJson(resultSubtask), exists ? 200 : 201);
+        } catch (VersionConflictException e) {
+            sendPreconditionFailed(exchange);
         } catch (TimeConflictException e) {
             sendHasInteractions(exchange);
         } catch (JsonSyntaxException e) {
@@ -91,20 +113,24 @@ public class SubtaskHandler extends BaseHttpHandler {
     }
 
     private void handleDelete(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
+        String path = getPath(exchange);
         if (path.equals("/subtasks")) {
             taskManager.deleteAllSubtasks();
             sendSuccess(exchange, "Все подзадачи удалены.");
         } else if (path.matches("/subtasks/\\d+")) {
             try {
                 int id = extractIdFromPath(path);
-                Subtask subtask = taskManager.getSubtaskById(id);
-                if (subtask == null) {
+                if (taskManager.getVersion(TaskType.SUBTASK, id) == 0) {
                     sendNotFound(exchange, "Подзадача не найдена.");
                 } else {
-                    taskManager.deleteSubtaskById(id);
+                    writeConditionally(exchange, TaskType.SUBTASK, id, manager -> {
+                        manager.deleteSubtaskById(id);
+                        return null;
+                    });
                     sendSuccess(exchange, "Подзадача удалена.");
                 }
+            } catch (VersionConflictException e) {
+                sendPreconditionFailed(exchange);
             } catch (NumberFormatException e) {
                 sendBadRequest(exchange, "ID подзадачи должен быть числом.");
             }
@@ -2,17 +2,26 @@ package server.handlers;
 
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
+import exceptions.TimeConflictException;
+import exceptions.VersionConflictException;
 import tasks.Task;
+import tasks.TaskType;
+import util.HistorySessions;
 import util.TaskManager;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 public class TaskHandler extends BaseHttpHandler {
     public TaskHandler(TaskManager taskManager) {
         super(taskManager);
     }
 
+    public TaskHandler(TaskManager taskManager, HistorySessions sessions) {
+        super(taskManager, sessions);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -28,16 +37,31 @@ public class TaskHandler extends BaseHttpHandler {
     }
 
     private void handleGet(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
+        String path = getPath(exchange);
         if (path.equals("/tasks")) {
-            sendText(exchange, gson.toJson(taskManager.getAllTasks()), 200);
+            Map<String, String> params = getQueryParams(exchange);
+            if (params.containsKey("query")) {
+                sendQueried(exchange, params, TaskType.TASK);
+            } else if (hasFilterParams(params)) {
+                sendFiltered(exchange, params, TaskType.TASK);
+            } else if (params.containsKey("limit")) {
+                sendPage(exchange, params, taskManager::getTasksPage);
+            } else {
+                sendText(exchange, gson.toJson(taskManager.getAllTasks()), 200);
+            }
         } else if (path.matches("/tasks/\\d+")) {
             try {
                 int id = extractIdFromPath(path);
-                Task task = taskManager.getTaskById(id);
+                long version = taskManager.getVersion(TaskType.TASK, id);
+                if (version != 0 && isNotModified(exchange, version)) {
+                    sendNotModified(exchange, version);
+                    return;
+                }
+                Task task = version == 0 ? null : view(exchange, TaskType.TASK, id, taskManager::getTaskById);
                 if (task == null) {
                     sendNotFound(exchange, "Задача не найдена.");
                 } else {
+                    setETag(exchange, task.getVersion());
                     sendText(exchange, gson.toJson(task), 200);
                 }
             } catch (NumberFormatException e) {
@@ -70,39 +94,40 @@ public class TaskHandler extends BaseHttpHandler {
                 return;
             }
 
-            if (taskManager.isTasksOverlap(task)) {
-                sendHasInteractions(exchange);
-                return;
-            }
-
-            Task resultTask;
-            if (task.getId() == 0 || taskManager.getTaskById(task.getId()) == null) {
-                resultTask = taskManager.createTask(task);
-                sendText(exchange, gson.toJson(resultTask), 201);
-            } else {
-                resultTask = taskManager.updateTask(task);
-                sendText(exchange, gson.toJson(resultTask), 200);
-            }
+            boolean exists = task.getId() != 0 && taskManager.getVersion(TaskType.TASK, task.getId()) != 0;
+            Task resultTask = writeConditionally(exchange, TaskType.TASK, task.getId(),
+                    manager -> exists ? manager.updateTask(task) : manager.createTask(task));
+            setETag(exchange, resultTask.getVersion());
+            sendText(exchange, gson.toJson(resultTask), exists ? 200 : 201);
+        } catch (VersionConflictException e) {
+            sendPreconditionFailed(exchange);
+        } catch (TimeConflictException e) {
+            // пересечение проверяет менеджер при сохранении, вместе с версией из If-Match
+            sendHasInteractions(exchange);
         } catch (JsonSyntaxException e) {
             sendBadRequest(exchange, "Неверный формат JSON");
         }
     }
 
     private void handleDelete(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
+        String path = getPath(exchange);
         if (path.equals("/tasks")) {
             taskManager.clearAllTasks();
             sendSuccess(exchange, "Все задачи удалены.");
         } else if (path.matches("/tasks/\\d+")) {
             try {
                 int id = extractIdFromPath(path);
-                Task task = taskManager.getTaskById(id);
-                if (task == null) {
+                if (taskManager.getVersion(TaskType.TASK, id) == 0) {
                     sendNotFound(exchange, "Задача не найдена");
                 } else {
-                    taskManager.deleteTaskById(id);
+                    writeConditionally(exchange, TaskType.TASK, id, manager -> {
+                        manager.deleteTaskById(id);
+                        return null;
+                    });
                     sendSuccess(exchange, "Задача удалена");
                 }
+            } catch (VersionConflictException e) {
+                sendPreconditionFailed(exchange);
             } catch (NumberFormatException e) {
                 sendBadRequest(exchange, "ID задачи должен быть числом");
             }
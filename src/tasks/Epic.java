@@ -2,47 +2,58 @@ package tasks;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+
+import collections.PersistentIntSet;
 
 public class Epic extends Task {
-    private List<Integer> subtaskId;
+    private PersistentIntSet subtaskId;
     private LocalDateTime endTime;
 
     // Конструктор по умолчанию для GSON
     public Epic() {
-        this.subtaskId = new ArrayList<>();
+        this.subtaskId = PersistentIntSet.empty();
     }
 
     public Epic(int id, String title, String description, TaskStatus status,
                 LocalDateTime startTime, Duration duration) {
         super(id, title, description, status, startTime, duration);
-        this.subtaskId = new ArrayList<>();
+        this.subtaskId = PersistentIntSet.empty();
     }
 
     public Epic(int id, String title, String description) {
         super(id, title, description);
-        this.subtaskId = new ArrayList<>();
+        this.subtaskId = PersistentIntSet.empty();
     }
 
     public Epic(String title, String description) {
         super(title, description);
-        this.subtaskId = new ArrayList<>();
+        this.subtaskId = PersistentIntSet.empty();
     }
 
-    public List<Integer> getSubtaskId() {
+    /**
+     * Id подзадач эпика. Множество неизменяемо, поэтому его можно отдавать без копирования:
+     * состав подзадач версии эпика через него не изменить.
+     */
+    public PersistentIntSet getSubtaskId() {
         return subtaskId;
     }
 
-    public void setSubtaskId(List<Integer> subtaskId) {
-        this.subtaskId = subtaskId != null ? subtaskId : new ArrayList<>();
+    public void setSubtaskId(PersistentIntSet subtaskId) {
+        checkMutable();
+        this.subtaskId = subtaskId != null ? subtaskId : PersistentIntSet.empty();
     }
 
     public void addSubtask(int subId) {
-        if (subId == this.getId() || subtaskId.contains(subId)) {
+        checkMutable();
+        if (subId == this.getId()) {
             return;
         }
-        subtaskId.add(subId);
+        subtaskId = subtaskId.with(subId);
+    }
+
+    public void removeSubtask(int subId) {
+        checkMutable();
+        subtaskId = subtaskId.without(subId);
     }
 
     @Override
@@ -51,9 +62,62 @@ public class Epic extends Task {
     }
 
     public void setEndTime(LocalDateTime endTime) {
+        checkMutable();
         this.endTime = endTime;
     }
 
+    // статус, время и список подзадач эпика вычисляет менеджер; копия сохраняет их как есть.
+    // Список подзадач неизменяем, поэтому копия разделяет его с этой версией
+    @Override
+    public Epic copy() {
+        Epic copy = new Epic(id, getTitle(), getDescription(), status, startTime, duration);
+        copy.subtaskId = subtaskId;
+        copy.endTime = endTime;
+        copy.recurrence = recurrence;
+        copy.version = version;
+        return copy;
+    }
+
+    @Override
+    public Epic withTitle(String title) {
+        return (Epic) super.withTitle(title);
+    }
+
+    @Override
+    public Epic withDescription(String description) {
+        return (Epic) super.withDescription(description);
+    }
+
+    @Override
+    public Epic withStatus(TaskStatus status) {
+        return (Epic) super.withStatus(status);
+    }
+
+    @Override
+    public Epic withStartTime(LocalDateTime startTime) {
+        return (Epic) super.withStartTime(startTime);
+    }
+
+    @Override
+    public Epic withDuration(Duration duration) {
+        return (Epic) super.withDuration(duration);
+    }
+
+    @Override
+    public Epic withRecurrence(Recurrence recurrence) {
+        return (Epic) super.withRecurrence(recurrence);
+    }
+
+    // Builder нового эпика без подзадач
+    public static Builder<Epic> builder() {
+        return new Builder<>(new Epic(0, null, null, TaskStatus.NEW, null, null));
+    }
+
+    @Override
+    public Builder<Epic> toBuilder() {
+        return new Builder<>(copy());
+    }
+
     @Override
     public TaskType getType() {
         return TaskType.EPIC;
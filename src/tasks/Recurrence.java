@@ -0,0 +1,121 @@
+package tasks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Правило повторения задачи: каждые interval дней или недель начиная со времени начала задачи,
+ * до until включительно (null - без конца).
+ * Вхождения не хранятся: i-е вхождение начинается в startTime + i * период,
+ * поэтому нужные вхождения вычисляются арифметически для любого интервала времени.
+ */
+public final class Recurrence {
+    public enum Frequency {
+        DAILY,
+        WEEKLY
+    }
+
+    private final Frequency frequency;
+    private final int interval;
+    private final LocalDateTime until;
+
+    public Recurrence(Frequency frequency, int interval, LocalDateTime until) {
+        if (frequency == null) {
+            throw new IllegalArgumentException("Не указана частота повторения");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Интервал повторения должен быть положительным");
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.until = until;
+    }
+
+    public static Recurrence daily() {
+        return new Recurrence(Frequency.DAILY, 1, null);
+    }
+
+    public static Recurrence weekly() {
+        return new Recurrence(Frequency.WEEKLY, 1, null);
+    }
+
+    public Recurrence until(LocalDateTime until) {
+        return new Recurrence(frequency, interval, until);
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public LocalDateTime getUntil() {
+        return until;
+    }
+
+    public Duration getPeriod() {
+        return Duration.ofDays((long) interval * (frequency == Frequency.WEEKLY ? 7 : 1));
+    }
+
+    /**
+     * Номер первого вхождения, начинающегося не раньше time (может быть больше последнего).
+     */
+    public long firstIndexFrom(LocalDateTime seriesStart, LocalDateTime time) {
+        if (!time.isAfter(seriesStart)) {
+            return 0;
+        }
+        long periodSeconds = getPeriod().getSeconds();
+        long index = Math.ceilDiv(Duration.between(seriesStart, time).getSeconds(), periodSeconds);
+        // секунды округлены вниз, поэтому номер мог оказаться на единицу меньше
+        if (occurrenceStart(seriesStart, index).isBefore(time)) {
+            index++;
+        }
+        return index;
+    }
+
+    public LocalDateTime occurrenceStart(LocalDateTime seriesStart, long index) {
+        return seriesStart.plus(getPeriod().multipliedBy(index));
+    }
+
+    /**
+     * Есть ли вхождение с таким номером: оно начинается не позже until.
+     */
+    public boolean hasOccurrence(LocalDateTime seriesStart, long index) {
+        return index >= 0 && (until == null || !occurrenceStart(seriesStart, index).isAfter(until));
+    }
+
+    /**
+     * Текстовая форма для файла: FREQUENCY;interval;until (until может отсутствовать).
+     */
+    public String format() {
+        return frequency + ";" + interval + (until != null ? ";" + until : "");
+    }
+
+    public static Recurrence parse(String value) {
+        String[] parts = value.split(";");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Некорректное правило повторения: " + value);
+        }
+        LocalDateTime until = parts.length > 2 && !parts[2].isEmpty() ? LocalDateTime.parse(parts[2]) : null;
+        return new Recurrence(Frequency.valueOf(parts[0]), Integer.parseInt(parts[1]), until);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Recurrence that)) return false;
+        return interval == that.interval && frequency == that.frequency && Objects.equals(until, that.until);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(frequency, interval, until);
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
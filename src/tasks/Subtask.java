@@ -35,9 +35,62 @@ public class Subtask extends Task {
     }
 
     public void setEpicId(int epicId) {
+        checkMutable();
         this.epicId = epicId;
     }
 
+    @Override
+    public Subtask copy() {
+        Subtask copy = new Subtask(id, getTitle(), getDescription(), status, epicId, startTime, duration);
+        copy.recurrence = recurrence;
+        copy.version = version;
+        return copy;
+    }
+
+    public Subtask withEpicId(int epicId) {
+        return (Subtask) derive(next -> ((Subtask) next).epicId = epicId);
+    }
+
+    @Override
+    public Subtask withTitle(String title) {
+        return (Subtask) super.withTitle(title);
+    }
+
+    @Override
+    public Subtask withDescription(String description) {
+        return (Subtask) super.withDescription(description);
+    }
+
+    @Override
+    public Subtask withStatus(TaskStatus status) {
+        return (Subtask) super.withStatus(status);
+    }
+
+    @Override
+    public Subtask withStartTime(LocalDateTime startTime) {
+        return (Subtask) super.withStartTime(startTime);
+    }
+
+    @Override
+    public Subtask withDuration(Duration duration) {
+        return (Subtask) super.withDuration(duration);
+    }
+
+    @Override
+    public Subtask withRecurrence(Recurrence recurrence) {
+        return (Subtask) super.withRecurrence(recurrence);
+    }
+
+    // Builder новой подзадачи эпика epicId (статус NEW)
+    public static Builder<Subtask> builder(int epicId) {
+        return new Builder<>(new Subtask(0, null, null, TaskStatus.NEW, epicId, null, null));
+    }
+
+    @Override
+    public Builder<Subtask> toBuilder() {
+        return new Builder<>(copy());
+    }
+
     @Override
     public TaskType getType() {
         return TaskType.SUBTASK;
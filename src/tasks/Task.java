@@ -3,7 +3,15 @@ package tasks;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.function.Consumer;
 
+/**
+ * Задача. Пока задача не заморожена, это изменяемый черновик (так ее создают конструкторы и Gson).
+ * После freeze задача - неизменяемое значение: сеттеры бросают UnsupportedOperationException,
+ * а with-методы и builder возвращают новые неизменяемые задачи того же типа.
+ * Менеджер сохраняет замороженную копию переданной задачи и отдает ее без копирования;
+ * переданный черновик остается изменяемым.
+ */
 public class Task {
 
     private String title;
@@ -12,6 +20,9 @@ public class Task {
     protected TaskStatus status;
     protected LocalDateTime startTime;
     protected Duration duration;
+    protected long version; // версия, которую менеджер меняет при каждом изменении задачи
+    protected Recurrence recurrence; // правило повторения; null - разовая задача
+    private transient boolean frozen;
 
     public Task() {
     }
@@ -45,6 +56,7 @@ public class Task {
     }
 
     public void setTitle(String title) {
+        checkMutable();
         this.title = title;
     }
 
@@ -53,6 +65,7 @@ public class Task {
     }
 
     public void setDescription(String description) {
+        checkMutable();
         this.description = description;
     }
 
@@ -61,6 +74,7 @@ public class Task {
     }
 
     public void setId(int id) {
+        checkMutable();
         this.id = id;
     }
 
@@ -69,6 +83,7 @@ public class Task {
     }
 
     public void setStatus(TaskStatus status) {
+        checkMutable();
         this.status = status;
     }
 
@@ -81,13 +96,38 @@ public class Task {
     }
 
     public void setStartTime(LocalDateTime startTime) {
+        checkMutable();
         this.startTime = startTime;
     }
 
     public void setDuration(Duration duration) {
+        checkMutable();
         this.duration = duration;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        checkMutable();
+        this.version = version;
+    }
+
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    public void setRecurrence(Recurrence recurrence) {
+        checkMutable();
+        this.recurrence = recurrence;
+    }
+
+    public boolean isRecurring() {
+        return recurrence != null;
+    }
+
+    // время окончания первого вхождения повторяющейся задачи
     public LocalDateTime getEndTime() {
         if (startTime == null || duration == null) {
             return null;
@@ -95,10 +135,82 @@ public class Task {
         return startTime.plus(duration);
     }
 
+    /**
+     * Делает задачу неизменяемой. Повторный вызов ничего не меняет.
+     */
+    public Task freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    protected void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Задача " + id + " неизменяема, используйте with-методы");
+        }
+    }
+
+    /**
+     * Изменяемая копия того же типа со всеми полями, включая версию.
+     */
+    public Task copy() {
+        Task copy = new Task(id, title, description, status, startTime, duration);
+        copy.recurrence = recurrence;
+        copy.version = version;
+        return copy;
+    }
+
+    // новая неизменяемая задача: change меняет изменяемую копию
+    protected Task derive(Consumer<Task> change) {
+        Task next = copy();
+        change.accept(next);
+        return next.freeze();
+    }
+
+    public Task withTitle(String title) {
+        return derive(next -> next.title = title);
+    }
+
+    public Task withDescription(String description) {
+        return derive(next -> next.description = description);
+    }
+
+    public Task withStatus(TaskStatus status) {
+        return derive(next -> next.status = status);
+    }
+
+    public Task withStartTime(LocalDateTime startTime) {
+        return derive(next -> next.startTime = startTime);
+    }
+
+    public Task withDuration(Duration duration) {
+        return derive(next -> next.duration = duration);
+    }
+
+    public Task withRecurrence(Recurrence recurrence) {
+        return derive(next -> next.recurrence = recurrence);
+    }
+
+    /**
+     * Builder новой задачи (статус NEW). Подзадачи и эпики создаются через Subtask.builder и Epic.builder.
+     */
+    public static Builder<? extends Task> builder() {
+        return new Builder<>(new Task(0, null, null, TaskStatus.NEW, null, null));
+    }
+
+    // Builder с полями этой задачи
+    public Builder<? extends Task> toBuilder() {
+        return new Builder<>(copy());
+    }
+
     public static Task copyTask(Task original) {
         if (original == null) return null;
         Task copyOfTask = new Task(original.getId(), original.getTitle(), original.getDescription(),
                 original.getStatus(), original.getStartTime(), original.getDuration());
+        copyOfTask.setRecurrence(original.getRecurrence());
 
         return copyOfTask;
     }
@@ -132,4 +244,60 @@ public class Task {
     public final int hashCode() {
         return Objects.hashCode(id);
     }
+
+    /**
+     * Builder неизменяемой задачи; build можно вызывать повторно, каждый раз получая новую задачу.
+     */
+    public static final class Builder<T extends Task> {
+        private final T draft;
+
+        Builder(T draft) {
+            this.draft = draft;
+        }
+
+        public Builder<T> id(int id) {
+            draft.id = id;
+            return this;
+        }
+
+        public Builder<T> title(String title) {
+            ((Task) draft).title = title;
+            return this;
+        }
+
+        public Builder<T> description(String description) {
+            ((Task) draft).description = description;
+            return this;
+        }
+
+        public Builder<T> status(TaskStatus status) {
+            draft.status = status;
+            return this;
+        }
+
+        public Builder<T> startTime(LocalDateTime startTime) {
+            draft.startTime = startTime;
+            return this;
+        }
+
+        public Builder<T> duration(Duration duration) {
+            draft.duration = duration;
+            return this;
+        }
+
+        public Builder<T> recurrence(Recurrence recurrence) {
+            draft.recurrence = recurrence;
+            return this;
+        }
+
+        public Builder<T> version(long version) {
+            draft.version = version;
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T build() {
+            return (T) draft.copy().freeze();
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Граница id в памяти процесса. Подходит для одного экземпляра сервера.
+ */
+public class AtomicIdBlockSource implements IdBlockSource {
+    private final AtomicLong next = new AtomicLong(1);
+
+    @Override
+    public long claim(int size) {
+        return next.getAndAdd(size);
+    }
+
+    @Override
+    public void reserve(long next) {
+        this.next.accumulateAndGet(next, Math::max);
+    }
+}
@@ -0,0 +1,107 @@
+package util;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import tasks.Epic;
+import tasks.Task;
+
+/**
+ * Раскладка задач без времени по свободным окнам календаря.
+ * Задачи размещаются по порядку списка, каждая - в самое раннее окно, куда помещается (first fit).
+ * Остаток каждого окна хранится в дереве отрезков с максимумом на поддереве, поэтому самое левое
+ * подходящее окно находится за O(log g) без перебора окон и проверок пересечений.
+ */
+final class AutoScheduler {
+    // тот же зазор между задачами, что и у окон InMemoryTaskManager.findFreeSlots
+    private static final long GAP_SECONDS = 60;
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] tree;
+    private final int leaves;
+
+    private AutoScheduler(List<TimeSlot> slots) {
+        int size = 1;
+        while (size < slots.size()) {
+            size <<= 1;
+        }
+        leaves = size;
+        starts = new long[slots.size()];
+        ends = new long[slots.size()];
+        tree = new long[2 * size];
+        Arrays.fill(tree, -1);
+        for (int i = 0; i < slots.size(); i++) {
+            starts[i] = secondsUp(slots.get(i).getStart());
+            ends[i] = slots.get(i).getEnd().toEpochSecond(ZoneOffset.UTC);
+            tree[size + i] = ends[i] - starts[i];
+        }
+        for (int node = size - 1; node > 0; node--) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Проверяет, что задачи можно раскладывать: это задачи или подзадачи без времени начала
+     * с положительной длительностью.
+     */
+    static void checkUnscheduled(List<? extends Task> items) {
+        for (Task item : items) {
+            if (item == null || item instanceof Epic) {
+                throw new IllegalArgumentException("Раскладывать можно только задачи и подзадачи");
+            }
+            if (item.getStartTime() != null) {
+                throw new IllegalArgumentException("У задачи " + item.getId() + " уже задано время начала");
+            }
+            Duration duration = item.getDuration();
+            if (duration == null || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("У задачи " + item.getId() + " не задана длительность");
+            }
+        }
+    }
+
+    /**
+     * Неизменяемые копии задач с назначенным временем начала (того же типа), в порядке списка.
+     * Задачи, которым не хватило места в окнах, в результат не попадают.
+     */
+    static List<Task> assign(List<TimeSlot> slots, List<? extends Task> items) {
+        AutoScheduler scheduler = new AutoScheduler(slots);
+        List<Task> scheduled = new ArrayList<>();
+        for (Task item : items) {
+            Duration duration = item.getDuration();
+            long start = scheduler.take(duration.getSeconds() + (duration.getNano() > 0 ? 1 : 0));
+            if (start >= 0) {
+                scheduled.add(item.withStartTime(LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC)));
+            }
+        }
+        return scheduled;
+    }
+
+    // занимает начало самого левого окна, вмещающего length секунд; -1, если такого окна нет
+    private long take(long length) {
+        if (tree.length == 0 || tree[1] < length) {
+            return -1;
+        }
+        int node = 1;
+        while (node < leaves) {
+            node = tree[2 * node] >= length ? 2 * node : 2 * node + 1;
+        }
+        int slot = node - leaves;
+        long start = starts[slot];
+        starts[slot] = start + length + GAP_SECONDS;
+        tree[node] = ends[slot] - starts[slot];
+        for (node >>= 1; node > 0; node >>= 1) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+        return start;
+    }
+
+    // окна считаются в целых секундах: начало округляется вверх, конец - вниз, чтобы не выйти за окно
+    private static long secondsUp(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) + (time.getNano() > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,98 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выдает id из блока, заранее взятого у IdBlockSource. Обычный вызов nextId - один
+ * getAndIncrement без блокировок, к источнику обращается только поток, исчерпавший блок.
+ * Id одного менеджера растут монотонно; при общем источнике разные процессы получают
+ * непересекающиеся блоки.
+ */
+public class BlockIdAllocator implements IdAllocator {
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final IdBlockSource source;
+    private final int blockSize;
+    private volatile Block block = new Block(0, 0);
+    // нижняя граница следующего id: позиция из reserve или начало последнего взятого блока
+    private volatile long floor = 1;
+
+    public BlockIdAllocator() {
+        this(new AtomicIdBlockSource(), DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockIdAllocator(IdBlockSource source, int blockSize) {
+        if (source == null) {
+            throw new IllegalArgumentException("Источник id не может быть null");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным");
+        }
+        this.source = source;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int nextId() {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return (int) id;
+            }
+            refill(current);
+        }
+    }
+
+    /**
+     * Остаток текущего блока ниже existingId отбрасывается.
+     * Предназначен для загрузки данных, до того как менеджер начнет выдавать id.
+     */
+    @Override
+    public synchronized void reserve(int existingId) {
+        long next = existingId + 1L;
+        source.reserve(next);
+        floor = Math.max(floor, next);
+        Block current = block;
+        if (current.next.get() < next) {
+            block = next < current.end ? new Block(next, current.end) : new Block(0, 0);
+        }
+    }
+
+    /**
+     * Следующий id текущего блока; если блок исчерпан - нижняя граница следующего,
+     * не меньше позиции, переданной в reserve.
+     */
+    @Override
+    public int peekNextId() {
+        Block current = block;
+        long next = current.next.get();
+        if (next < current.end) {
+            return (int) next;
+        }
+        return (int) Math.max(floor, current.end);
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (block != exhausted) {
+            return; // блок уже заменил другой поток
+        }
+        long start = source.claim(blockSize);
+        long end = start + blockSize;
+        if (end - 1 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Закончились свободные id");
+        }
+        block = new Block(start, end);
+        floor = Math.max(floor, start);
+    }
+
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package util;
+
+import exceptions.ManagerSaveException;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Реестр досок: у каждой доски свой файл {@code <каталог>/<id>.csv} и свой FileBackedTaskManager.
+ * Доска загружается через loadFromFile при первом обращении, а в памяти держится не больше
+ * maxResident досок: при превышении выгружаются давно не использовавшиеся, предварительно
+ * сохраненные в файл. Поэтому время запуска и занимаемая память зависят от активных досок,
+ * а не от их общего числа.
+ * Доску, с которой сейчас работают (открыт Lease), не выгружают, даже если лимит превышен.
+ */
+public class BoardRegistry {
+    private static final Pattern BOARD_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final String FILE_SUFFIX = ".csv";
+
+    private final Path directory;
+    private final int maxResident;
+    // порядок обхода - от давно использованных к недавним
+    private final LinkedHashMap<String, Board> boards = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<Consumer<String>> evictionListeners = new ArrayList<>();
+
+    public BoardRegistry(Path directory, int maxResident) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Не указан каталог досок");
+        }
+        if (maxResident <= 0) {
+            throw new IllegalArgumentException("Число досок в памяти должно быть положительным");
+        }
+        this.directory = directory;
+        this.maxResident = maxResident;
+    }
+
+    /**
+     * Открывает доску для работы, при необходимости загружая ее из файла.
+     * Доска остается в памяти, пока Lease не закрыт.
+     *
+     * @throws IllegalArgumentException если id доски некорректен
+     * @throws ManagerSaveException     если файл доски не удалось прочитать
+     */
+    public Lease acquire(String boardId) {
+        if (boardId == null || !BOARD_ID.matcher(boardId).matches()) {
+            throw new IllegalArgumentException("Некорректный id доски: " + boardId);
+        }
+        Board board;
+        synchronized (this) {
+            board = boards.computeIfAbsent(boardId, Board::new);
+            board.users++;
+        }
+        try {
+            board.load(fileOf(boardId));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                board.users--;
+                if (board.manager == null && board.users == 0) {
+                    boards.remove(boardId, board);
+                }
+            }
+            throw e;
+        }
+        return new Lease(board);
+    }
+
+    /**
+     * Подписка на выгрузку доски из памяти: слушатель получает id доски после ее сохранения.
+     */
+    public synchronized void addEvictionListener(Consumer<String> listener) {
+        evictionListeners.add(listener);
+    }
+
+    public synchronized int residentCount() {
+        return boards.size();
+    }
+
+    public synchronized boolean isResident(String boardId) {
+        return boards.containsKey(boardId);
+    }
+
+    /**
+     * Сохраняет и выгружает все доски, с которыми сейчас не работают.
+     */
+    public synchronized void evictAll() {
+        evict(0);
+    }
+
+    private File fileOf(String boardId) {
+        return directory.resolve(boardId + FILE_SUFFIX).toFile();
+    }
+
+    private synchronized void release(Board board) {
+        board.users--;
+        evict(maxResident);
+    }
+
+    // Выгрузка под блокировкой реестра: пока доска сохраняется, повторно открыть ее нельзя,
+    // поэтому загрузка не прочитает недописанный файл.
+    private void evict(int limit) {
+        Iterator<Board> iterator = boards.values().iterator();
+        while (boards.size() > limit && iterator.hasNext()) {
+            Board board = iterator.next();
+            if (board.users > 0 || board.manager == null) {
+                continue;
+            }
+            try {
+                board.file.flush();
+            } catch (ManagerSaveException e) {
+                // несохраненную доску не выгружаем, чтобы не потерять изменения
+                continue;
+            }
+            iterator.remove();
+            for (Consumer<String> listener : evictionListeners) {
+                listener.accept(board.id);
+            }
+        }
+    }
+
+    private static final class Board {
+        private final String id;
+        private int users;
+        private volatile FileBackedTaskManager file;
+        private volatile TaskManager manager;
+
+        private Board(String id) {
+            this.id = id;
+        }
+
+        // загрузка под блокировкой доски, чтобы одновременные обращения не читали файл дважды
+        private synchronized void load(File source) {
+            if (manager != null) {
+                return;
+            }
+            if (source.exists()) {
+                file = FileBackedTaskManager.loadFromFile(source);
+            } else {
+                File parent = source.getParentFile();
+                if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                    throw new ManagerSaveException("Не удалось создать каталог досок: " + parent);
+                }
+                file = new FileBackedTaskManager(source);
+            }
+            manager = new ConcurrentTaskManager(file);
+        }
+    }
+
+    /**
+     * Открытая доска. Закрытие разрешает выгрузить доску из памяти.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Board board;
+        private boolean closed;
+
+        private Lease(Board board) {
+            this.board = board;
+        }
+
+        public String getBoardId() {
+            return board.id;
+        }
+
+        public TaskManager getManager() {
+            return board.manager;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(board);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package util;
+
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * История просмотров ограниченного размера: хранится не больше capacity последних задач.
+ * Узлов списка создается не больше capacity, дальше они используются по кругу: при переполнении
+ * узел самой старой задачи переходит к новой, поэтому вытеснение, как и перенос повторно просмотренной задачи
+ * в конец, выполняется за O(1) без выделения памяти.
+ */
+public class BoundedHistoryManager implements HistoryManager {
+    private final int capacity;
+    private final IntObjectHashMap<Node> nodes;
+    private int created;
+    // узлы удаленных задач, связанные через next
+    private Node free;
+    private Node head;
+    private Node tail;
+
+    public BoundedHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным");
+        }
+        this.capacity = capacity;
+        nodes = new IntObjectHashMap<>(capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        int id = task.getId();
+        Node node = nodes.get(id);
+        if (node != null) {
+            unlink(node);
+        } else {
+            node = freeNode();
+            node.id = id;
+            nodes.put(id, node);
+        }
+        // задачи менеджера неизменяемы, поэтому хранится сама просмотренная версия
+        node.task = task;
+        linkLast(node);
+    }
+
+    @Override
+    public void remove(int id) {
+        Node node = nodes.remove(id);
+        if (node != null) {
+            unlink(node);
+            release(node);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = new ArrayList<>(nodes.size());
+        for (Node current = head; current != null; current = current.next) {
+            history.add(current.task);
+        }
+        return history;
+    }
+
+    // узел удаленной задачи, новый узел, а если история заполнена - узел самой старой задачи
+    private Node freeNode() {
+        if (free != null) {
+            Node node = free;
+            free = node.next;
+            node.next = null;
+            return node;
+        }
+        if (created < capacity) {
+            created++;
+            return new Node();
+        }
+        Node oldest = head;
+        unlink(oldest);
+        nodes.remove(oldest.id);
+        return oldest;
+    }
+
+    private void release(Node node) {
+        node.task = null;
+        node.next = free;
+        free = node;
+    }
+
+    private void linkLast(Node node) {
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            head = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static class Node {
+        int id;
+        Task task;
+        Node prev;
+        Node next;
+    }
+}
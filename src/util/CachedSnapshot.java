@@ -0,0 +1,38 @@
+package util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Неизменяемый снимок коллекции, который пересобирается только после изменения ее версии.
+ * Повторные чтения между изменениями возвращают один и тот же список без копирования.
+ */
+class CachedSnapshot<T> {
+    private final LongSupplier version;
+    private final Supplier<List<T>> builder;
+    private volatile Versioned<T> current;
+
+    /**
+     * @param version текущая версия исходной коллекции
+     * @param builder строит новый список с содержимым коллекции; список дальше не изменяется
+     */
+    CachedSnapshot(LongSupplier version, Supplier<List<T>> builder) {
+        this.version = version;
+        this.builder = builder;
+    }
+
+    List<T> get() {
+        long actualVersion = version.getAsLong();
+        Versioned<T> snapshot = current;
+        if (snapshot == null || snapshot.version() != actualVersion) {
+            snapshot = new Versioned<>(actualVersion, Collections.unmodifiableList(builder.get()));
+            current = snapshot;
+        }
+        return snapshot.items();
+    }
+
+    private record Versioned<T>(long version, List<T> items) {
+    }
+}
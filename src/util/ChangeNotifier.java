@@ -0,0 +1,100 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import tasks.Task;
+
+/**
+ * Рассылка событий TaskEvent подписчикам.
+ * Подписчики хранятся в массиве, который заменяется целиком при подписке и отписке,
+ * поэтому доставка идет без блокировок и без итераторов. Пока подписчиков нет,
+ * менеджер не создает событий.
+ * Внутри транзакции события копятся и доставляются при commit или отбрасываются при rollback.
+ */
+class ChangeNotifier {
+    private static final TaskChangeListener[] NO_LISTENERS = new TaskChangeListener[0];
+
+    private volatile TaskChangeListener[] listeners = NO_LISTENERS;
+    private long sequence;
+    private List<Pending> pending;
+
+    boolean hasListeners() {
+        return listeners.length > 0;
+    }
+
+    synchronized void addListener(TaskChangeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        TaskChangeListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    synchronized void removeListener(TaskChangeListener listener) {
+        TaskChangeListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                TaskChangeListener[] updated = new TaskChangeListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Публикует событие; значения - неизменяемые версии из хранилища менеджера,
+     * общие с ним и с другими подписчиками, поэтому передаются без копирования.
+     */
+    void publish(TaskEvent.Type type, Task oldValue, Task newValue) {
+        if (pending != null) {
+            pending.add(new Pending(type, oldValue, newValue));
+            return;
+        }
+        deliver(type, oldValue, newValue);
+    }
+
+    // начало транзакции: события откладываются
+    void hold() {
+        pending = new ArrayList<>();
+    }
+
+    // commit: отложенные события доставляются по порядку
+    void release() {
+        List<Pending> events = pending;
+        pending = null;
+        if (events != null) {
+            for (Pending event : events) {
+                deliver(event.type(), event.oldValue(), event.newValue());
+            }
+        }
+    }
+
+    // rollback: подписчики не видели изменений транзакции, сообщать о них не нужно
+    void discard() {
+        pending = null;
+    }
+
+    private void deliver(TaskEvent.Type type, Task oldValue, Task newValue) {
+        TaskChangeListener[] current = listeners;
+        if (current.length == 0) {
+            return;
+        }
+        TaskEvent event = new TaskEvent(++sequence, type, oldValue, newValue);
+        for (TaskChangeListener listener : current) {
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                // ошибка подписчика не должна прерывать изменение, которое уже выполнено
+                System.err.printf("Ошибка обработчика события %s: %s%n", event, e.getMessage());
+            }
+        }
+    }
+
+    private record Pending(TaskEvent.Type type, Task oldValue, Task newValue) {
+    }
+}
@@ -0,0 +1,305 @@
+package util;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+/**
+ * Потокобезопасная обертка над TaskManager на одной общей блокировке чтения-записи.
+ * Чтения выполняются параллельно под блокировкой чтения. Все изменения, какие бы задачи они ни затрагивали,
+ * выполняются под единственной блокировкой записи: записи полностью последовательны и на время каждой
+ * останавливают все чтения. Поэтому проверка пересечений по времени и пересчет статуса эпика атомарны,
+ * но запись не масштабируется с числом потоков; для параллельных записей есть ShardedTaskManager,
+ * для записи без ожидания читателей - SingleWriterTaskManager.
+ * Получение задачи по id меняет историю просмотров, поэтому такие вызовы
+ * дополнительно упорядочиваются блокировкой истории.
+ */
+public class ConcurrentTaskManager implements TaskManager {
+    private final TaskManager delegate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object historyLock = new Object();
+
+    public ConcurrentTaskManager(TaskManager delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("TaskManager cannot be null");
+        }
+        this.delegate = delegate;
+    }
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T readWithHistory(Supplier<T> action) {
+        return read(() -> {
+            synchronized (historyLock) {
+                return action.get();
+            }
+        });
+    }
+
+    private <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        write(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        return write(() -> delegate.createTask(task));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return write(() -> delegate.createEpic(epic));
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        return write(() -> delegate.createSubtask(subtask));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return read(delegate::getAllTasks);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return read(delegate::getAllSubtasks);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return read(delegate::getAllEpics);
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksOfEpic(int epicId) {
+        return read(() -> delegate.getSubtasksOfEpic(epicId));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return readWithHistory(delegate::getHistory);
+    }
+
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        write(() -> delegate.updateEpicStatus(epic));
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        return write(() -> delegate.updateTask(task));
+    }
+
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        return write(() -> delegate.updateSubtask(subtask));
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        return write(() -> delegate.updateEpic(epic));
+    }
+
+    @Override
+    public List<Task> createAll(Collection<? extends Task> items) {
+        return write(() -> delegate.createAll(items));
+    }
+
+    @Override
+    public List<Task> updateAll(Collection<? extends Task> items) {
+        return write(() -> delegate.updateAll(items));
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        write(() -> delegate.deleteAll(ids));
+    }
+
+    /**
+     * Транзакция удерживает блокировку записи от begin до commit или rollback,
+     * поэтому они должны вызываться в том же потоке; остальные потоки ждут ее завершения.
+     */
+    @Override
+    public void begin() {
+        lock.writeLock().lock();
+        try {
+            delegate.begin();
+        } catch (RuntimeException e) {
+            lock.writeLock().unlock();
+            throw e;
+        }
+    }
+
+    @Override
+    public void commit() {
+        finishTransaction(delegate::commit);
+    }
+
+    @Override
+    public void rollback() {
+        finishTransaction(delegate::rollback);
+    }
+
+    private void finishTransaction(Runnable action) {
+        if (!lock.isWriteLockedByCurrentThread()) {
+            throw new IllegalStateException("Нет открытой транзакции в текущем потоке");
+        }
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clearAll() {
+        write(delegate::clearAll);
+    }
+
+    @Override
+    public void clearAllTasks() {
+        write(delegate::clearAllTasks);
+    }
+
+    @Override
+    public void clearAllEpics() {
+        write(delegate::clearAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        write(delegate::deleteAllSubtasks);
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        write(() -> delegate.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        write(() -> delegate.deleteSubtaskById(id));
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        write(() -> delegate.deleteEpicById(id));
+    }
+
+    @Override
+    public long getVersion(TaskType type, int id) {
+        return read(() -> delegate.getVersion(type, id));
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return readWithHistory(() -> delegate.getTaskById(id));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return readWithHistory(() -> delegate.getSubtaskById(id));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return readWithHistory(() -> delegate.getEpicById(id));
+    }
+
+    // Подписчики хранятся в менеджере без блокировок, события приходят в потоке, выполнившем изменение
+
+    @Override
+    public void addListener(TaskChangeListener listener) {
+        delegate.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(TaskChangeListener listener) {
+        delegate.removeListener(listener);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(delegate::getPrioritizedTasks);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return read(() -> delegate.getPrioritizedTasks(from, to));
+    }
+
+    @Override
+    public boolean isTasksOverlap(Task task) {
+        return read(() -> delegate.isTasksOverlap(task));
+    }
+
+    @Override
+    public List<Task> findTasks(TaskType type, TaskStatus status, LocalDateTime from, LocalDateTime to) {
+        return read(() -> delegate.findTasks(type, status, from, to));
+    }
+
+    // окна и изменения берутся под одной блокировкой записи, поэтому раскладка не конфликтует с другими потоками
+    @Override
+    public List<Task> autoSchedule(List<? extends Task> items, LocalDateTime from, LocalDateTime to) {
+        return write(() -> delegate.autoSchedule(items, from, to));
+    }
+
+    @Override
+    public List<Task> query(TaskQuery query) {
+        return read(() -> delegate.query(query));
+    }
+
+    @Override
+    public int archiveCompleted() {
+        return write(delegate::archiveCompleted);
+    }
+
+    @Override
+    public Task getArchived(int id) {
+        return read(() -> delegate.getArchived(id));
+    }
+
+    @Override
+    public List<Task> findArchived(TaskQuery query) {
+        return read(() -> delegate.findArchived(query));
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        return read(() -> delegate.search(query, limit));
+    }
+
+    @Override
+    public List<TimeSlot> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit) {
+        return read(() -> delegate.findFreeSlots(duration, from, to, limit));
+    }
+}
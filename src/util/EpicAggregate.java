@@ -0,0 +1,114 @@
+package util;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+import tasks.Subtask;
+import tasks.TaskStatus;
+
+/**
+ * Накопительные показатели эпика по его подзадачам: счетчики статусов,
+ * мультимножества времени начала и окончания и суммарная длительность.
+ * Добавление, удаление и изменение подзадачи стоят O(log k), где k - число подзадач эпика.
+ */
+class EpicAggregate {
+    // учтенные значения подзадач, чтобы корректно вычитать их при изменении
+    private final IntObjectHashMap<Entry> entries = new IntObjectHashMap<>();
+    private final int[] statusCounts = new int[TaskStatus.values().length];
+    private final TreeMap<LocalDateTime, Integer> startTimes = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> endTimes = new TreeMap<>();
+    private Duration totalDuration = Duration.ZERO;
+
+    boolean contains(int subtaskId) {
+        return entries.containsKey(subtaskId);
+    }
+
+    /**
+     * Учитывает подзадачу; если она уже учтена - заменяет прежние значения.
+     */
+    void add(Subtask subtask) {
+        remove(subtask.getId());
+        Entry entry = new Entry(subtask.getStatus(), subtask.getStartTime(), subtask.getEndTime(),
+                subtask.getDuration());
+        entries.put(subtask.getId(), entry);
+        statusCounts[statusIndex(entry.status)]++;
+        increment(startTimes, entry.startTime);
+        increment(endTimes, entry.endTime);
+        if (entry.duration != null) {
+            totalDuration = totalDuration.plus(entry.duration);
+        }
+    }
+
+    void remove(int subtaskId) {
+        Entry entry = entries.remove(subtaskId);
+        if (entry == null) {
+            return;
+        }
+        statusCounts[statusIndex(entry.status)]--;
+        decrement(startTimes, entry.startTime);
+        decrement(endTimes, entry.endTime);
+        if (entry.duration != null) {
+            totalDuration = totalDuration.minus(entry.duration);
+        }
+    }
+
+    void clear() {
+        entries.clear();
+        Arrays.fill(statusCounts, 0);
+        startTimes.clear();
+        endTimes.clear();
+        totalDuration = Duration.ZERO;
+    }
+
+    /**
+     * Статус эпика: DONE, если нет подзадач не в статусе DONE; NEW, если все подзадачи NEW;
+     * иначе IN_PROGRESS.
+     */
+    TaskStatus getStatus() {
+        int newCount = statusCounts[TaskStatus.NEW.ordinal()];
+        int doneCount = statusCounts[TaskStatus.DONE.ordinal()];
+        int total = entries.size();
+        if (doneCount == total) {
+            return TaskStatus.DONE;
+        }
+        if (newCount == total) {
+            return TaskStatus.NEW;
+        }
+        return TaskStatus.IN_PROGRESS;
+    }
+
+    LocalDateTime getStartTime() {
+        return startTimes.isEmpty() ? null : startTimes.firstKey();
+    }
+
+    LocalDateTime getEndTime() {
+        return endTimes.isEmpty() ? null : endTimes.lastKey();
+    }
+
+    // null если суммарная длительность 0
+    Duration getDuration() {
+        return totalDuration.isZero() ? null : totalDuration;
+    }
+
+    // подзадачи без статуса не считаются ни NEW, ни DONE - как и IN_PROGRESS
+    private static int statusIndex(TaskStatus status) {
+        return (status != null ? status : TaskStatus.IN_PROGRESS).ordinal();
+    }
+
+    private static void increment(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        if (time != null) {
+            times.merge(time, 1, Integer::sum);
+        }
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        if (time != null) {
+            times.computeIfPresent(time, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private record Entry(TaskStatus status, LocalDateTime startTime, LocalDateTime endTime, Duration duration) {
+    }
+}
@@ -1,8 +1,7 @@
 package util;
 
 import java.io.*;
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.nio.file.Path;
 import java.util.*;
 
 import tasks.*;
@@ -12,33 +11,68 @@ import exceptions.ManagerSaveException;
  * Расширение InMemoryTaskManager, добавляет функционал сохранения состояния в CSV-файл.
  */
 public class FileBackedTaskManager extends InMemoryTaskManager {
+    // последняя строка файла: позиция аллокатора id, чтобы id удаленных задач не выдавались повторно
+    private static final String NEXT_ID_PREFIX = "nextId,";
+    private static final String ARCHIVE_SUFFIX = ".archive";
+
     private final File savedFile;
+    private boolean loading;
+    // наибольший id, встреченный при загрузке; аллокатор сдвигается за него один раз после чтения файла
+    private int loadedMaxId;
 
     public FileBackedTaskManager(File savedFile) {
+        this(savedFile, new BlockIdAllocator());
+    }
+
+    /**
+     * Архив завершенных задач по умолчанию - файл рядом с основным, с суффиксом .archive;
+     * он создается при первом архивировании.
+     */
+    public FileBackedTaskManager(File savedFile, IdAllocator idAllocator) {
+        this(savedFile, idAllocator, new FileTaskArchive(archiveFileOf(savedFile)));
+    }
+
+    public FileBackedTaskManager(File savedFile, IdAllocator idAllocator, TaskArchive archive) {
+        super(idAllocator, archive);
         this.savedFile = savedFile;
     }
 
+    private static Path archiveFileOf(File savedFile) {
+        return Path.of(savedFile.getPath() + ARCHIVE_SUFFIX);
+    }
+
     /**
-     * Метод сохранения данных в файл.
+     * Метод сохранения данных в файл. В транзакции файл записывается один раз при commit.
      */
     private void save() {
+        if (isInTransaction() || loading) {
+            return;
+        }
         try (FileWriter writer = new FileWriter(savedFile)) {
-            String header = "id,type,name,status,description,startTime,duration,epic\n";
-            writer.write(header);
+            writer.write(TaskCsv.HEADER + "\n");
             for (Task task : getAllTasks()) {
-                writer.write(toString(task) + "\n");
+                writer.write(TaskCsv.toLine(task) + "\n");
             }
             for (Epic epic : getAllEpics()) {
-                writer.write(toString(epic) + "\n");
+                writer.write(TaskCsv.toLine(epic) + "\n");
             }
             for (Subtask subtask : getAllSubtasks()) {
-                writer.write(toString(subtask) + "\n");
+                writer.write(TaskCsv.toLine(subtask) + "\n");
             }
+            writer.write(NEXT_ID_PREFIX + getIdAllocator().peekNextId() + "\n");
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка сохранения данных.");
         }
     }
 
+    /**
+     * Записывает текущее состояние в файл. Изменения сохраняются и так, метод нужен перед выгрузкой
+     * менеджера из памяти (см. BoardRegistry). В транзакции ничего не делает.
+     */
+    public void flush() {
+        save();
+    }
+
     /**
      * Метод загрузки данных из файла.
      *
@@ -46,10 +80,22 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
      * @return - новый экземпляр FileBackedTaskManager с загруженными данными
      */
     public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, new BlockIdAllocator());
+    }
+
+    /**
+     * Загрузка с указанным аллокатором id (например, общим для нескольких процессов).
+     * Аллокатор сдвигается за наибольший загруженный id и за сохраненную позицию одним вызовом reserve
+     * после чтения файла: у общего аллокатора (LeaseFileIdBlockSource) каждый вызов может писать на диск.
+     */
+    public static FileBackedTaskManager loadFromFile(File file, IdAllocator idAllocator) {
         if (file == null || !file.exists()) {
             throw new ManagerSaveException("Файл не существует или недоступен для чтения");
         }
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, idAllocator);
+        // файл не перезаписывается, пока не прочитан целиком: иначе строка nextId
+        // потеряется раньше, чем до нее дойдет чтение
+        manager.loading = true;
         List<String> lines = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             reader.readLine();   //пропуск строки header'a;
@@ -57,7 +103,11 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                 lines.add(reader.readLine());
             }
             for (String line : lines) {
-                Task task = fromString(line);
+                if (line.startsWith(NEXT_ID_PREFIX)) {
+                    restoreNextId(manager, line);
+                    continue;
+                }
+                Task task = TaskCsv.fromLine(line);
                 if (task != null) {
                     try {
                         switch (task.getType()) {
@@ -78,8 +128,12 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка при чтении файла: " + e.getMessage());
         }
+        if (manager.loadedMaxId > 0) {
+            manager.getIdAllocator().reserve(manager.loadedMaxId);
+        }
+        // связывание не должно попадать в историю просмотров
         for (Subtask subtask : manager.getAllSubtasks()) {
-            Epic epic = manager.getEpicById(subtask.getEpicId());
+            Epic epic = manager.findEpic(subtask.getEpicId());
             if (epic != null) {
                 manager.addSubtaskToEpic(epic, subtask);
             } else {
@@ -87,74 +141,28 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                         subtask.getEpicId(), subtask.getId());
             }
         }
+        manager.loading = false;
         return manager;
     }
 
-    /**
-     * Преобразование задачи в строку CSV
-     *
-     * @param task Задача для преобразования
-     * @return Строка в формате CSV
-     */
-    private String toString(Task task) {
-        StringBuilder result = new StringBuilder()
-                .append(task.getId()).append(",")
-                .append(task.getType()).append(",")
-                .append(task.getTitle()).append(",")
-                .append(task.getStatus()).append(",")
-                .append(task.getDescription()).append(",")
-                .append(task.getStartTime() != null ? task.getStartTime() : "").append(",")
-                .append(task.getDuration() != null ? task.getDuration().toMinutes() : "");
-
-        if (task.getType() == TaskType.SUBTASK) {
-            result.append(",").append(((Subtask) task).getEpicId());
+    // при загрузке id только запоминаются, аллокатор сдвигается после чтения всего файла
+    @Override
+    protected void updateMaxId(int existingId) {
+        if (loading) {
+            loadedMaxId = Math.max(loadedMaxId, existingId);
+            return;
         }
-
-        return result.toString();
+        super.updateMaxId(existingId);
     }
 
-    /**
-     * Преобразование строки CSV в объект задачи
-     *
-     * @param value - строка с данными задачи
-     * @return - объект задачи (Task, Epic или Subtask)
-     */
-    private static Task fromString(String value) {
-        if (value == null || value.isEmpty()) {
-            return null;
-        }
-        String[] data = value.split(",");
-        if (data.length < 7) {
-            throw new IllegalArgumentException("Некорректная строка " + value);
-        }
+    private static void restoreNextId(FileBackedTaskManager manager, String line) {
         try {
-            int id = Integer.parseInt(data[0]);
-            TaskType type = TaskType.valueOf(data[1]);
-            String title = data[2];
-            TaskStatus status = TaskStatus.valueOf(data[3]);
-            String description = data[4];
-
-            // Обработка времени начала и продолжительности
-            LocalDateTime startTime = data[5].isEmpty() ? null : LocalDateTime.parse(data[5]);
-            Duration duration = data[6].isEmpty() ? null : Duration.ofMinutes(Long.parseLong(data[6]));
-
-            switch (type) {
-                case TASK:
-                    return new Task(id, title, description, status, startTime, duration);
-                case EPIC:
-                    Epic epic = new Epic(id, title, description, status, startTime, duration);
-                    return epic;
-                case SUBTASK:
-                    if (data.length < 8 || data[7].isEmpty()) {
-                        throw new IllegalArgumentException("Для подзадачи не указан эпик: " + value);
-                    }
-                    int epicId = Integer.parseInt(data[7]);
-                    return new Subtask(id, title, description, status, epicId, startTime, duration);
-                default:
-                    throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+            int nextId = Integer.parseInt(line.substring(NEXT_ID_PREFIX.length()).trim());
+            if (nextId > 1) {
+                manager.updateMaxId(nextId - 1);
             }
-        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
-            throw new IllegalArgumentException("Ошибка парсинга строки: " + value, e);
+        } catch (NumberFormatException e) {
+            throw new ManagerSaveException("Ошибка при чтении файла: " + line);
         }
     }
 
@@ -181,9 +189,9 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
 
     @Override
     public Task updateTask(Task task) {
-        super.updateTask(task);
+        Task updatedTask = super.updateTask(task);
         save();
-        return task;
+        return updatedTask;
     }
 
     @Override
@@ -200,6 +208,45 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         return updatedEpic;
     }
 
+    @Override
+    public void commit() {
+        super.commit();
+        save();
+    }
+
+    // пакет сохраняется в файл один раз
+
+    @Override
+    public List<Task> createAll(Collection<? extends Task> items) {
+        List<Task> created = super.createAll(items);
+        save();
+        return created;
+    }
+
+    @Override
+    public List<Task> updateAll(Collection<? extends Task> items) {
+        List<Task> updated = super.updateAll(items);
+        save();
+        return updated;
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        super.deleteAll(ids);
+        save();
+    }
+
+    // архив записывается раньше основного файла: при сбое между записями задачи окажутся в обоих,
+    // но не потеряются
+    @Override
+    public int archiveCompleted() {
+        int archived = super.archiveCompleted();
+        if (archived > 0) {
+            save();
+        }
+        return archived;
+    }
+
     @Override
     public void deleteTaskById(int id) {
         super.deleteTaskById(id);
@@ -241,12 +288,4 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         super.clearAll();
         save();
     }
-
-    /**
-     * Метод для восстановления связи эпик-подзадача, используется при загрузке из файла.
-     */
-    private void addSubtaskToEpic(Epic epic, Subtask subtask) {
-        epic.getSubtaskId().add(subtask.getId());
-        updateEpicStatus(epic);
-    }
 }
@@ -0,0 +1,204 @@
+package util;
+
+import exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import tasks.Task;
+
+/**
+ * Архив в файле: строки CSV в формате файла менеджера, дописываемые в конец.
+ * В памяти хранится только смещение и длина строки каждого id, поэтому get читает одну строку
+ * с диска, а find проходит файл последовательно. Индекс строится при открытии одним проходом по файлу;
+ * недописанная последняя строка (сбой во время записи) отбрасывается. Файл создается при первой записи.
+ */
+public class FileTaskArchive implements TaskArchive {
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final IntObjectHashMap<Location> locations = new IntObjectHashMap<>();
+
+    public FileTaskArchive(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("Файл архива не может быть null");
+        }
+        this.file = file;
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = open()) {
+            long valid = scan(channel);
+            if (valid < channel.size()) {
+                channel.truncate(valid);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения архива " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Дописывает строки задач одним вызовом write и сбрасывает их на диск до возврата.
+     */
+    @Override
+    public synchronized void store(Collection<? extends Task> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<byte[]> lines = new ArrayList<>(items.size());
+        int total = 0;
+        for (Task item : items) {
+            byte[] line = (TaskCsv.toLine(item) + "\n").getBytes(StandardCharsets.UTF_8);
+            lines.add(line);
+            total += line.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        lines.forEach(buffer::put);
+        buffer.flip();
+        try (FileChannel channel = open()) {
+            long offset = channel.size();
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(true);
+            int index = 0;
+            for (Task item : items) {
+                int length = lines.get(index++).length - 1;
+                locations.put(item.getId(), new Location(offset, length));
+                offset += length + 1;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи архива " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized Task get(int id) {
+        Location location = locations.get(id);
+        if (location == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(location.length());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, location.offset() + buffer.position()) < 0) {
+                    throw new IOException("строка задачи " + id + " обрезана");
+                }
+            }
+            return TaskCsv.fromLine(new String(buffer.array(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения архива " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Запрос по id читает одну строку, остальные запросы - весь файл последовательно.
+     * Строки, замененные более поздней записью с тем же id, пропускаются.
+     */
+    @Override
+    public synchronized List<Task> find(TaskQuery query) {
+        List<Task> found = new ArrayList<>();
+        if (query.getId() != null) {
+            Task task = get(query.getId());
+            if (query.matches(task)) {
+                found.add(task);
+            }
+            return found;
+        }
+        if (locations.isEmpty()) {
+            return found;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            forEachLine(channel, (offset, line) -> {
+                Task task = TaskCsv.fromLine(new String(line, StandardCharsets.UTF_8));
+                Location location = locations.get(task.getId());
+                if (location != null && location.offset() == offset && query.matches(task)) {
+                    found.add(task);
+                }
+            });
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения архива " + file + ": " + e.getMessage());
+        }
+        found.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return found;
+    }
+
+    @Override
+    public synchronized boolean contains(int id) {
+        return locations.containsKey(id);
+    }
+
+    @Override
+    public synchronized int size() {
+        return locations.size();
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // строит индекс и возвращает длину части файла из целых строк
+    private long scan(FileChannel channel) throws IOException {
+        return forEachLine(channel, (offset, line) -> {
+            int id = Integer.parseInt(new String(line, 0, idLength(line), StandardCharsets.UTF_8));
+            locations.put(id, new Location(offset, line.length));
+        });
+    }
+
+    /**
+     * Передает каждую завершенную переводом строки строку файла вместе с ее смещением.
+     *
+     * @return смещение конца последней целой строки
+     */
+    private static long forEachLine(FileChannel channel, LineConsumer consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] pending = new byte[0];
+        long lineStart = 0;
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            position += read;
+            byte[] chunk = Arrays.copyOf(pending, pending.length + read);
+            buffer.flip();
+            buffer.get(chunk, pending.length, read);
+            buffer.clear();
+            int from = 0;
+            for (int i = 0; i < chunk.length; i++) {
+                if (chunk[i] == '\n') {
+                    consumer.accept(lineStart, Arrays.copyOfRange(chunk, from, i));
+                    lineStart += i - from + 1;
+                    from = i + 1;
+                }
+            }
+            pending = Arrays.copyOfRange(chunk, from, chunk.length);
+        }
+        return lineStart;
+    }
+
+    private static int idLength(byte[] line) {
+        int length = 0;
+        while (length < line.length && line[length] != ',') {
+            length++;
+        }
+        return length;
+    }
+
+    // положение строки задачи в файле, без перевода строки
+    private record Location(long offset, int length) {
+    }
+
+    @FunctionalInterface
+    private interface LineConsumer {
+        void accept(long offset, byte[] line) throws IOException;
+    }
+}
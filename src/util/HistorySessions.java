@@ -0,0 +1,146 @@
+package util;
+
+import tasks.Task;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Истории просмотров отдельных клиентов. У каждой сессии своя история не больше capacity задач
+ * и своя блокировка, поэтому просмотры разных клиентов не упорядочиваются друг с другом
+ * и не меняют общих структур: поиск сессии в ConcurrentHashMap не блокирует.
+ * Сессия, к которой не обращались дольше idleTimeout, считается истекшей: ее история сбрасывается,
+ * а сами истекшие сессии удаляются при обращениях к сессиям, не чаще раза за idleTimeout.
+ * Число сессий ограничено maxSessions (одновременное создание может превысить его на число потоков):
+ * пока лимит занят, новые сессии не создаются и их просмотры не записываются, поэтому
+ * произвольные id клиентов не расходуют память без предела.
+ */
+public class HistorySessions {
+    private final int capacity;
+    private final int maxSessions;
+    private final long idleNanos;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep;
+
+    public HistorySessions(int capacity, int maxSessions, Duration idleTimeout) {
+        this(capacity, maxSessions, idleTimeout, System::nanoTime);
+    }
+
+    HistorySessions(int capacity, int maxSessions, Duration idleTimeout, LongSupplier clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории сессии должен быть положительным");
+        }
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("Число сессий должно быть положительным");
+        }
+        if (idleTimeout == null || idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Время простоя сессии должно быть положительным");
+        }
+        this.capacity = capacity;
+        this.maxSessions = maxSessions;
+        this.idleNanos = idleTimeout.toNanos();
+        this.clock = clock;
+        this.lastSweep = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Добавляет просмотр задачи в историю сессии, создавая сессию при первом обращении.
+     *
+     * @return false, если сессии нет, а создать новую нельзя из-за лимита maxSessions
+     */
+    public boolean record(String sessionId, Task task) {
+        if (task == null) {
+            return true;
+        }
+        while (true) {
+            long now = clock.getAsLong();
+            sweep(now);
+            Session session = sessions.get(sessionId);
+            if (session == null) {
+                if (sessions.size() >= maxSessions) {
+                    return false;
+                }
+                session = sessions.computeIfAbsent(sessionId, id -> new Session(now));
+            }
+            // очистка могла удалить сессию между поиском и записью - тогда просмотр пишется в новую
+            if (session.record(task, now)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Просмотренные версии задач сессии, от старых к новым; пустой список для неизвестной или истекшей сессии.
+     */
+    public List<Task> getHistory(String sessionId) {
+        long now = clock.getAsLong();
+        sweep(now);
+        Session session = sessions.get(sessionId);
+        return session == null ? List.of() : session.getHistory(now);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    // удаляет истекшие сессии; выполняет один поток и не чаще раза за idleTimeout
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < idleNanos || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().isExpired(now)) {
+                sessions.computeIfPresent(entry.getKey(),
+                        (id, session) -> session.detachIfExpired(now) ? null : session);
+            }
+        }
+    }
+
+    private final class Session {
+        private HistoryManager history = new BoundedHistoryManager(capacity);
+        private volatile long lastAccess;
+        // удалена из реестра; записи в нее теряются, поэтому record ищет сессию заново
+        private boolean detached;
+
+        private Session(long now) {
+            this.lastAccess = now;
+        }
+
+        private boolean isExpired(long now) {
+            return now - lastAccess > idleNanos;
+        }
+
+        private synchronized boolean record(Task task, long now) {
+            if (detached) {
+                return false;
+            }
+            resetIfExpired(now);
+            history.add(task);
+            return true;
+        }
+
+        // проверка и отметка под блокировкой сессии, чтобы не удалить сессию сразу после записи в нее
+        private synchronized boolean detachIfExpired(long now) {
+            detached = isExpired(now);
+            return detached;
+        }
+
+        private synchronized List<Task> getHistory(long now) {
+            resetIfExpired(now);
+            return history.getHistory();
+        }
+
+        private void resetIfExpired(long now) {
+            if (isExpired(now)) {
+                history = new BoundedHistoryManager(capacity);
+            }
+            lastAccess = now;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package util;
+
+/**
+ * Источник id для задач, подзадач и эпиков.
+ */
+public interface IdAllocator {
+    // Следующий свободный id
+    int nextId();
+
+    // Сообщает об уже занятом id (например, загруженном из файла): дальше выдаются только большие id
+    void reserve(int existingId);
+
+    // Id, который будет выдан следующим (сам id при этом не выдается); нужен для сохранения позиции
+    int peekNextId();
+}
@@ -0,0 +1,16 @@
+package util;
+
+/**
+ * Хранилище границы выданных id, из которого BlockIdAllocator забирает id блоками.
+ */
+public interface IdBlockSource {
+    /**
+     * Забирает блок из size id.
+     *
+     * @return первый id блока; блок - [результат, результат + size)
+     */
+    long claim(int size);
+
+    // Сдвигает границу так, чтобы следующий блок начинался не раньше next
+    void reserve(long next);
+}
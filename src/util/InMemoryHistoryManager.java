@@ -46,8 +46,8 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
         int id = task.getId();
         remove(id);
-        Task copyOfTask = Task.copyTask(task);
-        Node newNode = new Node(copyOfTask);
+        // задачи менеджера неизменяемы, поэтому хранится сама просмотренная версия
+        Node newNode = new Node(task);
         linkLast(newNode);
         historyNodeMap.put(id, newNode);
     }
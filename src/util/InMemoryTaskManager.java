@@ -3,42 +3,111 @@ package util;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+import collections.PersistentIntSet;
 import exceptions.TimeConflictException;
 import tasks.Epic;
+import tasks.Recurrence;
 import tasks.Subtask;
 import tasks.Task;
 import tasks.TaskStatus;
+import tasks.TaskType;
 
 public class InMemoryTaskManager implements TaskManager {
-    private final HashMap<Integer, Task> tasks = new HashMap<>();
-    private final HashMap<Integer, Subtask> subtasks = new HashMap<>();
-    private final HashMap<Integer, Epic> epics = new HashMap<>();
-    private int newId = 0;
-    private final HistoryManager historyManager = Managers.getDefaultHistory();
+    private final IntObjectHashMap<Task> tasks = new IntObjectHashMap<>();
+    private final IntObjectHashMap<Subtask> subtasks = new IntObjectHashMap<>();
+    private final IntObjectHashMap<Epic> epics = new IntObjectHashMap<>();
+    private final IdAllocator idAllocator;
+    private final HistoryManager historyManager;
     protected final TreeSet<Task> prioritizedTasks = new TreeSet<>(
             Comparator.comparing(
                     Task::getStartTime,
                     Comparator.nullsLast(Comparator.naturalOrder())
-            )
+            ).thenComparingInt(Task::getId)
     );
+    // элементы prioritizedTasks по id, чтобы удалять их без полного обхода
+    private final IntObjectHashMap<Task> prioritizedById = new IntObjectHashMap<>();
+    private final IntervalIndex intervalIndex = new IntervalIndex();
+    private final TextIndex textIndex = new TextIndex();
+    // повторяющиеся задачи: одна запись на серию, вхождения вычисляются по запросу
+    private final IntObjectHashMap<Task> recurringTasks = new IntObjectHashMap<>();
+    // отступ свободного окна от занятых интервалов: их границы тоже считаются занятыми
+    private static final Duration SLOT_GAP = Duration.ofMinutes(1);
+    // статусы и время подзадач по каждому эпику, чтобы не пересчитывать их заново
+    private final IntObjectHashMap<EpicAggregate> epicAggregates = new IntObjectHashMap<>();
+    // вторичный индекс: статус -> id задач, подзадач и эпиков с этим статусом
+    private final EnumMap<TaskStatus, IntHashSet> idsByStatus = new EnumMap<>(TaskStatus.class);
+    private long prioritizedVersion = 0;
+    // источник версий сущностей: общий счетчик, поэтому версия не повторяется даже для пересозданного id
+    private long versionClock = 0;
+    // неизменяемые снимки списков в порядке id, пересобираются только после изменения состава
+    private final CachedSnapshot<Task> tasksSnapshot =
+            new CachedSnapshot<>(tasks::modCount, () -> sortedById(tasks.values()));
+    private final CachedSnapshot<Subtask> subtasksSnapshot =
+            new CachedSnapshot<>(subtasks::modCount, () -> sortedById(subtasks.values()));
+    private final CachedSnapshot<Epic> epicsSnapshot =
+            new CachedSnapshot<>(epics::modCount, () -> sortedById(epics.values()));
+    private final CachedSnapshot<Task> prioritizedSnapshot =
+            new CachedSnapshot<>(() -> prioritizedVersion, () -> new ArrayList<>(prioritizedTasks));
+    // журнал открытой транзакции, null вне транзакции
+    private UndoLog undoLog;
+    private final ChangeNotifier notifier = new ChangeNotifier();
+    // холодное хранилище завершенных задач, null - архив не настроен
+    private final TaskArchive archive;
+
+    public InMemoryTaskManager() {
+        this(new BlockIdAllocator());
+    }
+
+    public InMemoryTaskManager(IdAllocator idAllocator) {
+        this(idAllocator, null);
+    }
+
+    public InMemoryTaskManager(IdAllocator idAllocator, TaskArchive archive) {
+        this(idAllocator, archive, Managers.getDefaultHistory());
+    }
+
+    /**
+     * @param historyManager история просмотров; Managers.getDisabledHistory(), если просмотры учитывает
+     *                       внешний менеджер
+     */
+    public InMemoryTaskManager(IdAllocator idAllocator, TaskArchive archive, HistoryManager historyManager) {
+        if (idAllocator == null) {
+            throw new IllegalArgumentException("IdAllocator cannot be null");
+        }
+        if (historyManager == null) {
+            throw new IllegalArgumentException("HistoryManager cannot be null");
+        }
+        this.idAllocator = idAllocator;
+        this.archive = archive;
+        this.historyManager = historyManager;
+        for (TaskStatus status : TaskStatus.values()) {
+            idsByStatus.put(status, new IntHashSet());
+        }
+    }
 
     private int generateID() {
-        return ++newId;
+        return idAllocator.nextId();
     }
 
     protected void updateMaxId(int existingId) {
-        if (existingId >= newId) {
-            newId = existingId + 1;
-        }
+        idAllocator.reserve(existingId);
+    }
+
+    protected IdAllocator getIdAllocator() {
+        return idAllocator;
     }
 
     /**
@@ -46,75 +115,132 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public Task createTask(Task task) {
+        checkRecurrence(task);
         if (isTasksOverlap(task)) {
             throw new TimeConflictException("Задача пересекается по времени с существующей");
         }
+        return insertTask(task);
+    }
+
+    // сохраняется замороженная копия; переданный черновик не замораживается и только получает id, как раньше
+    private Task insertTask(Task draft) {
+        Task task = draft.copy();
         if (task.getId() != 0) {
+            remember(task.getId());
+            touch(task);
             tasks.put(task.getId(), task);
+            indexFields(task);
             updateMaxId(task.getId());
+            prioritizedCheck(task);
+            publishCreated(task);
             return task;
         }
-        task.setId(generateID());
+        assignId(draft, task);
+        remember(task.getId());
+        touch(task);
         tasks.put(task.getId(), task);
+        indexFields(task);
         prioritizedCheck(task);
+        publishCreated(task);
         return task;
     }
 
     @Override
     public Subtask createSubtask(Subtask subtask) {
+        checkRecurrence(subtask);
         if (isTasksOverlap(subtask)) {
             throw new TimeConflictException("Подзадача пересекается по времени с существующей");
         }
+        return insertSubtask(subtask);
+    }
+
+    private Subtask insertSubtask(Subtask draft) {
+        Subtask subtask = draft.copy();
         if (subtask.getId() != 0) {
+            remember(subtask.getId());
+            touch(subtask);
             subtasks.put(subtask.getId(), subtask);
+            indexFields(subtask);
             updateMaxId(subtask.getId());
+            prioritizedCheck(subtask);
+            publishCreated(subtask);
             return subtask;
         }
-        subtask.setId(generateID());
+        assignId(draft, subtask);
+        remember(subtask.getId());
+        touch(subtask);
         subtasks.put(subtask.getId(), subtask);
+        indexFields(subtask);
+        prioritizedCheck(subtask);
+        publishCreated(subtask);
         //добавить подзадачу в список эпика и обновить его статус
         Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) {
-            epic.getSubtaskId().add(subtask.getId());
-            updateEpicStatus(epic);
-            setEpicStartEndTimeAndDuration(epic);
+            addSubtaskToEpic(epic, subtask);
         }
-        prioritizedCheck(subtask);
         return subtask;
     }
 
     @Override
     public Epic createEpic(Epic epic) {
+        return insertEpic(epic);
+    }
+
+    private Epic insertEpic(Epic draft) {
+        Epic epic = draft.copy();
         if (epic.getSubtaskId() == null) {
-            epic.setSubtaskId(new ArrayList<>());
+            epic.setSubtaskId(PersistentIntSet.empty());
         }
         if (epic.getId() != 0) {
+            remember(epic.getId());
+            touch(epic);
             epics.put(epic.getId(), epic);
+            epicAggregates.put(epic.getId(), new EpicAggregate());
+            indexFields(epic);
             updateMaxId(epic.getId());
+            publishCreated(epic);
             return epic;
         }
-        setEpicStartEndTimeAndDuration(epic);
-        epic.setId(generateID());
+        assignId(draft, epic);
+        remember(epic.getId());
+        EpicAggregate aggregate = new EpicAggregate();
+        setEpicStartEndTimeAndDuration(epic, aggregate);
+        touch(epic);
         epics.put(epic.getId(), epic);
+        epicAggregates.put(epic.getId(), aggregate);
+        indexFields(epic);
         prioritizedCheck(epic);
+        publishCreated(epic);
         return epic;
     }
 
+    private void assignId(Task draft, Task stored) {
+        stored.setId(generateID());
+        if (!draft.isFrozen()) {
+            draft.setId(stored.getId());
+        }
+    }
+
     //Получение списков задач
 
     @Override
-    public ArrayList<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values());
+    public List<Task> getAllTasks() {
+        return tasksSnapshot.get();
     }
 
     @Override
-    public ArrayList<Subtask> getAllSubtasks() {
-        return new ArrayList<>(subtasks.values());
+    public List<Subtask> getAllSubtasks() {
+        return subtasksSnapshot.get();
     }
 
     @Override
-    public ArrayList<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values());
+    public List<Epic> getAllEpics() {
+        return epicsSnapshot.get();
+    }
+
+    private static <T extends Task> List<T> sortedById(List<T> items) {
+        items.sort(Comparator.comparingInt(Task::getId));
+        return items;
     }
 
     @Override
@@ -125,140 +251,175 @@ public class InMemoryTaskManager implements TaskManager {
         }
 
         return epic.getSubtaskId().stream()
-                .map(subtasks::get)
+                .sorted()
+                .mapToObj(subtasks::get)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
-    // Расчет статуса эпика
+    // Расчет статуса эпика: хранимая версия заменяется пересчитанной, какую бы версию ни передали.
+    // Статус эпика, которого нет в менеджере, записывается только в изменяемый черновик
     @Override
     public void updateEpicStatus(Epic epic) {
-        ArrayList<TaskStatus> statuses = new ArrayList<>();
-        boolean allDone = true;
-        boolean allNew = true;
-
-        for (Integer subtaskId : epic.getSubtaskId()) {
-            Subtask subtask = subtasks.get(subtaskId);
-            if (subtask != null) {
-                TaskStatus status = subtask.getStatus();
-
-                if (status != TaskStatus.DONE) {
-                    allDone = false;
-                }
-                if (status != TaskStatus.NEW) {
-                    allNew = false;
-                }
-            }
-        }
-
-        if (allDone) {
-            epic.setStatus(TaskStatus.DONE);
-        } else if (allNew) {
-            epic.setStatus(TaskStatus.NEW);
-        } else {
-            epic.setStatus(TaskStatus.IN_PROGRESS);
+        Epic current = epics.get(epic.getId());
+        if (current != null) {
+            recalculateEpic(current, next -> {
+            });
+        } else if (!epic.isFrozen()) {
+            epic.setStatus(aggregateOf(epic).getStatus());
         }
     }
 
     //Расчет времени эпика
-    private void setEpicStartEndTimeAndDuration(Epic epic) {
-        if (getSubtasksOfEpic(epic.getId()) == null || getSubtasksOfEpic(epic.getId()).isEmpty()) {
-            epic.setStartTime(null);
-            epic.setDuration(null);
-            epic.setEndTime(null);
-            return;
+    private static void setEpicStartEndTimeAndDuration(Epic epic, EpicAggregate aggregate) {
+        epic.setStartTime(aggregate.getStartTime());
+        epic.setEndTime(aggregate.getEndTime());
+        epic.setDuration(aggregate.getDuration());
+    }
+
+    /**
+     * Показатели эпика. Для эпика, которого нет в менеджере, собираются по его списку подзадач.
+     */
+    private EpicAggregate aggregateOf(Epic epic) {
+        EpicAggregate aggregate = epicAggregates.get(epic.getId());
+        if (aggregate != null && epics.get(epic.getId()) == epic) {
+            return aggregate;
         }
+        EpicAggregate built = new EpicAggregate();
+        epic.getSubtaskId().forEach(subtaskId -> {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                built.add(subtask);
+            }
+        });
+        return built;
+    }
 
-        // Определение самого раннего startTime
-        LocalDateTime earliestStart = getSubtasksOfEpic(epic.getId()).stream() // Создание потока из списка подзадач
-                .map(Subtask::getStartTime) // Для каждой подзадачи получение ее startTime (преобразование в startTime)
-                .filter(Objects::nonNull) // Фильтрация null значений
-                .min(LocalDateTime::compareTo) // Поиск самого раннего времени
-                .orElse(null); // Если все startTime = null, возвращается null
+    /**
+     * Связывает подзадачу с эпиком и пересчитывает статус и время эпика.
+     */
+    protected void addSubtaskToEpic(Epic epic, Subtask subtask) {
+        epicAggregates.get(epic.getId()).add(subtask);
+        recalculateEpic(epic, next -> next.addSubtask(subtask.getId()));
+    }
 
-        // Определение самого позднего endTime
-        LocalDateTime latestEnd = getSubtasksOfEpic(epic.getId()).stream() // Создание потока из списка подзадач
-                .map(Subtask::getEndTime) // Для каждой подзадачи вычисление ее endTime (преобразование в endTime)
-                .filter(Objects::nonNull) // Фильтрация null значений
-                .max(LocalDateTime::compareTo) // Поиск самого позднего времени
-                .orElse(null); // Если все endTime = null, возвращается null
+    private void removeSubtaskFromEpic(Epic epic, int subtaskId) {
+        epicAggregates.get(epic.getId()).remove(subtaskId);
+        recalculateEpic(epic, next -> next.removeSubtask(subtaskId));
+    }
 
-        // Расчет суммарной длительности всех подзадач
-        Duration totalDuration = getSubtasksOfEpic(epic.getId()).stream()// Создание потока из списка подзадач
-                .map(Subtask::getDuration)// Для каждой подзадачи вычисление ее duration
-                .filter(Objects::nonNull)// Фильтрация null значений
-                .reduce(Duration.ZERO, Duration::plus);// Суммируем duration
+    /**
+     * Заменяет хранимую версию эпика новой: change меняет изменяемую копию, затем статус и время
+     * копии пересчитываются по показателям эпика. Прежняя версия не меняется и остается действительной
+     * для тех, кто ее получил. Список подзадач неизменяем и разделяется версиями: изменение состава
+     * стоит O(log k) и не копирует список.
+     */
+    private Epic replaceEpic(Epic current, Consumer<Epic> change) {
+        remember(current.getId());
+        Epic next = current.copy();
+        change.accept(next);
+        EpicAggregate aggregate = epicAggregates.get(next.getId());
+        next.setStatus(aggregate.getStatus());
+        setEpicStartEndTimeAndDuration(next, aggregate);
+        touch(next);
+        epics.put(next.getId(), next);
+        indexFields(next);
+        return next;
+    }
 
-        epic.setStartTime(earliestStart);
-        epic.setEndTime(latestEnd);
-        epic.setDuration(totalDuration.isZero() ? null : totalDuration); //  null если суммарная длительность 0
+    // Пересчет статуса и времени эпика с событием EPIC_RECALCULATED
+    private void recalculateEpic(Epic current, Consumer<Epic> change) {
+        Epic next = replaceEpic(current, change);
+        publish(TaskEvent.Type.EPIC_RECALCULATED, current, next);
     }
 
     // Обновление задач
     @Override
     public Task updateTask(Task task) {
+        checkRecurrence(task);
         if (isTasksOverlap(task)) {
             throw new TimeConflictException("Задача пересекается по времени с существующей");
         }
         if (task == null || !tasks.containsKey(task.getId()))
             return task;
+        return applyTaskUpdate(task);
+    }
+
+    // новая версия задачи заменяет прежнюю во всех структурах; прежняя версия не меняется
+    private Task applyTaskUpdate(Task task) {
+        remember(task.getId());
         Task current = tasks.get(task.getId());
-        current.setTitle(task.getTitle());
-        current.setDescription(task.getDescription());
-        current.setStatus(task.getStatus());
-        tasks.put(task.getId(), current);
-        return task;
+        Task next = current.copy();
+        next.setTitle(task.getTitle());
+        next.setDescription(task.getDescription());
+        next.setStatus(task.getStatus());
+        next.setStartTime(task.getStartTime());
+        next.setDuration(task.getDuration());
+        next.setRecurrence(task.getRecurrence());
+        touch(next);
+        tasks.put(next.getId(), next);
+        indexFields(next);
+        reindex(next);
+        publish(TaskEvent.Type.UPDATED, current, next);
+        return next;
     }
 
     @Override
     public Subtask updateSubtask(Subtask subtask) {
-        Subtask old = subtasks.get(subtask.getId());
-        if (old != null && !old.equals(subtask)) {
-            if (isTasksOverlap(subtask)) { // Проверка только если задача реально изменилась
-                throw new TimeConflictException("Подзадача пересекается по времени с существующей");
-            }
-        }
-
         if (subtask == null) {
             throw new IllegalArgumentException("Subtask cannot be null");
         }
+        checkRecurrence(subtask);
+
+        if (isTasksOverlap(subtask)) {
+            throw new TimeConflictException("Подзадача пересекается по времени с существующей");
+        }
 
         if (!subtasks.containsKey(subtask.getId())) {
             throw new IllegalArgumentException("Subtask with id " + subtask.getId() + " not found");
         }
+        return applySubtaskUpdate(subtask);
+    }
 
+    private Subtask applySubtaskUpdate(Subtask subtask) {
+        remember(subtask.getId());
         Subtask current = subtasks.get(subtask.getId());
         int oldEpicId = current.getEpicId();
         int newEpicId = subtask.getEpicId();
 
-        if (oldEpicId != newEpicId) {
+        Subtask next = current.copy();
+        next.setTitle(subtask.getTitle());
+        next.setDescription(subtask.getDescription());
+        next.setStatus(subtask.getStatus());
+        next.setEpicId(newEpicId);
+        next.setStartTime(subtask.getStartTime());
+        next.setDuration(subtask.getDuration());
+        touch(next);
+        subtasks.put(next.getId(), next);
+        indexFields(next);
+        reindex(next);
+        publish(TaskEvent.Type.UPDATED, current, next);
 
+        if (oldEpicId != newEpicId) {
             Epic oldEpic = epics.get(oldEpicId);
             if (oldEpic != null) {
-                oldEpic.getSubtaskId().remove((Integer) subtask.getId());
-                updateEpicStatus(oldEpic);
+                removeSubtaskFromEpic(oldEpic, next.getId());
             }
 
             Epic newEpic = epics.get(newEpicId);
             if (newEpic != null) {
-                newEpic.getSubtaskId().add(subtask.getId());
-                updateEpicStatus(newEpic);
+                addSubtaskToEpic(newEpic, next);
+            }
+        } else {
+            Epic epic = epics.get(newEpicId);
+            EpicAggregate aggregate = epicAggregates.get(newEpicId);
+            if (epic != null && aggregate != null && aggregate.contains(next.getId())) {
+                aggregate.add(next);
+                recalculateEpic(epic, unchanged -> {
+                });
             }
-
-        }
-
-        current.setTitle(subtask.getTitle());
-        current.setDescription(subtask.getDescription());
-        current.setStatus(subtask.getStatus());
-        current.setEpicId(newEpicId);
-        subtasks.put(subtask.getId(), current);
-
-        Epic epic = epics.get(newEpicId);
-        if (epic != null) {
-            updateEpicStatus(epic);
-            setEpicStartEndTimeAndDuration(epic);
         }
-        return current;
+        return next;
     }
 
     @Override
@@ -270,86 +431,131 @@ public class InMemoryTaskManager implements TaskManager {
 
         // Инициализация списка подзадач, если он null
         if (epic.getSubtaskId() == null) {
-            epic.setSubtaskId(new ArrayList<>());
+            epic.setSubtaskId(PersistentIntSet.empty());
         }
 
         // Проверка существования эпика
         if (!epics.containsKey(epic.getId())) {
             throw new IllegalArgumentException("Epic with id " + epic.getId() + " not found");
         }
+        return applyEpicUpdate(epic);
+    }
 
+    private Epic applyEpicUpdate(Epic epic) {
         Epic current = epics.get(epic.getId());
-        current.setTitle(epic.getTitle());
-        current.setDescription(epic.getDescription());
-        epics.put(epic.getId(), current);
-
-        updateEpicStatus(current);
-        return current;
+        Epic next = replaceEpic(current, draft -> {
+            draft.setTitle(epic.getTitle());
+            draft.setDescription(epic.getDescription());
+        });
+        publish(TaskEvent.Type.UPDATED, current, next);
+        return next;
     }
 
     //удаление задач
 
     @Override
     public void clearAll() {
+        if (undoLog != null) {
+            rememberAll(tasks, subtasks, epics);
+        }
+        publishDeleted(tasks, subtasks, epics);
         prioritizedTasks.clear();
-        Stream.of(tasks.keySet(), epics.keySet(), subtasks.keySet())
-                .flatMap(Set::stream)
-                .forEach(historyManager::remove);
+        prioritizedById.clear();
+        prioritizedVersion++;
+        intervalIndex.clear();
+        recurringTasks.clear();
+        idsByStatus.values().forEach(IntHashSet::clear);
+        textIndex.clear();
+        removeAllFromHistory(tasks, epics, subtasks);
         tasks.clear();
         subtasks.clear();
         epics.clear();
+        epicAggregates.clear();
     }
 
     @Override
     public void clearAllTasks() {
-        tasks.keySet().forEach(id -> prioritizedTasks.removeIf(t -> t.getId() == id));
-        tasks.keySet().forEach(historyManager::remove);
+        if (undoLog != null) {
+            rememberAll(tasks);
+        }
+        publishDeleted(tasks);
+        tasks.forEachKey(this::removeFromPrioritized);
+        tasks.forEachKey(this::unindexFields);
+        tasks.forEachKey(historyManager::remove);
         tasks.clear();
     }
 
     @Override
     public void clearAllEpics() {
-        subtasks.keySet().forEach(id -> prioritizedTasks.removeIf(t -> t.getId() == id));
-        Stream.of(tasks.keySet(), epics.keySet(), subtasks.keySet())
-                .flatMap(Set::stream)
-                .forEach(historyManager::remove);
+        if (undoLog != null) {
+            rememberAll(subtasks, epics);
+        }
+        publishDeleted(subtasks, epics);
+        subtasks.forEachKey(this::removeFromPrioritized);
+        subtasks.forEachKey(this::unindexFields);
+        epics.forEachKey(this::unindexFields);
+        removeAllFromHistory(tasks, epics, subtasks);
         epics.clear();
+        epicAggregates.clear();
         subtasks.clear();
     }
 
     @Override
     public void deleteAllSubtasks() {
-        subtasks.keySet().forEach(id -> prioritizedTasks.removeIf(t -> t.getId() == id));
+        if (undoLog != null) {
+            rememberAll(subtasks, epics);
+        }
+        publishDeleted(subtasks);
+        subtasks.forEachKey(this::removeFromPrioritized);
+        subtasks.forEachKey(this::unindexFields);
         // Удаление подзадач из historyManager и очистка мапы
-        subtasks.keySet().forEach(historyManager::remove);
+        subtasks.forEachKey(historyManager::remove);
         subtasks.clear();
 
         // Очистка подзадач эпиков и обновление статусов
-        epics.values().stream()
-                .peek(epic -> epic.getSubtaskId().clear())
-                .peek(this::updateEpicStatus)
-                .forEach(this::setEpicStartEndTimeAndDuration);
+        epicAggregates.values().forEach(EpicAggregate::clear);
+        for (Epic epic : epics.values()) {
+            recalculateEpic(epic, next -> next.setSubtaskId(PersistentIntSet.empty()));
+        }
+    }
+
+    private void removeAllFromHistory(IntObjectHashMap<?>... storages) {
+        for (IntObjectHashMap<?> storage : storages) {
+            storage.forEachKey(historyManager::remove);
+        }
     }
 
     @Override
     public void deleteTaskById(int id) {
+        removeTask(id, TaskEvent.Type.DELETED);
+    }
+
+    private void removeTask(int id, TaskEvent.Type event) {
+        remember(id);
         Task task = tasks.remove(id);
         if (task != null) {
-            prioritizedTasks.removeIf(t -> t.getId() == id);
+            removeFromPrioritized(id);
+            unindexFields(id);
+            publishRemoved(event, task);
         }
         historyManager.remove(id);
     }
 
     @Override
     public void deleteSubtaskById(int id) {
+        removeSubtask(id);
+    }
+
+    private void removeSubtask(int id) {
+        remember(id);
         Subtask subtask = subtasks.remove(id);
         if (subtask != null) {
-            prioritizedTasks.removeIf(t -> t.getId() == id);
+            removeFromPrioritized(id);
+            unindexFields(id);
+            publishDeleted(subtask);
             Epic epic = epics.get(subtask.getEpicId());
             if (epic != null) {
-                epic.getSubtaskId().remove(Integer.valueOf(id));
-                updateEpicStatus(epic);
-                setEpicStartEndTimeAndDuration(epic);
+                removeSubtaskFromEpic(epic, id);
             }
         }
         historyManager.remove(id);
@@ -357,18 +563,376 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void deleteEpicById(int id) {
+        removeEpic(id, TaskEvent.Type.DELETED);
+    }
+
+    private void removeEpic(int id, TaskEvent.Type event) {
+        remember(id);
         Epic epic = epics.remove(id);
         if (epic == null) return;
+        epicAggregates.remove(id);
+        unindexFields(id);
+        publishRemoved(event, epic);
 
         epic.getSubtaskId().forEach(subtaskId -> {
-            prioritizedTasks.removeIf(t -> t.getId() == subtaskId);
+            remember(subtaskId);
+            removeFromPrioritized(subtaskId);
+            unindexFields(subtaskId);
             historyManager.remove(subtaskId);
-            subtasks.remove(subtaskId);
+            Subtask subtask = subtasks.remove(subtaskId);
+            if (subtask != null) {
+                publishRemoved(event, subtask);
+            }
         });
 
         historyManager.remove(id);
     }
 
+    /**
+     * Переносит в архив завершенную работу: задачи со статусом DONE и эпики, у которых есть подзадачи
+     * и все они DONE, вместе с подзадачами. Кандидаты берутся из индекса статусов.
+     * Сначала записи сохраняются в архив, и только потом сущности убираются из хранилищ, индексов
+     * и истории (событие ARCHIVED), поэтому ошибка записи ничего не теряет.
+     * В транзакции не поддерживается: запись в архив нельзя откатить.
+     *
+     * @return число перенесенных сущностей
+     */
+    @Override
+    public int archiveCompleted() {
+        TaskArchive archive = requireArchive();
+        if (undoLog != null) {
+            throw new IllegalStateException("Архивирование в открытой транзакции не поддерживается");
+        }
+        List<Task> completed = new ArrayList<>();
+        List<Task> archivedTasks = new ArrayList<>();
+        List<Epic> archivedEpics = new ArrayList<>();
+        for (int id : idsByStatus.get(TaskStatus.DONE).toArray()) {
+            Task task = tasks.get(id);
+            Epic epic = epics.get(id);
+            if (task != null) {
+                archivedTasks.add(task);
+                completed.add(task);
+            } else if (epic != null && !epic.getSubtaskId().isEmpty()) {
+                // статус эпика DONE, только если DONE все его подзадачи
+                archivedEpics.add(epic);
+                completed.add(epic);
+                epic.getSubtaskId().forEach(subtaskId -> completed.add(subtasks.get(subtaskId)));
+            }
+        }
+        if (completed.isEmpty()) {
+            return 0;
+        }
+        completed.sort(Comparator.comparingInt(Task::getId));
+        archive.store(completed);
+        for (Task task : archivedTasks) {
+            removeTask(task.getId(), TaskEvent.Type.ARCHIVED);
+        }
+        for (Epic epic : archivedEpics) {
+            removeEpic(epic.getId(), TaskEvent.Type.ARCHIVED);
+        }
+        return completed.size();
+    }
+
+    // Чтение из архива не записывается в историю просмотров
+    @Override
+    public Task getArchived(int id) {
+        return requireArchive().get(id);
+    }
+
+    @Override
+    public List<Task> findArchived(TaskQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Запрос не может быть null");
+        }
+        return requireArchive().find(query);
+    }
+
+    private TaskArchive requireArchive() {
+        if (archive == null) {
+            throw new IllegalStateException("Архив не настроен");
+        }
+        return archive;
+    }
+
+    /**
+     * Пакетное создание. Пересечения проверяются один раз для всего пакета: между собой - проходом
+     * по отсортированным интервалам, с существующими задачами - по индексу интервалов.
+     * При конфликте не создается ничего. Эпики создаются первыми, затем задачи и подзадачи.
+     */
+    @Override
+    public List<Task> createAll(Collection<? extends Task> items) {
+        List<Task> batch = checkBatch(items);
+        validateBatchTime(batch);
+        List<Task> created = new ArrayList<>(batch.size());
+        for (Task item : batch) {
+            if (item instanceof Epic epic) {
+                created.add(insertEpic(epic));
+            }
+        }
+        for (Task item : batch) {
+            if (item instanceof Subtask subtask) {
+                created.add(insertSubtask(subtask));
+            } else if (!(item instanceof Epic)) {
+                created.add(insertTask(item));
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Пакетное обновление. Все элементы пакета должны существовать, иначе IllegalArgumentException;
+     * проверка пересечений учитывает новое время всех элементов пакета сразу.
+     * При любой ошибке ничего не изменяется.
+     */
+    @Override
+    public List<Task> updateAll(Collection<? extends Task> items) {
+        List<Task> batch = checkBatch(items);
+        for (Task item : batch) {
+            Task current = findById(item.getId());
+            if (current == null || current.getType() != item.getType()) {
+                throw new IllegalArgumentException(item.getType() + " with id " + item.getId() + " not found");
+            }
+        }
+        validateBatchTime(batch);
+        List<Task> updated = new ArrayList<>(batch.size());
+        for (Task item : batch) {
+            switch (item.getType()) {
+                case EPIC -> updated.add(applyEpicUpdate((Epic) item));
+                case SUBTASK -> updated.add(applySubtaskUpdate((Subtask) item));
+                default -> updated.add(applyTaskUpdate(item));
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Пакетное удаление задач, подзадач и эпиков по id. Неизвестные id пропускаются.
+     */
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        for (int id : ids) {
+            if (tasks.containsKey(id)) {
+                removeTask(id, TaskEvent.Type.DELETED);
+            } else if (subtasks.containsKey(id)) {
+                removeSubtask(id);
+            } else {
+                removeEpic(id, TaskEvent.Type.DELETED);
+            }
+        }
+    }
+
+    private static List<Task> checkBatch(Collection<? extends Task> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Пакет задач не может быть null");
+        }
+        List<Task> batch = new ArrayList<>(items);
+        for (Task item : batch) {
+            if (item == null) {
+                throw new IllegalArgumentException("Пакет не может содержать null");
+            }
+            checkRecurrence(item);
+        }
+        return batch;
+    }
+
+    /**
+     * Проверка пересечений пакета за O(k log k + k log n): интервалы пакета сортируются один раз
+     * и сравниваются с наибольшим концом предыдущих, затем каждый проверяется по индексу,
+     * не учитывая прежние интервалы самих элементов пакета.
+     */
+    private void validateBatchTime(List<Task> batch) {
+        List<Task> timed = new ArrayList<>();
+        IntHashSet batchIds = new IntHashSet();
+        List<Task> recurring = new ArrayList<>();
+        for (Task item : batch) {
+            // прежний интервал освобождается, даже если новое время не задано
+            batchIds.add(item.getId());
+            // время эпика вычисляется по подзадачам
+            if (!(item instanceof Epic) && item.getStartTime() != null && item.getEndTime() != null) {
+                (item.isRecurring() ? recurring : timed).add(item);
+            }
+        }
+        checkBatchSeries(recurring, timed);
+        timed.sort(Comparator.comparing(Task::getStartTime));
+        LocalDateTime maxEnd = null;
+        for (Task item : timed) {
+            if (maxEnd != null && !item.getStartTime().isAfter(maxEnd)) {
+                throw new TimeConflictException("Задачи пакета пересекаются по времени между собой");
+            }
+            if (maxEnd == null || item.getEndTime().isAfter(maxEnd)) {
+                maxEnd = item.getEndTime();
+            }
+        }
+        IntPredicate excluded = batchIds::contains;
+        timed.addAll(recurring);
+        for (Task item : timed) {
+            if (hasTimeConflict(item, excluded)) {
+                throw new TimeConflictException("Задача пакета пересекается по времени с существующей");
+            }
+        }
+    }
+
+    /**
+     * Открывает транзакцию: до commit или rollback каждая изменяемая сущность
+     * один раз записывается в журнал отката. Вложенные транзакции не поддерживаются.
+     */
+    @Override
+    public void begin() {
+        if (undoLog != null) {
+            throw new IllegalStateException("Транзакция уже открыта");
+        }
+        undoLog = new UndoLog();
+        notifier.hold();
+    }
+
+    @Override
+    public void commit() {
+        if (undoLog == null) {
+            throw new IllegalStateException("Нет открытой транзакции");
+        }
+        undoLog = null;
+        notifier.release();
+    }
+
+    /**
+     * Возвращает измененные в транзакции сущности в состояние до begin: сначала они убираются
+     * из хранилищ и индексов, затем прежние версии вставляются заново, а показатели затронутых
+     * эпиков пересобираются по их подзадачам. История просмотров не восстанавливается,
+     * выданные в транзакции id повторно не используются (аллокатор может быть общим для нескольких менеджеров).
+     */
+    @Override
+    public void rollback() {
+        if (undoLog == null) {
+            throw new IllegalStateException("Нет открытой транзакции");
+        }
+        UndoLog log = undoLog;
+        undoLog = null;
+        notifier.discard();
+        int[] ids = log.ids();
+        for (int id : ids) {
+            detach(id);
+        }
+        List<Epic> restoredEpics = new ArrayList<>();
+        for (int id : ids) {
+            Task restored = log.restore(id);
+            if (restored instanceof Epic epic) {
+                epics.put(id, epic);
+                epicAggregates.put(id, new EpicAggregate());
+                restoredEpics.add(epic);
+            } else if (restored instanceof Subtask subtask) {
+                subtasks.put(id, subtask);
+                prioritizedCheck(subtask);
+            } else if (restored != null) {
+                tasks.put(id, restored);
+                prioritizedCheck(restored);
+            }
+            if (restored != null) {
+                indexFields(restored);
+            }
+        }
+        for (Epic epic : restoredEpics) {
+            EpicAggregate aggregate = epicAggregates.get(epic.getId());
+            epic.getSubtaskId().forEach(subtaskId -> {
+                Subtask subtask = subtasks.get(subtaskId);
+                if (subtask != null) {
+                    aggregate.add(subtask);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void addListener(TaskChangeListener listener) {
+        notifier.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(TaskChangeListener listener) {
+        notifier.removeListener(listener);
+    }
+
+    // хранимые версии неизменяемы, поэтому событие ссылается на них без копирования
+    private void publish(TaskEvent.Type type, Task before, Task after) {
+        if (notifier.hasListeners()) {
+            notifier.publish(type, before, after);
+        }
+    }
+
+    private void publishCreated(Task task) {
+        publish(TaskEvent.Type.CREATED, null, task);
+    }
+
+    private void publishDeleted(Task task) {
+        publishRemoved(TaskEvent.Type.DELETED, task);
+    }
+
+    // удаление или перенос в архив: после события сущности в менеджере нет
+    private void publishRemoved(TaskEvent.Type type, Task task) {
+        if (notifier.hasListeners()) {
+            notifier.publish(type, task, null);
+        }
+    }
+
+    @SafeVarargs
+    private void publishDeleted(IntObjectHashMap<? extends Task>... storages) {
+        if (notifier.hasListeners()) {
+            for (IntObjectHashMap<? extends Task> storage : storages) {
+                storage.values().forEach(this::publishDeleted);
+            }
+        }
+    }
+
+    protected boolean isInTransaction() {
+        return undoLog != null;
+    }
+
+    // Эпик по id без записи в историю просмотров
+    protected Epic findEpic(int id) {
+        return epics.get(id);
+    }
+
+    private void remember(int id) {
+        if (undoLog != null) {
+            undoLog.remember(id, findById(id));
+        }
+    }
+
+    private void rememberAll(IntObjectHashMap<?>... storages) {
+        for (IntObjectHashMap<?> storage : storages) {
+            storage.forEachKey(this::remember);
+        }
+    }
+
+    // Убирает сущность из хранилищ и индексов без каскада на подзадачи и эпик
+    private void detach(int id) {
+        tasks.remove(id);
+        subtasks.remove(id);
+        if (epics.remove(id) != null) {
+            epicAggregates.remove(id);
+        }
+        removeFromPrioritized(id);
+        unindexFields(id);
+    }
+
+    // новая версия перед сохранением: номер версии и заморозка, после которой сущность не меняется
+    private void touch(Task task) {
+        task.setVersion(++versionClock);
+        task.freeze();
+    }
+
+    /**
+     * Версия сущности нужного типа без записи в историю просмотров; 0, если такой сущности нет.
+     */
+    @Override
+    public long getVersion(TaskType type, int id) {
+        Task task = switch (type) {
+            case TASK -> tasks.get(id);
+            case SUBTASK -> subtasks.get(id);
+            case EPIC -> epics.get(id);
+        };
+        return task == null ? 0 : task.getVersion();
+    }
+
     @Override
     public Task getTaskById(int id) {
         Task task = tasks.get(id);
@@ -390,20 +954,301 @@ public class InMemoryTaskManager implements TaskManager {
         return epic;
     }
 
+    /**
+     * История хранит просмотренные версии задач; измененные после просмотра заменяются текущими.
+     */
     @Override
     public List<Task> getHistory() {
-        return historyManager.getHistory();
+        List<Task> history = historyManager.getHistory();
+        history.replaceAll(viewed -> {
+            Task current = findById(viewed.getId());
+            return current != null ? current : viewed;
+        });
+        return history;
     }
 
+    // серия повторяющейся задачи хранится отдельно: ее вхождений нет ни в prioritizedTasks, ни в индексе интервалов
     private void prioritizedCheck(Task task) {
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(Task.copyTask(task));
+        if (task.isRecurring()) {
+            recurringTasks.put(task.getId(), task);
+        } else if (task.getStartTime() != null) {
+            prioritizedTasks.add(task);
+            prioritizedById.put(task.getId(), task);
+            prioritizedVersion++;
+            intervalIndex.add(task.getId(), task.getStartTime(), task.getEndTime());
+        }
+    }
+
+    private void removeFromPrioritized(int id) {
+        Task entry = prioritizedById.remove(id);
+        if (entry != null) {
+            prioritizedTasks.remove(entry);
+            prioritizedVersion++;
         }
+        intervalIndex.remove(id);
+        recurringTasks.remove(id);
+    }
+
+    // Переиндексация после изменения времени задачи
+    private void reindex(Task task) {
+        removeFromPrioritized(task.getId());
+        prioritizedCheck(task);
+    }
+
+    // индексы статуса и текста; текстовый индекс пропускает задачи с неизменившимся текстом
+    private void indexFields(Task task) {
+        for (IntHashSet ids : idsByStatus.values()) {
+            ids.remove(task.getId());
+        }
+        if (task.getStatus() != null) {
+            idsByStatus.get(task.getStatus()).add(task.getId());
+        }
+        textIndex.add(task.getId(), task.getTitle(), task.getDescription());
+    }
+
+    private void unindexFields(int id) {
+        for (IntHashSet ids : idsByStatus.values()) {
+            ids.remove(id);
+        }
+        textIndex.remove(id);
+    }
+
+    private Task findById(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = subtasks.get(id);
+        }
+        if (task == null) {
+            task = epics.get(id);
+        }
+        return task;
+    }
+
+    /**
+     * Поиск по словам названия и описания через инвертированный индекс, без записи в историю.
+     */
+    @Override
+    public List<Task> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Количество результатов должно быть положительным");
+        }
+        List<Task> result = new ArrayList<>(Math.min(limit, 64));
+        for (int id : textIndex.search(query, limit)) {
+            result.add(findById(id));
+        }
+        return result;
+    }
+
+    /**
+     * Выполняет запрос по плану из explain: кандидаты берутся из выбранного индекса,
+     * остальные условия проверяются для каждого из них. Результат упорядочен по id.
+     */
+    @Override
+    public List<Task> query(TaskQuery query) {
+        List<Task> result = new ArrayList<>();
+        switch (explain(query)) {
+            case ID -> result.add(findById(query.getId()));
+            case EPIC -> {
+                Epic epic = epics.get(query.getEpicId());
+                if (epic != null) {
+                    epic.getSubtaskId().forEach(id -> result.add(subtasks.get(id)));
+                }
+            }
+            case STATUS -> idsByStatus.get(query.getStatus()).forEach(id -> result.add(findById(id)));
+            case TIME -> startTimeRange(query.getStartFrom(), query.getStartTo())
+                    .forEach(entry -> result.add(findById(entry.getId())));
+            case TYPE -> result.addAll(storageOf(query.getType()).values());
+            case SCAN -> {
+                result.addAll(tasks.values());
+                result.addAll(subtasks.values());
+                result.addAll(epics.values());
+            }
+        }
+        result.removeIf(task -> !query.matches(task));
+        return sortedById(result);
+    }
+
+    /**
+     * План запроса: из доступных индексов (id, подзадачи эпика, статус, время начала, тип)
+     * выбирается тот, что дает меньше всего кандидатов. Размеры индексов известны сразу,
+     * а диапазон по времени считается не дальше лучшего из них, поэтому выбор стоит O(log n + k).
+     * Виден только внутри пакета: для тестов выбора плана и сравнения с полным перебором (QueryPlanBenchmark).
+     */
+    QueryPlan explain(TaskQuery query) {
+        if (query.getId() != null) {
+            return QueryPlan.ID;
+        }
+        QueryPlan plan = QueryPlan.SCAN;
+        long best = (long) tasks.size() + subtasks.size() + epics.size();
+        if (query.getEpicId() != null) {
+            Epic epic = epics.get(query.getEpicId());
+            // у несуществующего эпика подзадач нет
+            int size = epic == null ? 0 : epic.getSubtaskId().size();
+            if (size < best) {
+                plan = QueryPlan.EPIC;
+                best = size;
+            }
+        }
+        if (query.getStatus() != null && idsByStatus.get(query.getStatus()).size() < best) {
+            plan = QueryPlan.STATUS;
+            best = idsByStatus.get(query.getStatus()).size();
+        }
+        if (query.getType() != null && storageOf(query.getType()).size() < best) {
+            plan = QueryPlan.TYPE;
+            best = storageOf(query.getType()).size();
+        }
+        // эпиков в индексе по времени нет
+        if (query.hasTimeRange() && query.getType() != TaskType.EPIC) {
+            long count = 0;
+            for (Iterator<Task> it = startTimeRange(query.getStartFrom(), query.getStartTo()).iterator();
+                 it.hasNext() && count < best; it.next()) {
+                count++;
+            }
+            if (count < best) {
+                plan = QueryPlan.TIME;
+            }
+        }
+        return plan;
+    }
+
+    private IntObjectHashMap<? extends Task> storageOf(TaskType type) {
+        return switch (type) {
+            case TASK -> tasks;
+            case SUBTASK -> subtasks;
+            case EPIC -> epics;
+        };
+    }
+
+    /**
+     * Поиск по вторичным индексам за O(log n + k).
+     * При заданном интервале [from, to) просматривается только этот отрезок prioritizedTasks
+     * (в нем задачи и подзадачи со временем начала), иначе - множество id нужного статуса.
+     */
+    @Override
+    public List<Task> findTasks(TaskType type, TaskStatus status, LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        if (from != null || to != null) {
+            for (Task entry : startTimeRange(from, to)) {
+                Task task = findById(entry.getId());
+                if (task != null && (type == null || task.getType() == type)
+                        && (status == null || task.getStatus() == status)) {
+                    result.add(task);
+                }
+            }
+            return result;
+        }
+        if (status != null) {
+            idsByStatus.get(status).forEach(id -> {
+                Task task = findById(id);
+                if (task != null && (type == null || task.getType() == type)) {
+                    result.add(task);
+                }
+            });
+            return sortedById(result);
+        }
+        if (type == null || type == TaskType.TASK) {
+            result.addAll(getAllTasks());
+        }
+        if (type == null || type == TaskType.SUBTASK) {
+            result.addAll(getAllSubtasks());
+        }
+        if (type == null || type == TaskType.EPIC) {
+            result.addAll(getAllEpics());
+        }
+        return result;
+    }
+
+    private SortedSet<Task> startTimeRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null) {
+            return prioritizedTasks.headSet(timeProbe(to));
+        }
+        Task fromProbe = timeProbe(from);
+        if (to == null) {
+            // задачи без времени начала в индекс по времени не попадают
+            return prioritizedTasks.tailSet(fromProbe);
+        }
+        if (to.isBefore(from)) {
+            return Collections.emptySortedSet();
+        }
+        return prioritizedTasks.subSet(fromProbe, timeProbe(to));
+    }
+
+    /**
+     * Свободные окна в [from, to], куда помещается задача длительностью duration.
+     * Обходит занятые интервалы prioritizedTasks по порядку начиная с from - O(log n + k).
+     * Границы интервалов считаются занятыми, поэтому окно отступает от соседних задач на минуту.
+     */
+    @Override
+    public List<TimeSlot> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Длительность должна быть положительной");
+        }
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало интервала поиска должно быть раньше конца");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Количество окон должно быть положительным");
+        }
+        List<TimeSlot> slots = new ArrayList<>();
+        LocalDateTime free = from;
+        // задача, начавшаяся раньше from, может занимать его начало
+        for (Task previous : prioritizedTasks.headSet(timeProbe(from), false).descendingSet()) {
+            if (previous.getEndTime() != null) {
+                if (!previous.getEndTime().isBefore(free)) {
+                    free = previous.getEndTime().plus(SLOT_GAP);
+                }
+                break;
+            }
+        }
+        // вхождения серий, задевающие интервал, обходятся вместе с разовыми задачами по времени начала
+        List<Task> occurrences = recurringTasks.isEmpty() ? List.of() : occurrences(from, to, true);
+        Iterator<Task> scheduled = prioritizedTasks.tailSet(timeProbe(from)).iterator();
+        Task nextScheduled = scheduled.hasNext() ? scheduled.next() : null;
+        int nextOccurrence = 0;
+        while (nextScheduled != null || nextOccurrence < occurrences.size()) {
+            Task busy;
+            if (nextScheduled == null || nextOccurrence < occurrences.size()
+                    && occurrences.get(nextOccurrence).getStartTime().isBefore(nextScheduled.getStartTime())) {
+                busy = occurrences.get(nextOccurrence++);
+            } else {
+                busy = nextScheduled;
+                nextScheduled = scheduled.hasNext() ? scheduled.next() : null;
+            }
+            if (slots.size() == limit || busy.getStartTime().isAfter(to)) {
+                break;
+            }
+            if (busy.getEndTime() == null) {
+                continue;
+            }
+            addSlot(slots, free, busy.getStartTime().minus(SLOT_GAP), duration);
+            LocalDateTime afterBusy = busy.getEndTime().plus(SLOT_GAP);
+            if (afterBusy.isAfter(free)) {
+                free = afterBusy;
+            }
+        }
+        if (slots.size() < limit) {
+            addSlot(slots, free, to, duration);
+        }
+        return slots;
+    }
+
+    private static void addSlot(List<TimeSlot> slots, LocalDateTime start, LocalDateTime end, Duration duration) {
+        if (!start.plus(duration).isAfter(end)) {
+            slots.add(new TimeSlot(start, end));
+        }
+    }
+
+    // Ключ для поиска в prioritizedTasks: время начала и id, меньший любого реального
+    private static Task timeProbe(LocalDateTime startTime) {
+        Task probe = new Task();
+        probe.setStartTime(startTime);
+        probe.setId(Integer.MIN_VALUE);
+        return probe;
     }
 
     @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        return prioritizedSnapshot.get();
     }
 
     @Override
@@ -411,10 +1256,164 @@ public class InMemoryTaskManager implements TaskManager {
         if (task.getStartTime() == null || task.getEndTime() == null) {
             return false;
         }
-        return prioritizedTasks.stream()
-                .filter(current -> current.getId() != task.getId())
-                .anyMatch(current -> !task.getStartTime().isAfter(current.getEndTime())
-                        && !current.getStartTime().isAfter(task.getEndTime()));
+        return hasTimeConflict(task, id -> id == task.getId());
+    }
+
+    /**
+     * Пересечение задачи или серии с разовыми задачами и сериями менеджера, кроме excluded.
+     * Каждая серия проверяется арифметически, без перебора ее вхождений. Для новой серии разовые задачи
+     * проверяются начиная с ее первого вхождения: задача, начавшаяся раньше и задевающая
+     * любое следующее вхождение, задевает и первое.
+     */
+    private boolean hasTimeConflict(Task task, IntPredicate excluded) {
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (intervalIndex.hasOverlap(start, end, excluded)) {
+            return true;
+        }
+        for (Task series : recurringTasks.values()) {
+            if (excluded.test(series.getId())) {
+                continue;
+            }
+            if (task.isRecurring() ? seriesOverlap(task, series) : seriesOverlaps(series, start, end)) {
+                return true;
+            }
+        }
+        if (!task.isRecurring()) {
+            return false;
+        }
+        LocalDateTime until = task.getRecurrence().getUntil();
+        SortedSet<Task> later = until == null
+                ? prioritizedTasks.tailSet(timeProbe(start))
+                : startTimeRange(start, until.plus(task.getDuration()).plusNanos(1));
+        for (Task other : later) {
+            if (!excluded.test(other.getId()) && other.getEndTime() != null
+                    && seriesOverlaps(task, other.getStartTime(), other.getEndTime())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Есть ли у серии вхождение, пересекающее [from, to]: ближайшее вхождение,
+     * которое заканчивается не раньше from, находится за O(1).
+     */
+    private static boolean seriesOverlaps(Task series, LocalDateTime from, LocalDateTime to) {
+        Recurrence recurrence = series.getRecurrence();
+        long index = recurrence.firstIndexFrom(series.getStartTime(), from.minus(series.getDuration()));
+        return recurrence.hasOccurrence(series.getStartTime(), index)
+                && !recurrence.occurrenceStart(series.getStartTime(), index).isAfter(to);
+    }
+
+    /**
+     * Пересечение двух серий. Сдвиг вхождений first относительно периода second повторяется
+     * через period(second) / НОД(периодов) вхождений, поэтому достаточно проверить один такой цикл,
+     * начиная с вхождений, которые могут задеть первое вхождение second.
+     */
+    private static boolean seriesOverlap(Task first, Task second) {
+        Recurrence recurrence = first.getRecurrence();
+        long firstDays = recurrence.getPeriod().toDays();
+        long secondDays = second.getRecurrence().getPeriod().toDays();
+        long cycle = secondDays / gcd(firstDays, secondDays) + 1;
+        long index = recurrence.firstIndexFrom(first.getStartTime(),
+                second.getStartTime().minus(first.getDuration()));
+        for (long i = index; i <= index + cycle && recurrence.hasOccurrence(first.getStartTime(), i); i++) {
+            LocalDateTime start = recurrence.occurrenceStart(first.getStartTime(), i);
+            if (seriesOverlaps(second, start, start.plus(first.getDuration()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Серии пакета сравниваются со всеми остальными элементами пакета попарно, их обычно немного.
+     */
+    static void checkBatchSeries(List<Task> recurring, List<Task> timed) {
+        for (int i = 0; i < recurring.size(); i++) {
+            Task series = recurring.get(i);
+            for (Task other : timed) {
+                if (seriesOverlaps(series, other.getStartTime(), other.getEndTime())) {
+                    throw new TimeConflictException("Задачи пакета пересекаются по времени между собой");
+                }
+            }
+            for (Task other : recurring.subList(i + 1, recurring.size())) {
+                if (seriesOverlap(series, other)) {
+                    throw new TimeConflictException("Задачи пакета пересекаются по времени между собой");
+                }
+            }
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Повторяться может только задача с временем начала и длительностью.
+     */
+    static void checkRecurrence(Task task) {
+        if (task == null || !task.isRecurring()) {
+            return;
+        }
+        if (task.getType() != TaskType.TASK) {
+            throw new IllegalArgumentException("Повторяться могут только задачи");
+        }
+        Recurrence recurrence = task.getRecurrence();
+        if (recurrence.getFrequency() == null || recurrence.getInterval() <= 0) {
+            throw new IllegalArgumentException("Некорректное правило повторения задачи " + task.getId());
+        }
+        if (task.getStartTime() == null || task.getDuration() == null
+                || task.getDuration().isNegative() || task.getDuration().isZero()) {
+            throw new IllegalArgumentException("У повторяющейся задачи должны быть время начала и длительность");
+        }
+        // вхождение, которое длиннее периода, пересекалось бы со следующим
+        if (task.getDuration().compareTo(recurrence.getPeriod()) >= 0) {
+            throw new IllegalArgumentException("Длительность повторяющейся задачи должна быть меньше периода");
+        }
+    }
+
+    /**
+     * Вхождения серий, пересекающие [from, to] (overlapping) или начинающиеся в [from, to),
+     * по времени начала. Вхождение - копия серии с временем начала вхождения и без правила повторения;
+     * память и время зависят только от числа вхождений в интервале.
+     */
+    private List<Task> occurrences(LocalDateTime from, LocalDateTime to, boolean overlapping) {
+        List<Task> result = new ArrayList<>();
+        for (Task series : recurringTasks.values()) {
+            Recurrence recurrence = series.getRecurrence();
+            LocalDateTime seriesStart = series.getStartTime();
+            LocalDateTime first = overlapping ? from.minus(series.getDuration()) : from;
+            for (long i = recurrence.firstIndexFrom(seriesStart, first); recurrence.hasOccurrence(seriesStart, i); i++) {
+                LocalDateTime start = recurrence.occurrenceStart(seriesStart, i);
+                if (overlapping ? start.isAfter(to) : !start.isBefore(to)) {
+                    break;
+                }
+                Task occurrence = Task.copyTask(series);
+                occurrence.setStartTime(start);
+                occurrence.setRecurrence(null);
+                result.add(occurrence);
+            }
+        }
+        result.sort(prioritizedTasks.comparator());
+        return result;
+    }
+
+    /**
+     * Задачи и вхождения повторяющихся задач, начинающиеся в [from, to), по времени начала.
+     */
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало интервала должно быть раньше конца");
+        }
+        List<Task> result = new ArrayList<>(startTimeRange(from, to));
+        if (!recurringTasks.isEmpty()) {
+            result.addAll(occurrences(from, to, false));
+            result.sort(prioritizedTasks.comparator());
+        }
+        return result;
     }
 
 }
@@ -0,0 +1,158 @@
+package util;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Множество int с открытой адресацией (линейное пробирование).
+ * Добавление, проверка и удаление - O(1) без упаковки значений в Integer.
+ */
+public class IntHashSet {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private int[] keys;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    public IntHashSet() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    public boolean contains(int value) {
+        return find(value) >= 0;
+    }
+
+    /**
+     * @return true, если значения еще не было в множестве
+     */
+    public boolean add(int value) {
+        int slot = hash(value) & mask;
+        while (used[slot]) {
+            if (keys[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = value;
+        used[slot] = true;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return true, если значение было в множестве
+     */
+    public boolean remove(int value) {
+        int slot = find(value);
+        if (slot < 0) {
+            return false;
+        }
+        int free = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (!used[next]) {
+                break;
+            }
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                free = next;
+            }
+        }
+        used[free] = false;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Обход значений без копирования; изменять множество во время обхода нельзя.
+     */
+    public void forEach(IntConsumer action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) {
+                action.accept(keys[slot]);
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size];
+        int index = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) {
+                result[index++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(toArray());
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        forEach(value -> joiner.add(String.valueOf(value)));
+        return joiner.toString();
+    }
+
+    private int find(int value) {
+        int slot = hash(value) & mask;
+        while (used[slot]) {
+            if (keys[slot] == value) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldUsed[slot]) {
+                int newSlot = hash(oldKeys[slot]) & mask;
+                while (used[newSlot]) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                keys[newSlot] = oldKeys[slot];
+                used[newSlot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    // мультипликативное перемешивание: последовательные id без него занимают одну длинную серию слотов,
+    // и удаление или поиск отсутствующего значения проходят ее целиком
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,229 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Хеш-таблица с ключами int и открытой адресацией (линейное пробирование).
+ * Ключи хранятся без упаковки в Integer, удаление - сдвигом следующих элементов, без "надгробий".
+ * Значения null не хранятся: пустая ячейка значений означает свободный слот.
+ */
+public class IntObjectHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private long modCount;
+
+    public IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntObjectHashMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    public V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Сохраняет значение по ключу.
+     *
+     * @return предыдущее значение или null
+     */
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Значение не может быть null");
+        }
+        modCount++;
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = valueAt(slot);
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > values.length) {
+            rehash(values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Удаляет значение по ключу.
+     *
+     * @return удаленное значение или null
+     */
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        modCount++;
+        V removed = valueAt(slot);
+        int free = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (values[next] == null) {
+                break;
+            }
+            int home = hash(keys[next]) & mask;
+            // элемент можно сдвинуть, если освободившийся слот лежит между его "домашним" слотом и текущим
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        values[free] = null;
+        size--;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Счетчик изменений таблицы: растет при каждой вставке, замене и удалении.
+     */
+    public long modCount() {
+        return modCount;
+    }
+
+    /**
+     * Новый список всех значений таблицы, в порядке слотов (не по возрастанию ключей).
+     */
+    public ArrayList<V> values() {
+        ArrayList<V> result = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null) {
+                result.add(cast(value));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Обход ключей без копирования; изменять таблицу во время обхода нельзя.
+     */
+    public void forEachKey(IntConsumer action) {
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                action.accept(keys[slot]);
+            }
+        }
+    }
+
+    /**
+     * Новый массив всех ключей таблицы.
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int index = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                result[index++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Длина самой длинной серии занятых слотов: столько слотов в худшем случае просматривают
+     * поиск и сдвиг при удалении. Для тестов распределения ключей.
+     */
+    int longestCluster() {
+        int longest = 0;
+        int run = 0;
+        // серия может переходить через конец массива, поэтому обход идет до первого свободного слота второго круга
+        for (int i = 0; i < values.length * 2; i++) {
+            if (values[i & mask] != null) {
+                run++;
+                longest = Math.max(longest, Math.min(run, size));
+            } else if (i >= values.length) {
+                break;
+            } else {
+                run = 0;
+            }
+        }
+        return longest;
+    }
+
+    private int find(int key) {
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            if (oldValues[slot] != null) {
+                int newSlot = hash(oldKeys[slot]) & mask;
+                while (values[newSlot] != null) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    // мультипликативное перемешивание, как в IntHashSet: последовательные id без него занимают
+    // одну длинную серию слотов, и каждое удаление сдвигает элементы до ее конца
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private V valueAt(int slot) {
+        return cast(values[slot]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V cast(Object value) {
+        return (V) value;
+    }
+}
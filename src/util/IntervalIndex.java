@@ -0,0 +1,204 @@
+package util;
+
+import java.time.LocalDateTime;
+import java.util.function.IntPredicate;
+
+/**
+ * Индекс временных интервалов задач.
+ * AVL-дерево, упорядоченное по (startTime, id); каждый узел хранит максимальное
+ * время окончания в своем поддереве, что позволяет отсекать ветки без пересечений.
+ * Пока сохраненные интервалы не пересекаются между собой, проверка занимает O(log n).
+ */
+public class IntervalIndex {
+    private final IntObjectHashMap<Node> nodesById = new IntObjectHashMap<>();
+    private Node root;
+
+    /**
+     * Добавляет интервал задачи, заменяя предыдущий интервал с тем же id.
+     */
+    public void add(int id, LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null) {
+            return;
+        }
+        remove(id);
+        Node node = new Node(id, start, end);
+        root = insert(root, node);
+        nodesById.put(id, node);
+    }
+
+    public void remove(int id) {
+        Node node = nodesById.remove(id);
+        if (node != null) {
+            root = delete(root, node.start, node.id);
+        }
+    }
+
+    public void clear() {
+        nodesById.clear();
+        root = null;
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    /**
+     * Проверяет, пересекается ли отрезок [start, end] с каким-либо интервалом,
+     * кроме интервала задачи excludedId. Границы отрезков включаются.
+     */
+    public boolean hasOverlap(LocalDateTime start, LocalDateTime end, int excludedId) {
+        if (start == null || end == null) {
+            return false;
+        }
+        return hasOverlap(root, start, end, id -> id == excludedId);
+    }
+
+    /**
+     * То же, но без учета всех интервалов, id которых подходят под excluded.
+     */
+    public boolean hasOverlap(LocalDateTime start, LocalDateTime end, IntPredicate excluded) {
+        if (start == null || end == null) {
+            return false;
+        }
+        return hasOverlap(root, start, end, excluded);
+    }
+
+    private boolean hasOverlap(Node node, LocalDateTime start, LocalDateTime end, IntPredicate excluded) {
+        if (node == null || node.maxEnd.isBefore(start)) {
+            return false;
+        }
+        if (!start.isAfter(node.end) && !node.start.isAfter(end) && !excluded.test(node.id)) {
+            return true;
+        }
+        if (hasOverlap(node.left, start, end, excluded)) {
+            return true;
+        }
+        // все интервалы правого поддерева начинаются не раньше текущего
+        if (node.start.isAfter(end)) {
+            return false;
+        }
+        return hasOverlap(node.right, start, end, excluded);
+    }
+
+    private static int compare(LocalDateTime start, int id, Node node) {
+        int result = start.compareTo(node.start);
+        return result != 0 ? result : Integer.compare(id, node.id);
+    }
+
+    private Node insert(Node node, Node newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (compare(newNode.start, newNode.id, node) < 0) {
+            node.left = insert(node.left, newNode);
+        } else {
+            node.right = insert(node.right, newNode);
+        }
+        return balance(node);
+    }
+
+    private Node delete(Node node, LocalDateTime start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static class Node {
+        final int id;
+        final LocalDateTime start;
+        final LocalDateTime end;
+        LocalDateTime maxEnd; //наибольшее время окончания в поддереве
+        int height;
+        Node left;
+        Node right;
+
+        Node(int id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+            this.height = 1;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package util;
+
+import exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Граница id в общем файле: несколько процессов, работающих с одним хранилищем,
+ * берут блоки под блокировкой файла и не получают одинаковых id.
+ * В файле хранится следующий свободный id в текстовом виде.
+ */
+public class LeaseFileIdBlockSource implements IdBlockSource {
+    private final Path file;
+
+    public LeaseFileIdBlockSource(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("Файл для id не может быть null");
+        }
+        this.file = file;
+    }
+
+    @Override
+    public synchronized long claim(int size) {
+        return update(current -> current + size);
+    }
+
+    @Override
+    public synchronized void reserve(long next) {
+        update(current -> Math.max(current, next));
+    }
+
+    /**
+     * Читает границу под блокировкой файла, записывает новое значение и возвращает прежнее.
+     * synchronized нужен потому, что блокировка файла не защищает от потоков того же процесса.
+     */
+    private long update(LongUnaryOperator change) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(channel.size(), 0));
+                channel.read(buffer, 0);
+                String text = new String(buffer.array(), StandardCharsets.UTF_8).trim();
+                long current = text.isEmpty() ? 1 : Long.parseLong(text);
+                byte[] updated = Long.toString(change.applyAsLong(current)).getBytes(StandardCharsets.UTF_8);
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(updated), 0);
+                channel.force(true);
+                return current;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new ManagerSaveException("Ошибка работы с файлом id " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,26 +1,57 @@
 package util;
 
+import collections.PersistentIntSet;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import server.adapters.DurationTypeAdapter;
+import server.adapters.PersistentIntSetTypeAdapter;
 import server.adapters.LocalDateTimeAdapter;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 
 public class Managers {
+    /**
+     * Размер истории просмотров по умолчанию; меняется свойством -Dkanban.history.capacity,
+     * значение 0 отключает ограничение.
+     */
+    public static final String HISTORY_CAPACITY_PROPERTY = "kanban.history.capacity";
+    public static final int DEFAULT_HISTORY_CAPACITY = 1000;
+
     public static TaskManager getDefault() {
         return new InMemoryTaskManager();
     }
 
+    /**
+     * Менеджер, который можно разделять между потоками HTTP-сервера.
+     */
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager(getDefault());
+    }
+
     public static HistoryManager getDefaultHistory() {
-        return new InMemoryHistoryManager();
+        return getDefaultHistory(Integer.getInteger(HISTORY_CAPACITY_PROPERTY, DEFAULT_HISTORY_CAPACITY));
+    }
+
+    /**
+     * История, хранящая не больше capacity последних просмотров; capacity <= 0 - без ограничения.
+     */
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return capacity > 0 ? new BoundedHistoryManager(capacity) : new InMemoryHistoryManager();
+    }
+
+    /**
+     * История, которая ничего не запоминает: для менеджеров, чьи просмотры учитывает другой менеджер.
+     */
+    public static HistoryManager getDisabledHistory() {
+        return DisabledHistoryManager.INSTANCE;
     }
 
     public static Gson getGson() {
         return new GsonBuilder()
                 .registerTypeAdapter(Duration.class, new DurationTypeAdapter())
                 .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+                .registerTypeAdapter(PersistentIntSet.class, new PersistentIntSetTypeAdapter())
                 .setPrettyPrinting()
                 .create();
     }
@@ -0,0 +1,52 @@
+package util;
+
+import java.util.List;
+
+import tasks.Task;
+
+/**
+ * Страница списка задач.
+ * Курсор - id последнего элемента страницы: следующая страница начинается с первого id больше курсора,
+ * поэтому добавление новых задач между запросами не приводит к пропускам и повторам.
+ */
+public class Page<T extends Task> {
+    private final List<T> items;
+    private final Integer nextCursor; // null, если страница последняя
+
+    public Page(List<T> items, Integer nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Выбирает страницу из списка, упорядоченного по id.
+     * Поиск начала страницы - бинарный, в страницу копируется не больше limit элементов.
+     */
+    public static <T extends Task> Page<T> of(List<T> sortedById, int cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+        int low = 0;
+        int high = sortedById.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedById.get(middle).getId() <= cursor) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int to = Math.min(sortedById.size(), low + limit);
+        List<T> pageItems = List.copyOf(sortedById.subList(low, to));
+        Integer next = to < sortedById.size() ? pageItems.getLast().getId() : null;
+        return new Page<>(pageItems, next);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+}
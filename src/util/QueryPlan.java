@@ -0,0 +1,14 @@
+package util;
+
+/**
+ * Источник кандидатов, выбранный для TaskQuery: индекс, дающий меньше всего задач,
+ * или полный перебор. Остальные условия запроса проверяются для каждого кандидата.
+ */
+enum QueryPlan {
+    ID,
+    EPIC,
+    STATUS,
+    TIME,
+    TYPE,
+    SCAN
+}
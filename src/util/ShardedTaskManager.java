@@ -0,0 +1,862 @@
+package util;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import exceptions.TimeConflictException;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+/**
+ * TaskManager, разделенный на N сегментов (шардов) - независимых потокобезопасных менеджеров.
+ * Сегмент сущности определяется ее id: id сегмента k дает аллокатор, выдающий только числа,
+ * сравнимые с k по модулю N. Подзадача создается в сегменте своего эпика и поэтому
+ * лежит рядом с ним, задачи и эпики распределяются по кругу.
+ * Операции с одной сущностью идут в ее сегмент, общие списки собираются параллельным
+ * опросом сегментов и слиянием уже упорядоченных списков (k-way merge); страницы и ограниченные
+ * выборки сливаются только до нужного числа элементов.
+ * Запись задач со временем дополнительно выполняется под общей блокировкой расписания,
+ * потому что пересечения по времени проверяются во всех сегментах.
+ * Пакеты createAll и updateAll атомарны: они выполняются в транзакции всех сегментов.
+ * История просмотров общая, сегменты свою не ведут.
+ * События подписчикам нумеруются внутри каждого сегмента.
+ */
+public class ShardedTaskManager implements TaskManager {
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
+    // тот же порядок, что у prioritizedTasks в InMemoryTaskManager
+    private static final Comparator<Task> BY_START_TIME = Comparator.comparing(
+            Task::getStartTime,
+            Comparator.nullsLast(Comparator.naturalOrder())
+    ).thenComparingInt(Task::getId);
+
+    private final List<TaskManager> shards;
+    private final Executor executor;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final HistoryManager historyManager = Managers.getDefaultHistory();
+    private final Object historyLock = new Object();
+    // поток, открывший транзакцию: пока она идет, сегменты опрашиваются в нем же, без пула
+    private volatile Thread transactionOwner;
+
+    public ShardedTaskManager(int shardCount) {
+        this(shardCount, allocator -> new ConcurrentTaskManager(
+                        new InMemoryTaskManager(allocator, null, Managers.getDisabledHistory())),
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param shardFactory создает потокобезопасный менеджер сегмента с переданным аллокатором id;
+     *                     историю просмотров ведет ShardedTaskManager, поэтому у сегментов ее лучше отключить
+     *                     (Managers.getDisabledHistory())
+     * @param executor     пул для параллельного опроса сегментов
+     */
+    public ShardedTaskManager(int shardCount, Function<IdAllocator, TaskManager> shardFactory, Executor executor) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Количество сегментов должно быть положительным");
+        }
+        if (shardFactory == null || executor == null) {
+            throw new IllegalArgumentException("Фабрика сегментов и пул не могут быть null");
+        }
+        // общая последовательность делает id возрастающими во всем менеджере, а не только в сегменте
+        IdAllocator sequence = new BlockIdAllocator();
+        List<TaskManager> created = new ArrayList<>(shardCount);
+        for (int k = 0; k < shardCount; k++) {
+            created.add(shardFactory.apply(new ShardIdAllocator(sequence, k, shardCount)));
+        }
+        this.shards = List.copyOf(created);
+        this.executor = executor;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    private TaskManager shardOf(int id) {
+        return shards.get(Math.floorMod(id, shards.size()));
+    }
+
+    // новая задача или эпик без id - в следующий по кругу сегмент
+    private TaskManager shardForNew(Task task) {
+        if (task.getId() != 0) {
+            return shardOf(task.getId());
+        }
+        return shards.get(Math.floorMod(nextShard.getAndIncrement(), shards.size()));
+    }
+
+    private TaskManager shardForSubtask(Subtask subtask) {
+        return subtask.getId() != 0 ? shardOf(subtask.getId()) : shardOf(subtask.getEpicId());
+    }
+
+    /**
+     * Выполняет действие во всех сегментах параллельно и возвращает результаты в порядке сегментов.
+     */
+    private <R> List<R> fanOut(Function<TaskManager, R> action) {
+        List<R> results = new ArrayList<>(shards.size());
+        if (shards.size() == 1 || transactionOwner == Thread.currentThread()) {
+            for (TaskManager shard : shards) {
+                results.add(action.apply(shard));
+            }
+            return results;
+        }
+        List<CompletableFuture<R>> futures = new ArrayList<>(shards.size());
+        for (TaskManager shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> action.apply(shard), executor));
+        }
+        try {
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Слияние k упорядоченных списков за O(n log k).
+     */
+    static <T> List<T> merge(List<? extends List<? extends T>> lists, Comparator<? super T> order) {
+        return merge(lists, order, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Первые limit элементов слияния k упорядоченных списков за O(k + limit log k):
+     * остальные элементы не просматриваются.
+     */
+    static <T> List<T> merge(List<? extends List<? extends T>> lists, Comparator<? super T> order, int limit) {
+        long total = 0;
+        for (List<? extends T> list : lists) {
+            total += list.size();
+        }
+        List<T> result = new ArrayList<>((int) Math.min(total, limit));
+        PriorityQueue<Cursor<T>> queue = new PriorityQueue<>(Math.max(1, lists.size()),
+                (a, b) -> order.compare(a.current(), b.current()));
+        for (List<? extends T> list : lists) {
+            if (!list.isEmpty()) {
+                queue.add(new Cursor<>(list));
+            }
+        }
+        while (!queue.isEmpty() && result.size() < limit) {
+            Cursor<T> cursor = queue.poll();
+            result.add(cursor.current());
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    private <T extends Task> List<T> mergeAll(Function<TaskManager, List<T>> query, Comparator<Task> order) {
+        return Collections.unmodifiableList(merge(fanOut(query), order));
+    }
+
+    /**
+     * Запись, затрагивающая расписание: пересечения проверяются во всех сегментах
+     * под общей блокировкой, чтобы два сегмента не приняли пересекающиеся задачи одновременно.
+     */
+    private <T> T scheduled(Task task, Supplier<T> action) {
+        InMemoryTaskManager.checkRecurrence(task);
+        if (task.getStartTime() == null || task.getEndTime() == null) {
+            return action.get();
+        }
+        scheduleLock.lock();
+        try {
+            if (isTasksOverlap(task)) {
+                throw new TimeConflictException("Задача пересекается по времени с существующей");
+            }
+            return action.get();
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        return scheduled(task, () -> shardForNew(task).createTask(task));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return shardForNew(epic).createEpic(epic);
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        return scheduled(subtask, () -> shardForSubtask(subtask).createSubtask(subtask));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return mergeAll(TaskManager::getAllTasks, BY_ID);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return mergeAll(TaskManager::getAllSubtasks, BY_ID);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return mergeAll(TaskManager::getAllEpics, BY_ID);
+    }
+
+    /**
+     * Страница собирается из страниц сегментов с тем же курсором: id растут во всем менеджере,
+     * поэтому каждый сегмент сам находит начало своей части, а сливаются только limit первых элементов.
+     */
+    @Override
+    public Page<Task> getTasksPage(int cursor, int limit) {
+        return mergePages(shard -> shard.getTasksPage(cursor, limit), limit);
+    }
+
+    @Override
+    public Page<Subtask> getSubtasksPage(int cursor, int limit) {
+        return mergePages(shard -> shard.getSubtasksPage(cursor, limit), limit);
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(int cursor, int limit) {
+        return mergePages(shard -> shard.getEpicsPage(cursor, limit), limit);
+    }
+
+    private <T extends Task> Page<T> mergePages(Function<TaskManager, Page<T>> page, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+        List<Page<T>> pages = fanOut(page);
+        List<List<T>> items = new ArrayList<>(pages.size());
+        int available = 0;
+        boolean more = false;
+        for (Page<T> shardPage : pages) {
+            items.add(shardPage.getItems());
+            available += shardPage.getItems().size();
+            more |= shardPage.getNextCursor() != null;
+        }
+        List<T> merged = merge(items, BY_ID, limit);
+        // следующая страница есть, если слияние взяло не все или у какого-то сегмента остались элементы
+        Integer next = merged.size() < available || more ? merged.getLast().getId() : null;
+        return new Page<>(List.copyOf(merged), next);
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksOfEpic(int epicId) {
+        return shardOf(epicId).getSubtasksOfEpic(epicId);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history;
+        synchronized (historyLock) {
+            history = historyManager.getHistory();
+        }
+        history.replaceAll(this::currentVersion);
+        return history;
+    }
+
+    // история хранит просмотренные версии; если сущность с тех пор изменилась, берется ее текущая версия
+    private Task currentVersion(Task viewed) {
+        TaskManager shard = shardOf(viewed.getId());
+        if (shard.getVersion(viewed.getType(), viewed.getId()) == viewed.getVersion()) {
+            return viewed;
+        }
+        List<Task> current = shard.query(TaskQuery.builder().id(viewed.getId()).build());
+        return current.isEmpty() ? viewed : current.getFirst();
+    }
+
+    private <T extends Task> T viewed(T task) {
+        synchronized (historyLock) {
+            historyManager.add(task);
+        }
+        return task;
+    }
+
+    private void forget(Collection<? extends Task> removed) {
+        synchronized (historyLock) {
+            for (Task task : removed) {
+                historyManager.remove(task.getId());
+            }
+        }
+    }
+
+    private void forget(int id) {
+        synchronized (historyLock) {
+            historyManager.remove(id);
+        }
+    }
+
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        shardOf(epic.getId()).updateEpicStatus(epic);
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        return scheduled(task, () -> shardOf(task.getId()).updateTask(task));
+    }
+
+    /**
+     * Подзадачу можно перенести только в эпик того же сегмента: ее id привязан к сегменту.
+     */
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        if (subtask == null) {
+            throw new IllegalArgumentException("Subtask cannot be null");
+        }
+        checkSameShard(subtask);
+        return scheduled(subtask, () -> shardOf(subtask.getId()).updateSubtask(subtask));
+    }
+
+    private void checkSameShard(Subtask subtask) {
+        if (shardOf(subtask.getId()) != shardOf(subtask.getEpicId())) {
+            throw new IllegalArgumentException("Подзадачу " + subtask.getId()
+                    + " нельзя перенести в эпик " + subtask.getEpicId() + " из другого сегмента");
+        }
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        if (epic == null) {
+            throw new IllegalArgumentException("Epic cannot be null");
+        }
+        return shardOf(epic.getId()).updateEpic(epic);
+    }
+
+    /**
+     * Пакет проверяется целиком до изменений: пересечения внутри пакета и со всеми сегментами,
+     * затем сегменты применяют свои части в общей транзакции, так что ошибка в любом сегменте
+     * отменяет весь пакет.
+     */
+    @Override
+    public List<Task> createAll(Collection<? extends Task> items) {
+        List<Task> batch = checkBatch(items);
+        return scheduledBatch(batch, false, () -> {
+            List<List<Task>> groups = groups();
+            for (Task item : batch) {
+                TaskManager shard = item instanceof Subtask subtask ? shardForSubtask(subtask) : shardForNew(item);
+                groups.get(shards.indexOf(shard)).add(item);
+            }
+            List<Task> created = new ArrayList<>(batch.size());
+            for (int k = 0; k < shards.size(); k++) {
+                if (!groups.get(k).isEmpty()) {
+                    created.addAll(shards.get(k).createAll(groups.get(k)));
+                }
+            }
+            return created;
+        });
+    }
+
+    @Override
+    public List<Task> updateAll(Collection<? extends Task> items) {
+        List<Task> batch = checkBatch(items);
+        for (Task item : batch) {
+            if (getVersion(item.getType(), item.getId()) == 0) {
+                throw new IllegalArgumentException(item.getType() + " with id " + item.getId() + " not found");
+            }
+            if (item instanceof Subtask subtask) {
+                checkSameShard(subtask);
+            }
+        }
+        return scheduledBatch(batch, true, () -> {
+            List<List<Task>> groups = groups();
+            for (Task item : batch) {
+                groups.get(Math.floorMod(item.getId(), shards.size())).add(item);
+            }
+            // результат в порядке пакета, как у InMemoryTaskManager
+            List<Iterator<Task>> results = new ArrayList<>(shards.size());
+            for (int k = 0; k < shards.size(); k++) {
+                results.add(groups.get(k).isEmpty() ? null : shards.get(k).updateAll(groups.get(k)).iterator());
+            }
+            List<Task> updated = new ArrayList<>(batch.size());
+            for (Task item : batch) {
+                updated.add(results.get(Math.floorMod(item.getId(), shards.size())).next());
+            }
+            return updated;
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        List<List<Integer>> groups = new ArrayList<>(shards.size());
+        for (int k = 0; k < shards.size(); k++) {
+            groups.add(new ArrayList<>());
+        }
+        for (int id : ids) {
+            groups.get(Math.floorMod(id, shards.size())).add(id);
+        }
+        for (int k = 0; k < shards.size(); k++) {
+            if (!groups.get(k).isEmpty()) {
+                for (int id : groups.get(k)) {
+                    forgetWithSubtasks(shards.get(k), id);
+                }
+                shards.get(k).deleteAll(groups.get(k));
+            }
+        }
+    }
+
+    private List<List<Task>> groups() {
+        List<List<Task>> groups = new ArrayList<>(shards.size());
+        for (int k = 0; k < shards.size(); k++) {
+            groups.add(new ArrayList<>());
+        }
+        return groups;
+    }
+
+    private static List<Task> checkBatch(Collection<? extends Task> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Пакет задач не может быть null");
+        }
+        List<Task> batch = new ArrayList<>(items);
+        for (Task item : batch) {
+            if (item == null) {
+                throw new IllegalArgumentException("Пакет не может содержать null");
+            }
+            InMemoryTaskManager.checkRecurrence(item);
+        }
+        return batch;
+    }
+
+    /**
+     * Пересечения внутри пакета ищутся проходом по отсортированным интервалам, пересечения
+     * с другими сегментами - их индексами; свой сегмент проверяет пакет сам.
+     * Новые задачи проверяются до изменений. Изменяемые задачи могут освобождать время друг для друга
+     * в разных сегментах, поэтому пакет изменений применяется во всех сегментах в транзакции
+     * и проверяется уже с новым временем; внутри открытой транзакции, где вложенную открыть нельзя,
+     * изменения проверяются заранее по текущему времени других задач пакета.
+     */
+    private <T> T scheduledBatch(List<Task> batch, boolean update, Supplier<T> action) {
+        List<Task> timed = new ArrayList<>();
+        List<Task> recurring = new ArrayList<>();
+        for (Task item : batch) {
+            if (!(item instanceof Epic) && item.getStartTime() != null && item.getEndTime() != null) {
+                (item.isRecurring() ? recurring : timed).add(item);
+            }
+        }
+        if (timed.isEmpty() && recurring.isEmpty()) {
+            return atomically(action);
+        }
+        InMemoryTaskManager.checkBatchSeries(recurring, timed);
+        timed.sort(Comparator.comparing(Task::getStartTime));
+        LocalDateTime maxEnd = null;
+        for (Task item : timed) {
+            if (maxEnd != null && !item.getStartTime().isAfter(maxEnd)) {
+                throw new TimeConflictException("Задачи пакета пересекаются по времени между собой");
+            }
+            if (maxEnd == null || item.getEndTime().isAfter(maxEnd)) {
+                maxEnd = item.getEndTime();
+            }
+        }
+        timed.addAll(recurring);
+        if (update && transactionOwner != Thread.currentThread()) {
+            return atomically(() -> {
+                T result = action.get();
+                checkOtherShards(timed);
+                return result;
+            });
+        }
+        scheduleLock.lock();
+        try {
+            checkOtherShards(timed);
+            return atomically(action);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // Действие в транзакции всех сегментов; внутри уже открытой транзакции ее откатит владелец
+    private <T> T atomically(Supplier<T> action) {
+        if (transactionOwner == Thread.currentThread()) {
+            return action.get();
+        }
+        T result;
+        begin();
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            rollback();
+            throw e;
+        }
+        commit();
+        return result;
+    }
+
+    private void checkOtherShards(List<Task> timed) {
+        for (Task item : timed) {
+            TaskManager own = item.getId() != 0 ? shardOf(item.getId()) : null;
+            for (TaskManager shard : shards) {
+                if (shard != own && shard.isTasksOverlap(item)) {
+                    throw new TimeConflictException("Задача пакета пересекается по времени с существующей");
+                }
+            }
+        }
+    }
+
+    /**
+     * Транзакция открывается во всех сегментах по порядку и удерживает блокировку расписания,
+     * поэтому commit и rollback должны вызываться в том же потоке.
+     */
+    @Override
+    public void begin() {
+        scheduleLock.lock();
+        int begun = 0;
+        try {
+            for (TaskManager shard : shards) {
+                shard.begin();
+                begun++;
+            }
+        } catch (RuntimeException e) {
+            for (int k = 0; k < begun; k++) {
+                shards.get(k).rollback();
+            }
+            scheduleLock.unlock();
+            throw e;
+        }
+        transactionOwner = Thread.currentThread();
+    }
+
+    @Override
+    public void commit() {
+        finishTransaction(TaskManager::commit);
+    }
+
+    @Override
+    public void rollback() {
+        finishTransaction(TaskManager::rollback);
+    }
+
+    private void finishTransaction(Consumer<TaskManager> action) {
+        if (transactionOwner != Thread.currentThread()) {
+            throw new IllegalStateException("Нет открытой транзакции в текущем потоке");
+        }
+        transactionOwner = null;
+        try {
+            for (TaskManager shard : shards) {
+                action.accept(shard);
+            }
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public void clearAll() {
+        for (TaskManager shard : shards) {
+            shard.clearAll();
+        }
+        synchronized (historyLock) {
+            for (Task task : historyManager.getHistory()) {
+                historyManager.remove(task.getId());
+            }
+        }
+    }
+
+    @Override
+    public void clearAllTasks() {
+        for (TaskManager shard : shards) {
+            forget(shard.getAllTasks());
+            shard.clearAllTasks();
+        }
+    }
+
+    @Override
+    public void clearAllEpics() {
+        for (TaskManager shard : shards) {
+            forget(shard.getAllSubtasks());
+            forget(shard.getAllEpics());
+            shard.clearAllEpics();
+        }
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        for (TaskManager shard : shards) {
+            forget(shard.getAllSubtasks());
+            shard.deleteAllSubtasks();
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        shardOf(id).deleteTaskById(id);
+        forget(id);
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        shardOf(id).deleteSubtaskById(id);
+        forget(id);
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        forgetWithSubtasks(shardOf(id), id);
+        shardOf(id).deleteEpicById(id);
+    }
+
+    private void forgetWithSubtasks(TaskManager shard, int id) {
+        if (shard.getVersion(TaskType.EPIC, id) != 0) {
+            List<Subtask> subtasks = shard.getSubtasksOfEpic(id);
+            if (subtasks != null) {
+                forget(subtasks);
+            }
+        }
+        forget(id);
+    }
+
+    @Override
+    public long getVersion(TaskType type, int id) {
+        return shardOf(id).getVersion(type, id);
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return viewed(shardOf(id).getTaskById(id));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return viewed(shardOf(id).getSubtaskById(id));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return viewed(shardOf(id).getEpicById(id));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return mergeAll(TaskManager::getPrioritizedTasks, BY_START_TIME);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return merge(fanOut(shard -> shard.getPrioritizedTasks(from, to)), BY_START_TIME);
+    }
+
+    @Override
+    public void addListener(TaskChangeListener listener) {
+        shards.forEach(shard -> shard.addListener(listener));
+    }
+
+    @Override
+    public void removeListener(TaskChangeListener listener) {
+        shards.forEach(shard -> shard.removeListener(listener));
+    }
+
+    @Override
+    public List<Task> findTasks(TaskType type, TaskStatus status, LocalDateTime from, LocalDateTime to) {
+        if (from != null || to != null) {
+            return merge(fanOut(shard -> shard.findTasks(type, status, from, to)), BY_START_TIME);
+        }
+        if (status != null) {
+            return merge(fanOut(shard -> shard.findTasks(type, status, null, null)), BY_ID);
+        }
+        List<Task> result = new ArrayList<>();
+        if (type == null || type == TaskType.TASK) {
+            result.addAll(getAllTasks());
+        }
+        if (type == null || type == TaskType.SUBTASK) {
+            result.addAll(getAllSubtasks());
+        }
+        if (type == null || type == TaskType.EPIC) {
+            result.addAll(getAllEpics());
+        }
+        return result;
+    }
+
+    /**
+     * Запрос по id или эпику выполняется в одном сегменте, остальные - во всех со слиянием по id.
+     */
+    @Override
+    public List<Task> query(TaskQuery query) {
+        if (query.getId() != null) {
+            return shardOf(query.getId()).query(query);
+        }
+        if (query.getEpicId() != null) {
+            return shardOf(query.getEpicId()).query(query);
+        }
+        return merge(fanOut(shard -> shard.query(query)), BY_ID);
+    }
+
+    /**
+     * Каждый сегмент архивирует свои задачи сам (эпик и его подзадачи лежат в одном сегменте),
+     * затем из общей истории убираются просмотры сущностей, которых больше нет в сегментах.
+     */
+    @Override
+    public int archiveCompleted() {
+        int archived = 0;
+        for (int count : fanOut(TaskManager::archiveCompleted)) {
+            archived += count;
+        }
+        if (archived > 0) {
+            synchronized (historyLock) {
+                for (Task viewed : historyManager.getHistory()) {
+                    if (shardOf(viewed.getId()).getVersion(viewed.getType(), viewed.getId()) == 0) {
+                        historyManager.remove(viewed.getId());
+                    }
+                }
+            }
+        }
+        return archived;
+    }
+
+    @Override
+    public Task getArchived(int id) {
+        return shardOf(id).getArchived(id);
+    }
+
+    @Override
+    public List<Task> findArchived(TaskQuery query) {
+        if (query.getId() != null) {
+            return shardOf(query.getId()).findArchived(query);
+        }
+        if (query.getEpicId() != null) {
+            return shardOf(query.getEpicId()).findArchived(query);
+        }
+        return merge(fanOut(shard -> shard.findArchived(query)), BY_ID);
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        return merge(fanOut(shard -> shard.search(query, limit)), BY_ID, limit);
+    }
+
+    /**
+     * Окна, свободные во всех сегментах: пересечение упорядоченных списков окон каждого сегмента.
+     * Окно короче duration в одном сегменте не может дать подходящее окно в пересечении,
+     * поэтому сегменты сразу отбрасывают короткие окна.
+     * Сегменты отдают сначала по limit окон. Пересечение точно до конца самого короткого из обрезанных
+     * списков и целиком лежит в этой границе, поэтому, если подходящих окон меньше limit,
+     * запрос повторяется с вдвое большим числом окон.
+     */
+    @Override
+    public List<TimeSlot> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Количество окон должно быть положительным");
+        }
+        int perShardLimit = limit;
+        while (true) {
+            int requested = perShardLimit;
+            List<List<TimeSlot>> perShard = fanOut(shard -> shard.findFreeSlots(duration, from, to, requested));
+            boolean truncated = false;
+            List<TimeSlot> common = perShard.get(0);
+            for (int k = 0; k < perShard.size(); k++) {
+                truncated |= perShard.get(k).size() == requested;
+                if (k > 0) {
+                    common = intersect(common, perShard.get(k));
+                }
+            }
+            List<TimeSlot> result = new ArrayList<>();
+            for (TimeSlot slot : common) {
+                if (result.size() == limit) {
+                    break;
+                }
+                if (!slot.getStart().plus(duration).isAfter(slot.getEnd())) {
+                    result.add(slot);
+                }
+            }
+            if (result.size() == limit || !truncated || requested == Integer.MAX_VALUE) {
+                return result;
+            }
+            perShardLimit = (int) Math.min(Integer.MAX_VALUE, 2L * requested);
+        }
+    }
+
+    private static List<TimeSlot> intersect(List<TimeSlot> first, List<TimeSlot> second) {
+        List<TimeSlot> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < first.size() && j < second.size()) {
+            TimeSlot a = first.get(i);
+            TimeSlot b = second.get(j);
+            LocalDateTime start = a.getStart().isAfter(b.getStart()) ? a.getStart() : b.getStart();
+            LocalDateTime end = a.getEnd().isBefore(b.getEnd()) ? a.getEnd() : b.getEnd();
+            if (!start.isAfter(end)) {
+                result.add(new TimeSlot(start, end));
+            }
+            if (a.getEnd().isBefore(b.getEnd())) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isTasksOverlap(Task task) {
+        if (task.getStartTime() == null || task.getEndTime() == null) {
+            return false;
+        }
+        return fanOut(shard -> shard.isTasksOverlap(task)).contains(true);
+    }
+
+    private static final class Cursor<T> {
+        private final List<? extends T> list;
+        private int index;
+
+        Cursor(List<? extends T> list) {
+            this.list = list;
+        }
+
+        T current() {
+            return list.get(index);
+        }
+
+        boolean advance() {
+            return ++index < list.size();
+        }
+    }
+
+    /**
+     * Аллокатор сегмента k из N: берет номер из общей последовательности и выдает id = номер * N + k,
+     * поэтому сегмент сущности вычисляется по ее id.
+     */
+    private static final class ShardIdAllocator implements IdAllocator {
+        private final IdAllocator inner;
+        private final int shard;
+        private final int shardCount;
+
+        ShardIdAllocator(IdAllocator inner, int shard, int shardCount) {
+            this.inner = inner;
+            this.shard = shard;
+            this.shardCount = shardCount;
+        }
+
+        @Override
+        public int nextId() {
+            return Math.multiplyExact(inner.nextId(), shardCount) + shard;
+        }
+
+        @Override
+        public void reserve(int existingId) {
+            inner.reserve(existingId / shardCount);
+        }
+
+        @Override
+        public int peekNextId() {
+            return inner.peekNextId() * shardCount + shard;
+        }
+    }
+}
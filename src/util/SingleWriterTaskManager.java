@@ -0,0 +1,592 @@
+package util;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+/**
+ * TaskManager с одним потоком-писателем.
+ * Все изменения (и получение по id, которое пишет историю) попадают в ограниченный кольцевой буфер,
+ * поток-писатель применяет их по порядку пачками и после каждой пачки публикует неизменяемый снимок.
+ * Снимок не копирует задачи: писатель получает события внутреннего менеджера и переносит их
+ * в постоянные структуры TaskSnapshot, так что пачка стоит O(log n) на каждую измененную задачу.
+ * Списки задач, история, приоритеты, подзадачи эпика, query и search читаются из последнего снимка без блокировок.
+ * Вызывающий поток дожидается выполнения своей команды, поэтому результат и исключения
+ * (например, TimeConflictException) возвращаются так же, как у обычного менеджера.
+ * Транзакция, открытая begin, занимает поток-писатель до commit или rollback: он выполняет
+ * только команды открывшего ее потока, остальные ждут в очереди, а снимок публикуется после завершения.
+ * Если владелец не присылает команд дольше transactionTimeout, транзакция откатывается,
+ * а следующий его вызов завершается IllegalStateException.
+ */
+public class SingleWriterTaskManager implements TaskManager, AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final Duration DEFAULT_TRANSACTION_TIMEOUT = Duration.ofSeconds(30);
+
+    private final TaskManager delegate;
+    private final BlockingQueue<Command<?>> commands;
+    // команды потока, открывшего транзакцию; постановка владельцем и отмена по таймауту - под монитором очереди
+    private final BlockingQueue<Command<?>> transaction = new LinkedBlockingQueue<>();
+    // потоки, чья транзакция отменена по таймауту и которые еще не узнали об этом
+    private final Set<Thread> aborted = Collections.newSetFromMap(new WeakHashMap<>());
+    // !aborted.isEmpty() для читателей снимка, чтобы не брать монитор при каждом чтении
+    private volatile boolean anyAborted;
+    private final long transactionTimeoutNanos;
+    private final Thread writer;
+    // проверка running и постановка в очередь - под чтением, остановка - под записью
+    private final ReadWriteLock state = new ReentrantReadWriteLock();
+    // состояние для следующего снимка и признак устаревшей истории; используются только потоком-писателем
+    private final TaskSnapshot.Builder pending;
+    private boolean historyChanged;
+    private volatile TaskSnapshot snapshot;
+    private volatile boolean running = true;
+    // поток с открытой транзакцией; меняется только потоком-писателем
+    private volatile Thread owner;
+
+    public SingleWriterTaskManager(TaskManager delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    public SingleWriterTaskManager(TaskManager delegate, int capacity) {
+        this(delegate, capacity, DEFAULT_TRANSACTION_TIMEOUT);
+    }
+
+    /**
+     * @param transactionTimeout сколько транзакция может ждать следующей команды владельца до отката
+     */
+    public SingleWriterTaskManager(TaskManager delegate, int capacity, Duration transactionTimeout) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("TaskManager cannot be null");
+        }
+        if (transactionTimeout == null || transactionTimeout.isNegative() || transactionTimeout.isZero()) {
+            throw new IllegalArgumentException("Таймаут транзакции должен быть положительным");
+        }
+        this.delegate = delegate;
+        this.commands = new ArrayBlockingQueue<>(capacity);
+        this.transactionTimeoutNanos = transactionTimeout.toNanos();
+        this.pending = TaskSnapshot.Builder.of(delegate);
+        this.pending.history(delegate.getHistory());
+        this.snapshot = pending.build(null);
+        // события доставляются в потоке-писателе, который выполняет все изменения
+        delegate.addListener(this::onEvent);
+        this.writer = new Thread(this::writeLoop, "task-manager-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Цикл потока-писателя: забирает все накопившиеся команды, применяет их и публикует снимок.
+     * Команды завершаются только после публикации, чтобы автор изменения сразу видел его в списках.
+     */
+    private void writeLoop() {
+        List<Command<?>> batch = new ArrayList<>();
+        while (running || !commands.isEmpty()) {
+            try {
+                batch.add(commands.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            commands.drainTo(batch);
+            int published = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).apply(delegate);
+                if (owner != null) {
+                    publish(batch.subList(published, i + 1));
+                    published = i + 1;
+                    runTransaction();
+                }
+            }
+            publish(batch.subList(published, batch.size()));
+            batch.clear();
+        }
+    }
+
+    private void publish(List<Command<?>> applied) {
+        if (applied.isEmpty()) {
+            return;
+        }
+        refreshSnapshot();
+        for (Command<?> command : applied) {
+            command.complete();
+        }
+    }
+
+    // Новый снимок только при изменениях: задачи уже перенесены в pending событиями
+    private void refreshSnapshot() {
+        if (historyChanged) {
+            pending.history(delegate.getHistory());
+            historyChanged = false;
+        }
+        if (pending.changed()) {
+            snapshot = pending.build(snapshot);
+        }
+    }
+
+    private void onEvent(TaskEvent event) {
+        pending.apply(event);
+        if (event.getNewValue() == null) {
+            // удаленные задачи уходят и из истории
+            historyChanged = true;
+        }
+    }
+
+    /**
+     * Выполняет команды владельца транзакции, пока он не вызовет commit или rollback.
+     * Промежуточные изменения в снимок не попадают: события внутреннего менеджера
+     * придерживаются до commit и отбрасываются при rollback.
+     */
+    private void runTransaction() {
+        while (owner != null) {
+            Command<?> command;
+            try {
+                command = transaction.poll(transactionTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (command == null) {
+                abortTransaction();
+                continue;
+            }
+            command.apply(delegate);
+            if (owner == null) {
+                refreshSnapshot();
+            }
+            command.complete();
+        }
+    }
+
+    // Откат транзакции, владелец которой не прислал команду вовремя
+    private void abortTransaction() {
+        synchronized (transaction) {
+            if (!transaction.isEmpty()) {
+                // команда пришла одновременно с истечением таймаута
+                return;
+            }
+            aborted.add(owner);
+            anyAborted = true;
+            owner = null;
+        }
+        try {
+            delegate.rollback();
+        } catch (RuntimeException e) {
+            // состояние внутреннего менеджера уже не изменить; писатель продолжает работу
+        }
+        historyChanged = true;
+        refreshSnapshot();
+    }
+
+    private <T> T submit(Function<TaskManager, T> action) {
+        Command<T> command = new Command<>(action);
+        boolean inTransaction;
+        synchronized (transaction) {
+            checkNotAborted();
+            inTransaction = owner == Thread.currentThread();
+            if (inTransaction) {
+                // писатель занят этой транзакцией и не остановится до ее завершения или отмены
+                transaction.add(command);
+            }
+        }
+        if (!inTransaction) {
+            enqueue(command);
+        }
+        try {
+            return command.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Команда, принятая до остановки, обязательно будет выполнена: close ждет окончания постановки в очередь.
+    private void enqueue(Command<?> command) {
+        state.readLock().lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Менеджер задач остановлен");
+            }
+            commands.put(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Поток прерван в ожидании места в очереди", e);
+        } finally {
+            state.readLock().unlock();
+        }
+    }
+
+    // вызывается под монитором transaction
+    private void checkNotAborted() {
+        boolean wasAborted = aborted.remove(Thread.currentThread());
+        anyAborted = !aborted.isEmpty();
+        if (wasAborted) {
+            throw new IllegalStateException("Транзакция отменена: нет команд дольше "
+                    + Duration.ofNanos(transactionTimeoutNanos));
+        }
+    }
+
+    // Владелец транзакции видит свои незафиксированные изменения, остальные - последний снимок
+    private <T> T read(Function<TaskSnapshot, T> published, Function<TaskManager, T> current) {
+        if (owner == Thread.currentThread()) {
+            return submit(current);
+        }
+        if (anyAborted) {
+            synchronized (transaction) {
+                checkNotAborted();
+            }
+        }
+        return published.apply(snapshot);
+    }
+
+    private void submit(Runnable action) {
+        submit(manager -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Останавливает поток-писатель после выполнения уже принятых команд.
+     */
+    @Override
+    public void close() {
+        if (owner == Thread.currentThread()) {
+            throw new IllegalStateException("Нельзя остановить менеджер задач внутри транзакции");
+        }
+        state.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+        } finally {
+            state.writeLock().unlock();
+        }
+        // пустая команда будит писателя, если очередь пуста
+        commands.offer(new Command<>(manager -> null));
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        return submit(manager -> manager.createTask(task));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return submit(manager -> manager.createEpic(epic));
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        return submit(manager -> manager.createSubtask(subtask));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return read(TaskSnapshot::tasks, TaskManager::getAllTasks);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return read(TaskSnapshot::subtasks, TaskManager::getAllSubtasks);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return read(TaskSnapshot::epics, TaskManager::getAllEpics);
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksOfEpic(int epicId) {
+        return read(published -> published.subtasksOf(epicId), manager -> manager.getSubtasksOfEpic(epicId));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return read(TaskSnapshot::history, TaskManager::getHistory);
+    }
+
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        submit(() -> delegate.updateEpicStatus(epic));
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        return submit(manager -> manager.updateTask(task));
+    }
+
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        return submit(manager -> manager.updateSubtask(subtask));
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        return submit(manager -> manager.updateEpic(epic));
+    }
+
+    @Override
+    public List<Task> createAll(Collection<? extends Task> items) {
+        return submit(manager -> manager.createAll(items));
+    }
+
+    @Override
+    public List<Task> updateAll(Collection<? extends Task> items) {
+        return submit(manager -> manager.updateAll(items));
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        submit(() -> delegate.deleteAll(ids));
+    }
+
+    /**
+     * Открывает транзакцию и занимает ею поток-писатель; commit или rollback должны вызываться
+     * в том же потоке, команды остальных потоков ждут ее завершения.
+     */
+    @Override
+    public void begin() {
+        Thread caller = Thread.currentThread();
+        submit(manager -> {
+            manager.begin();
+            owner = caller;
+            return null;
+        });
+    }
+
+    @Override
+    public void commit() {
+        finishTransaction(TaskManager::commit);
+    }
+
+    @Override
+    public void rollback() {
+        finishTransaction(TaskManager::rollback);
+    }
+
+    private void finishTransaction(Consumer<TaskManager> action) {
+        synchronized (transaction) {
+            checkNotAborted();
+        }
+        if (owner != Thread.currentThread()) {
+            throw new IllegalStateException("Нет открытой транзакции в текущем потоке");
+        }
+        submit(manager -> {
+            try {
+                action.accept(manager);
+            } finally {
+                owner = null;
+                // в транзакции задачи могли читаться по id
+                historyChanged = true;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет действия в потоке-писателе одной командой, без отдельных команд на begin и commit;
+     * work получает внутренний менеджер, другие команды между его операциями не выполняются.
+     */
+    @Override
+    public void inTransaction(Consumer<TaskManager> work) {
+        submit(manager -> {
+            // work может читать задачи по id
+            historyChanged = true;
+            manager.inTransaction(work);
+            return null;
+        });
+    }
+
+    @Override
+    public void clearAll() {
+        submit(delegate::clearAll);
+    }
+
+    @Override
+    public void clearAllTasks() {
+        submit(delegate::clearAllTasks);
+    }
+
+    @Override
+    public void clearAllEpics() {
+        submit(delegate::clearAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        submit(delegate::deleteAllSubtasks);
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        submit(() -> delegate.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        submit(() -> delegate.deleteSubtaskById(id));
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        submit(() -> delegate.deleteEpicById(id));
+    }
+
+    @Override
+    public long getVersion(TaskType type, int id) {
+        return read(published -> published.version(type, id), manager -> manager.getVersion(type, id));
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return submit(manager -> {
+            historyChanged = true;
+            return manager.getTaskById(id);
+        });
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return submit(manager -> {
+            historyChanged = true;
+            return manager.getSubtaskById(id);
+        });
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return submit(manager -> {
+            historyChanged = true;
+            return manager.getEpicById(id);
+        });
+    }
+
+    // События доставляются в потоке-писателе
+
+    @Override
+    public void addListener(TaskChangeListener listener) {
+        delegate.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(TaskChangeListener listener) {
+        delegate.removeListener(listener);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(TaskSnapshot::prioritized, TaskManager::getPrioritizedTasks);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return submit(manager -> manager.getPrioritizedTasks(from, to));
+    }
+
+    @Override
+    public boolean isTasksOverlap(Task task) {
+        return submit(manager -> manager.isTasksOverlap(task));
+    }
+
+    @Override
+    public List<Task> findTasks(TaskType type, TaskStatus status, LocalDateTime from, LocalDateTime to) {
+        return submit(manager -> manager.findTasks(type, status, from, to));
+    }
+
+    @Override
+    public List<Task> autoSchedule(List<? extends Task> items, LocalDateTime from, LocalDateTime to) {
+        return submit(manager -> manager.autoSchedule(items, from, to));
+    }
+
+    @Override
+    public List<Task> query(TaskQuery query) {
+        return read(published -> published.query(query), manager -> manager.query(query));
+    }
+
+    @Override
+    public int archiveCompleted() {
+        return submit(TaskManager::archiveCompleted);
+    }
+
+    @Override
+    public Task getArchived(int id) {
+        return submit(manager -> manager.getArchived(id));
+    }
+
+    @Override
+    public List<Task> findArchived(TaskQuery query) {
+        return submit(manager -> manager.findArchived(query));
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Количество результатов должно быть положительным");
+        }
+        return read(published -> published.search(query, limit), manager -> manager.search(query, limit));
+    }
+
+    @Override
+    public List<TimeSlot> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit) {
+        return submit(manager -> manager.findFreeSlots(duration, from, to, limit));
+    }
+
+    private static class Command<T> {
+        final Function<TaskManager, T> action;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        T value;
+        Throwable error;
+
+        Command(Function<TaskManager, T> action) {
+            this.action = action;
+        }
+
+        void apply(TaskManager manager) {
+            try {
+                value = action.apply(manager);
+            } catch (Throwable e) {
+                // даже Error не должен останавливать писателя: иначе вызывающие ждали бы ответа вечно
+                error = e;
+            }
+        }
+
+        void complete() {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+}
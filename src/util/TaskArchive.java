@@ -0,0 +1,25 @@
+package util;
+
+import java.util.Collection;
+import java.util.List;
+
+import tasks.Task;
+
+/**
+ * Холодное хранилище завершенных задач, вынесенных из памяти менеджера.
+ * Записи только добавляются; id в архиве не повторяются, потому что менеджер не выдает их повторно.
+ */
+public interface TaskArchive {
+    // Сохраняет задачи; при ошибке записи ManagerSaveException, менеджер в этом случае ничего не убирает
+    void store(Collection<? extends Task> items);
+
+    // Задача из архива по id или null
+    Task get(int id);
+
+    // Задачи архива, удовлетворяющие запросу, по возрастанию id
+    List<Task> find(TaskQuery query);
+
+    boolean contains(int id);
+
+    int size();
+}
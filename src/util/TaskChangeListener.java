@@ -0,0 +1,10 @@
+package util;
+
+/**
+ * Подписчик на изменения в менеджере задач.
+ * Вызывается синхронно в потоке, выполнившем изменение, поэтому должен работать быстро.
+ */
+@FunctionalInterface
+public interface TaskChangeListener {
+    void onEvent(TaskEvent event);
+}
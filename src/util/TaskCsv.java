@@ -0,0 +1,96 @@
+package util;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import tasks.Epic;
+import tasks.Recurrence;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+/**
+ * Формат строки CSV, в котором задачи хранятся в файле менеджера и в архиве.
+ */
+final class TaskCsv {
+    static final String HEADER = "id,type,name,status,description,startTime,duration,epic,recurrence";
+
+    private TaskCsv() {
+    }
+
+    /**
+     * Преобразование задачи в строку CSV
+     *
+     * @param task Задача для преобразования
+     * @return Строка в формате CSV
+     */
+    static String toLine(Task task) {
+        StringBuilder result = new StringBuilder()
+                .append(task.getId()).append(",")
+                .append(task.getType()).append(",")
+                .append(task.getTitle()).append(",")
+                .append(task.getStatus()).append(",")
+                .append(task.getDescription()).append(",")
+                .append(task.getStartTime() != null ? task.getStartTime() : "").append(",")
+                .append(task.getDuration() != null ? task.getDuration().toMinutes() : "");
+
+        if (task.getType() == TaskType.SUBTASK) {
+            result.append(",").append(((Subtask) task).getEpicId());
+        } else if (task.isRecurring()) {
+            // у задачи колонка эпика пустая, правило повторения - в следующей
+            result.append(",,").append(task.getRecurrence().format());
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Преобразование строки CSV в объект задачи
+     *
+     * @param value - строка с данными задачи
+     * @return - объект задачи (Task, Epic или Subtask)
+     */
+    static Task fromLine(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        String[] data = value.split(",");
+        if (data.length < 7) {
+            throw new IllegalArgumentException("Некорректная строка " + value);
+        }
+        try {
+            int id = Integer.parseInt(data[0]);
+            TaskType type = TaskType.valueOf(data[1]);
+            String title = data[2];
+            TaskStatus status = TaskStatus.valueOf(data[3]);
+            String description = data[4];
+
+            // Обработка времени начала и продолжительности
+            LocalDateTime startTime = data[5].isEmpty() ? null : LocalDateTime.parse(data[5]);
+            Duration duration = data[6].isEmpty() ? null : Duration.ofMinutes(Long.parseLong(data[6]));
+
+            switch (type) {
+                case TASK:
+                    Task task = new Task(id, title, description, status, startTime, duration);
+                    if (data.length > 8 && !data[8].isEmpty()) {
+                        task.setRecurrence(Recurrence.parse(data[8]));
+                    }
+                    return task;
+                case EPIC:
+                    Epic epic = new Epic(id, title, description, status, startTime, duration);
+                    return epic;
+                case SUBTASK:
+                    if (data.length < 8 || data[7].isEmpty()) {
+                        throw new IllegalArgumentException("Для подзадачи не указан эпик: " + value);
+                    }
+                    int epicId = Integer.parseInt(data[7]);
+                    return new Subtask(id, title, description, status, epicId, startTime, duration);
+                default:
+                    throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Ошибка парсинга строки: " + value, e);
+        }
+    }
+}
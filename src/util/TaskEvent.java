@@ -0,0 +1,60 @@
+package util;
+
+import tasks.Task;
+
+/**
+ * Событие изменения задачи, подзадачи или эпика.
+ * oldValue и newValue - неизменяемые версии до и после изменения (null для создания и удаления соответственно),
+ * sequence растет на единицу с каждым доставленным событием менеджера.
+ */
+public final class TaskEvent {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        ARCHIVED, // сущность перенесена в архив и больше не хранится в менеджере
+        EPIC_RECALCULATED // пересчитаны статус и время эпика после изменения его подзадач
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Task oldValue;
+    private final Task newValue;
+
+    TaskEvent(long sequence, Type type, Task oldValue, Task newValue) {
+        this.sequence = sequence;
+        this.type = type;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Task getOldValue() {
+        return oldValue;
+    }
+
+    public Task getNewValue() {
+        return newValue;
+    }
+
+    // id сущности, к которой относится событие
+    public int getId() {
+        return newValue != null ? newValue.getId() : oldValue.getId();
+    }
+
+    @Override
+    public String toString() {
+        return "TaskEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", id=" + getId() +
+                '}';
+    }
+}
@@ -1,11 +1,17 @@
 package util;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import tasks.Epic;
 import tasks.Subtask;
 import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
 
 
 public interface TaskManager {
@@ -20,11 +26,26 @@ public interface TaskManager {
 
     //Получение списков задач
 
-    ArrayList<Task> getAllTasks();
+    List<Task> getAllTasks();
 
-    ArrayList<Subtask> getAllSubtasks();
+    List<Subtask> getAllSubtasks();
 
-    ArrayList<Epic> getAllEpics();
+    List<Epic> getAllEpics();
+
+    // Постраничное получение списков: списки getAll* упорядочены по id,
+    // cursor - id последнего элемента предыдущей страницы (0 для первой страницы)
+
+    default Page<Task> getTasksPage(int cursor, int limit) {
+        return Page.of(getAllTasks(), cursor, limit);
+    }
+
+    default Page<Subtask> getSubtasksPage(int cursor, int limit) {
+        return Page.of(getAllSubtasks(), cursor, limit);
+    }
+
+    default Page<Epic> getEpicsPage(int cursor, int limit) {
+        return Page.of(getAllEpics(), cursor, limit);
+    }
 
     ArrayList<Subtask> getSubtasksOfEpic(int epicId);
 
@@ -40,6 +61,36 @@ public interface TaskManager {
 
     Epic updateEpic(Epic epic);
 
+    // Пакетные операции: пакет проверяется целиком и применяется только при отсутствии ошибок
+
+    List<Task> createAll(Collection<? extends Task> items);
+
+    List<Task> updateAll(Collection<? extends Task> items);
+
+    void deleteAll(Collection<Integer> ids);
+
+    // Транзакции: изменения между begin и commit отменяются вызовом rollback
+
+    void begin();
+
+    void commit();
+
+    void rollback();
+
+    /**
+     * Выполняет действия в одной транзакции: при исключении все их изменения откатываются.
+     */
+    default void inTransaction(Consumer<TaskManager> work) {
+        begin();
+        try {
+            work.accept(this);
+        } catch (RuntimeException | Error e) {
+            rollback();
+            throw e;
+        }
+        commit();
+    }
+
     //удаление задач
 
     void clearAll();
@@ -56,6 +107,9 @@ public interface TaskManager {
 
     void deleteEpicById(int id);
 
+    // Версия сущности (меняется при каждом ее изменении) или 0, если ее нет; историю не затрагивает
+    long getVersion(TaskType type, int id);
+
     Task getTaskById(int id);
 
     Subtask getSubtaskById(int id);
@@ -64,8 +118,74 @@ public interface TaskManager {
 
     List<Task> getPrioritizedTasks();
 
+    // Подписка на события изменений (создание, обновление, удаление, пересчет эпика)
+
+    void addListener(TaskChangeListener listener);
+
+    void removeListener(TaskChangeListener listener);
+
+    // Поиск по типу, статусу и времени начала в интервале [from, to); null - без ограничения.
+    // По времени находятся только задачи и подзадачи, у которых задано время начала
+    List<Task> findTasks(TaskType type, TaskStatus status, LocalDateTime from, LocalDateTime to);
+
+    // Задачи, удовлетворяющие всем условиям запроса, по возрастанию id.
+    // Кандидаты берутся из самого избирательного индекса, остальные условия проверяются для каждого
+    List<Task> query(TaskQuery query);
+
+    // Задачи всех типов, содержащие каждое слово запроса в названии или описании
+    // (слово запроса может быть началом слова), по возрастанию id, не больше limit
+    List<Task> search(String query, int limit);
+
+    // Свободные окна в [from, to], в которые помещается задача длительностью duration (не больше limit)
+    List<TimeSlot> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit);
+
     boolean isTasksOverlap(Task task);
 
+    // Задачи, подзадачи и вхождения повторяющихся задач, начинающиеся в [from, to), по времени начала.
+    // Вхождение - копия серии с ее id и временем начала вхождения; getPrioritizedTasks() без интервала
+    // содержит только разовые задачи, потому что у серии без until вхождений бесконечно много
+    List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to);
+
+    // Перенос в архив задач DONE и эпиков, все подзадачи которых DONE (вместе с подзадачами);
+    // возвращает число перенесенных сущностей. IllegalStateException, если архив не настроен
+    int archiveCompleted();
+
+    // Задача из архива по id или null; историю не затрагивает
+    Task getArchived(int id);
+
+    // Задачи архива, удовлетворяющие запросу, по возрастанию id
+    List<Task> findArchived(TaskQuery query);
+
+    /**
+     * Назначает время начала существующим задачам и подзадачам без времени: каждая по порядку списка
+     * (вызывающий упорядочивает его по приоритету или сроку) попадает в самое раннее свободное окно
+     * в [from, to], куда помещается ее длительность. Занятое время - prioritizedTasks.
+     * Изменения применяются одним пакетом updateAll; задачи, которым не хватило места, не меняются.
+     *
+     * @return задачи, получившие время, в порядке списка
+     */
+    default List<Task> autoSchedule(List<? extends Task> items, LocalDateTime from, LocalDateTime to) {
+        if (items == null) {
+            throw new IllegalArgumentException("Список задач не может быть null");
+        }
+        AutoScheduler.checkUnscheduled(items);
+        if (items.isEmpty()) {
+            return List.of();
+        }
+        Duration shortest = items.getFirst().getDuration();
+        for (Task item : items) {
+            if (item.getDuration().compareTo(shortest) < 0) {
+                shortest = item.getDuration();
+            }
+        }
+        List<TimeSlot> slots = findFreeSlots(shortest, from, to, Integer.MAX_VALUE);
+        List<Task> scheduled = AutoScheduler.assign(slots, items);
+        if (scheduled.isEmpty()) {
+            return scheduled;
+        }
+        return updateAll(scheduled);
+    }
+
 }
 
 
@@ -0,0 +1,206 @@
+package util;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+/**
+ * Составной запрос к задачам: все заданные условия должны выполняться одновременно.
+ * Время начала ограничивается интервалом [startFrom, startTo); null - без ограничения.
+ * Текстовая форма - условия через AND, например
+ * {@code status=NEW AND type=SUBTASK AND epicId=3 AND startTime>=2025-07-01T00:00 AND startTime<2025-08-01T00:00}
+ */
+public final class TaskQuery {
+    private final Integer id;
+    private final TaskType type;
+    private final TaskStatus status;
+    private final Integer epicId;
+    private final LocalDateTime startFrom;
+    private final LocalDateTime startTo;
+
+    private TaskQuery(Builder builder) {
+        this.id = builder.id;
+        this.type = builder.type;
+        this.status = builder.status;
+        this.epicId = builder.epicId;
+        this.startFrom = builder.startFrom;
+        this.startTo = builder.startTo;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Разбирает текстовую форму запроса.
+     *
+     * @throws IllegalArgumentException если условие не распознано
+     */
+    public static TaskQuery parse(String text) {
+        Builder builder = builder();
+        if (text == null || text.isBlank()) {
+            return builder.build();
+        }
+        for (String condition : text.trim().split("(?i)\\s+AND\\s+")) {
+            parseCondition(builder, condition.trim());
+        }
+        return builder.build();
+    }
+
+    private static void parseCondition(Builder builder, String condition) {
+        String operator;
+        if (condition.contains(">=")) {
+            operator = ">=";
+        } else if (condition.contains("<")) {
+            operator = "<";
+        } else if (condition.contains("=")) {
+            operator = "=";
+        } else {
+            throw new IllegalArgumentException("Некорректное условие: " + condition);
+        }
+        int position = condition.indexOf(operator);
+        String field = condition.substring(0, position).trim();
+        String value = condition.substring(position + operator.length()).trim();
+        try {
+            switch (field + operator) {
+                case "id=" -> builder.id(Integer.parseInt(value));
+                case "type=" -> builder.type(TaskType.valueOf(value.toUpperCase(Locale.ROOT)));
+                case "status=" -> builder.status(TaskStatus.valueOf(value.toUpperCase(Locale.ROOT)));
+                case "epicId=" -> builder.epicId(Integer.parseInt(value));
+                case "startTime>=" -> builder.startFrom(LocalDateTime.parse(value));
+                case "startTime<" -> builder.startTo(LocalDateTime.parse(value));
+                default -> throw new IllegalArgumentException("Неизвестное условие: " + condition);
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Время должно быть в формате ISO (2025-07-21T08:00): " + condition);
+        }
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public Integer getEpicId() {
+        return epicId;
+    }
+
+    public LocalDateTime getStartFrom() {
+        return startFrom;
+    }
+
+    public LocalDateTime getStartTo() {
+        return startTo;
+    }
+
+    public boolean hasTimeRange() {
+        return startFrom != null || startTo != null;
+    }
+
+    /**
+     * Тот же запрос, ограниченный типом задач.
+     */
+    public TaskQuery withType(TaskType type) {
+        return toBuilder().type(type).build();
+    }
+
+    public Builder toBuilder() {
+        return builder().id(id).type(type).status(status).epicId(epicId).startFrom(startFrom).startTo(startTo);
+    }
+
+    /**
+     * Проверка всех условий запроса для одной задачи.
+     */
+    public boolean matches(Task task) {
+        if (task == null) {
+            return false;
+        }
+        if (id != null && task.getId() != id) {
+            return false;
+        }
+        if (type != null && task.getType() != type) {
+            return false;
+        }
+        if (status != null && task.getStatus() != status) {
+            return false;
+        }
+        if (epicId != null && !(task instanceof Subtask subtask && subtask.getEpicId() == epicId)) {
+            return false;
+        }
+        if (hasTimeRange()) {
+            LocalDateTime start = task.getStartTime();
+            if (start == null) {
+                return false;
+            }
+            if (startFrom != null && start.isBefore(startFrom)) {
+                return false;
+            }
+            return startTo == null || start.isBefore(startTo);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskQuery{id=" + id + ", type=" + type + ", status=" + status + ", epicId=" + epicId
+                + ", startFrom=" + startFrom + ", startTo=" + startTo + '}';
+    }
+
+    public static final class Builder {
+        private Integer id;
+        private TaskType type;
+        private TaskStatus status;
+        private Integer epicId;
+        private LocalDateTime startFrom;
+        private LocalDateTime startTo;
+
+        private Builder() {
+        }
+
+        public Builder id(Integer id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder type(TaskType type) {
+            this.type = type;
+            return this;
+        }
+
+        public Builder status(TaskStatus status) {
+            this.status = status;
+            return this;
+        }
+
+        public Builder epicId(Integer epicId) {
+            this.epicId = epicId;
+            return this;
+        }
+
+        public Builder startFrom(LocalDateTime startFrom) {
+            this.startFrom = startFrom;
+            return this;
+        }
+
+        public Builder startTo(LocalDateTime startTo) {
+            this.startTo = startTo;
+            return this;
+        }
+
+        public TaskQuery build() {
+            return new TaskQuery(this);
+        }
+    }
+}
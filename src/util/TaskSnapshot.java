@@ -0,0 +1,490 @@
+package util;
+
+import collections.PersistentIntMap;
+import collections.PersistentIntSet;
+import collections.PersistentSortedMap;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+/**
+ * Неизменяемый снимок состояния менеджера для чтения без блокировок.
+ * Хранилища, индекс по статусу, порядок по времени начала и индекс слов - постоянные структуры:
+ * следующий снимок получается из предыдущего изменением только затронутых путей (Builder.apply),
+ * а не копированием всех задач. Списки строятся при первом чтении и переходят в следующий снимок,
+ * если их хранилище не менялось.
+ * Запросы и поиск повторяют InMemoryTaskManager.query и search, но над структурами снимка.
+ */
+final class TaskSnapshot {
+    private static final Comparator<TimeKey> BY_START = Comparator.comparing(TimeKey::start).thenComparingInt(TimeKey::id);
+
+    private final PersistentIntMap<Task> tasks;
+    private final PersistentIntMap<Subtask> subtasks;
+    private final PersistentIntMap<Epic> epics;
+    private final Map<TaskStatus, PersistentIntSet> idsByStatus;
+    // задачи и подзадачи со временем начала, кроме повторяющихся, - как prioritizedTasks менеджера
+    private final PersistentSortedMap<TimeKey, Task> prioritized;
+    private final PersistentSortedMap<String, PersistentIntSet> postings;
+    private final PersistentIntMap<Words> words;
+    // история в порядке просмотров; версии заменяются текущими при чтении
+    private final List<Task> viewed;
+
+    private final Lazy<Task> taskList;
+    private final Lazy<Subtask> subtaskList;
+    private final Lazy<Epic> epicList;
+    private final Lazy<Task> prioritizedList;
+    private final Lazy<Task> historyList;
+
+    private TaskSnapshot(Builder builder, TaskSnapshot previous) {
+        this.tasks = builder.tasks;
+        this.subtasks = builder.subtasks;
+        this.epics = builder.epics;
+        this.idsByStatus = Collections.unmodifiableMap(new EnumMap<>(builder.idsByStatus));
+        this.prioritized = builder.prioritized;
+        this.postings = builder.postings;
+        this.words = builder.words;
+        this.viewed = builder.viewed;
+        boolean same = previous != null;
+        taskList = same && previous.tasks == tasks ? previous.taskList : new Lazy<>(tasks::values);
+        subtaskList = same && previous.subtasks == subtasks ? previous.subtaskList : new Lazy<>(subtasks::values);
+        epicList = same && previous.epics == epics ? previous.epicList : new Lazy<>(epics::values);
+        prioritizedList = same && previous.prioritized == prioritized
+                ? previous.prioritizedList : new Lazy<>(prioritized::values);
+        historyList = same && previous.viewed == viewed && previous.tasks == tasks
+                && previous.subtasks == subtasks && previous.epics == epics
+                ? previous.historyList : new Lazy<>(this::resolveHistory);
+    }
+
+    List<Task> tasks() {
+        return taskList.get();
+    }
+
+    List<Subtask> subtasks() {
+        return subtaskList.get();
+    }
+
+    List<Epic> epics() {
+        return epicList.get();
+    }
+
+    List<Task> prioritized() {
+        return prioritizedList.get();
+    }
+
+    List<Task> history() {
+        return historyList.get();
+    }
+
+    private List<Task> resolveHistory() {
+        List<Task> history = new ArrayList<>(viewed.size());
+        for (Task task : viewed) {
+            Task current = findById(task.getId());
+            history.add(current != null ? current : task);
+        }
+        return history;
+    }
+
+    ArrayList<Subtask> subtasksOf(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic == null) {
+            return null;
+        }
+        ArrayList<Subtask> result = new ArrayList<>(epic.getSubtaskId().size());
+        epic.getSubtaskId().forEach(id -> {
+            Subtask subtask = subtasks.get(id);
+            if (subtask != null) {
+                result.add(subtask);
+            }
+        });
+        return result;
+    }
+
+    long version(TaskType type, int id) {
+        Task task = storageOf(type).get(id);
+        return task == null ? 0 : task.getVersion();
+    }
+
+    /**
+     * То же, что InMemoryTaskManager.query: кандидаты из самого узкого индекса, остальные условия
+     * проверяются для каждого, результат упорядочен по id.
+     */
+    List<Task> query(TaskQuery query) {
+        List<Task> result = new ArrayList<>();
+        switch (explain(query)) {
+            case ID -> result.add(findById(query.getId()));
+            case EPIC -> {
+                Epic epic = epics.get(query.getEpicId());
+                if (epic != null) {
+                    epic.getSubtaskId().forEach(id -> result.add(subtasks.get(id)));
+                }
+            }
+            case STATUS -> idsByStatus.get(query.getStatus()).forEach(id -> result.add(findById(id)));
+            case TIME -> forEachStarting(query.getStartFrom(), query.getStartTo(), result::add);
+            case TYPE -> storageOf(query.getType()).forEach(result::add);
+            case SCAN -> {
+                tasks.forEach(result::add);
+                subtasks.forEach(result::add);
+                epics.forEach(result::add);
+            }
+        }
+        result.removeIf(task -> !query.matches(task));
+        result.sort(Comparator.comparingInt(Task::getId));
+        return result;
+    }
+
+    // выбор индекса по тем же правилам, что InMemoryTaskManager.explain
+    private QueryPlan explain(TaskQuery query) {
+        if (query.getId() != null) {
+            return QueryPlan.ID;
+        }
+        QueryPlan plan = QueryPlan.SCAN;
+        long best = (long) tasks.size() + subtasks.size() + epics.size();
+        if (query.getEpicId() != null) {
+            Epic epic = epics.get(query.getEpicId());
+            int size = epic == null ? 0 : epic.getSubtaskId().size();
+            if (size < best) {
+                plan = QueryPlan.EPIC;
+                best = size;
+            }
+        }
+        if (query.getStatus() != null && idsByStatus.get(query.getStatus()).size() < best) {
+            plan = QueryPlan.STATUS;
+            best = idsByStatus.get(query.getStatus()).size();
+        }
+        if (query.getType() != null && storageOf(query.getType()).size() < best) {
+            plan = QueryPlan.TYPE;
+            best = storageOf(query.getType()).size();
+        }
+        if (query.hasTimeRange() && query.getType() != TaskType.EPIC) {
+            long limit = best;
+            long[] count = new long[1];
+            forEachStarting(query.getStartFrom(), query.getStartTo(), task -> ++count[0] < limit);
+            if (count[0] < best) {
+                plan = QueryPlan.TIME;
+            }
+        }
+        return plan;
+    }
+
+    // задачи с началом в [from, to) по возрастанию времени, пока action возвращает true
+    private void forEachStarting(LocalDateTime from, LocalDateTime to, Predicate<Task> action) {
+        TimeKey start = from == null ? null : new TimeKey(from, Integer.MIN_VALUE);
+        prioritized.forEachFrom(start, (key, task) -> (to == null || key.start().isBefore(to)) && action.test(task));
+    }
+
+    /**
+     * То же, что InMemoryTaskManager.search: не больше limit наименьших id задач, содержащих
+     * каждое слово запроса как слово или начало слова. Как в TextIndex, выбирается дешевый из способов:
+     * сбор id самого редкого слова или обход задач по возрастанию id с проверкой их слов.
+     */
+    List<Task> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextIndex.tokenize(query)));
+        List<Task> result = new ArrayList<>(Math.min(limit, 64));
+        if (terms.isEmpty()) {
+            return result;
+        }
+        long threshold = (long) Math.sqrt((double) limit * words.size()) + 1;
+        String rarest = null;
+        long rarestSize = threshold;
+        for (String term : terms) {
+            long size = sizeUpTo(term, rarestSize);
+            if (size == 0) {
+                return result;
+            }
+            if (size < rarestSize || rarest == null) {
+                rarest = term;
+                rarestSize = size;
+            }
+        }
+        if (rarestSize < threshold) {
+            for (int id : collect(terms, rarest, limit, 0)) {
+                result.add(findById(id));
+            }
+            return result;
+        }
+        // При частых словах совпадения плотные и обход останавливается почти сразу; если они реже
+        // ожидаемого, после нескольких ожидаемых длин обхода остаток собирается по самому редкому слову
+        long budget = 4 * threshold;
+        long[] steps = {0};
+        int[] stoppedAt = {0};
+        words.forEachWhile(entry -> {
+            if (++steps[0] > budget) {
+                stoppedAt[0] = entry.id();
+                return false;
+            }
+            if (entry.matchesAll(terms)) {
+                result.add(findById(entry.id()));
+            }
+            return result.size() < limit;
+        });
+        if (stoppedAt[0] > 0) {
+            for (int id : collect(terms, rarest, limit - result.size(), stoppedAt[0])) {
+                result.add(findById(id));
+            }
+        }
+        return result;
+    }
+
+    // число id слов с префиксом term, но не больше cap
+    private long sizeUpTo(String term, long cap) {
+        long[] size = new long[1];
+        forEachWithPrefix(term, ids -> (size[0] += ids.size()) < cap);
+        return Math.min(size[0], cap);
+    }
+
+    // совпадения среди id самого редкого слова, не меньше fromId
+    private int[] collect(List<String> terms, String rarest, int limit, int fromId) {
+        IntHashSet matches = new IntHashSet();
+        forEachWithPrefix(rarest, ids -> {
+            ids.forEach(id -> {
+                if (id >= fromId && (terms.size() == 1 || words.get(id).matchesAll(terms))) {
+                    matches.add(id);
+                }
+            });
+            return true;
+        });
+        int[] sorted = matches.toArray();
+        Arrays.sort(sorted);
+        return Arrays.copyOf(sorted, Math.min(sorted.length, limit));
+    }
+
+    // id всех слов, начинающихся с prefix, пока action возвращает true
+    private void forEachWithPrefix(String prefix, Predicate<PersistentIntSet> action) {
+        postings.forEachFrom(prefix, (word, ids) -> word.startsWith(prefix) && action.test(ids));
+    }
+
+    private Task findById(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = subtasks.get(id);
+        }
+        if (task == null) {
+            task = epics.get(id);
+        }
+        return task;
+    }
+
+    private PersistentIntMap<? extends Task> storageOf(TaskType type) {
+        return switch (type) {
+            case TASK -> tasks;
+            case SUBTASK -> subtasks;
+            case EPIC -> epics;
+        };
+    }
+
+    private record TimeKey(LocalDateTime start, int id) {
+    }
+
+    private record Words(int id, String[] words) {
+        static Words of(Task task) {
+            List<String> all = TextIndex.tokenize(task.getTitle());
+            all.addAll(TextIndex.tokenize(task.getDescription()));
+            return new Words(task.getId(), all.toArray(String[]::new));
+        }
+
+        // каждое слово запроса - слово задачи или начало одного из ее слов
+        boolean matchesAll(List<String> terms) {
+            for (String term : terms) {
+                boolean found = false;
+                for (String word : words) {
+                    if (word.startsWith(term)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Список, собираемый при первом чтении; гонка двух читателей приводит лишь к двум одинаковым спискам.
+     */
+    private static final class Lazy<T> {
+        private final Supplier<List<T>> builder;
+        private volatile List<T> value;
+
+        Lazy(Supplier<List<T>> builder) {
+            this.builder = builder;
+        }
+
+        List<T> get() {
+            List<T> current = value;
+            if (current == null) {
+                current = Collections.unmodifiableList(builder.get());
+                value = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Изменяемое состояние потока-писателя: события менеджера переносятся в постоянные структуры,
+     * build фиксирует их в новом снимке. Каждое событие стоит O(log n) плюс слова измененной задачи.
+     */
+    static final class Builder {
+        private PersistentIntMap<Task> tasks = PersistentIntMap.empty();
+        private PersistentIntMap<Subtask> subtasks = PersistentIntMap.empty();
+        private PersistentIntMap<Epic> epics = PersistentIntMap.empty();
+        private final Map<TaskStatus, PersistentIntSet> idsByStatus = new EnumMap<>(TaskStatus.class);
+        private PersistentSortedMap<TimeKey, Task> prioritized = PersistentSortedMap.empty(BY_START);
+        private PersistentSortedMap<String, PersistentIntSet> postings =
+                PersistentSortedMap.empty(Comparator.naturalOrder());
+        private PersistentIntMap<Words> words = PersistentIntMap.empty();
+        private List<Task> viewed = List.of();
+        private boolean changed = true;
+
+        Builder() {
+            for (TaskStatus status : TaskStatus.values()) {
+                idsByStatus.put(status, PersistentIntSet.empty());
+            }
+        }
+
+        /**
+         * Состояние со всеми задачами менеджера; история не заполняется.
+         */
+        static Builder of(TaskManager manager) {
+            Builder builder = new Builder();
+            manager.getAllTasks().forEach(builder::put);
+            manager.getAllSubtasks().forEach(builder::put);
+            manager.getAllEpics().forEach(builder::put);
+            return builder;
+        }
+
+        void apply(TaskEvent event) {
+            if (event.getNewValue() != null) {
+                put(event.getNewValue());
+            } else {
+                remove(event.getOldValue().getId());
+            }
+        }
+
+        void history(List<Task> viewed) {
+            this.viewed = List.copyOf(viewed);
+            changed = true;
+        }
+
+        boolean changed() {
+            return changed;
+        }
+
+        TaskSnapshot build(TaskSnapshot previous) {
+            changed = false;
+            return new TaskSnapshot(this, previous);
+        }
+
+        private void put(Task task) {
+            Task stored = find(task.getId());
+            if (stored == task) {
+                return;
+            }
+            if (stored != null) {
+                unindex(stored);
+            }
+            if (task instanceof Epic epic) {
+                epics = epics.with(epic.getId(), epic);
+            } else if (task instanceof Subtask subtask) {
+                subtasks = subtasks.with(subtask.getId(), subtask);
+            } else {
+                tasks = tasks.with(task.getId(), task);
+            }
+            index(task, stored);
+            changed = true;
+        }
+
+        private void remove(int id) {
+            Task stored = find(id);
+            if (stored == null) {
+                return;
+            }
+            unindex(stored);
+            tasks = tasks.without(id);
+            subtasks = subtasks.without(id);
+            epics = epics.without(id);
+            unindexWords(stored);
+            changed = true;
+        }
+
+        private void index(Task task, Task previous) {
+            if (task.getStatus() != null) {
+                idsByStatus.computeIfPresent(task.getStatus(), (status, ids) -> ids.with(task.getId()));
+            }
+            if (isPrioritized(task)) {
+                prioritized = prioritized.with(new TimeKey(task.getStartTime(), task.getId()), task);
+            }
+            if (previous != null && Objects.equals(previous.getTitle(), task.getTitle())
+                    && Objects.equals(previous.getDescription(), task.getDescription())) {
+                return;
+            }
+            if (previous != null) {
+                unindexWords(previous);
+            }
+            Words entry = Words.of(task);
+            words = words.with(task.getId(), entry);
+            for (String word : entry.words()) {
+                PersistentIntSet ids = postings.get(word);
+                postings = postings.with(word, (ids == null ? PersistentIntSet.empty() : ids).with(task.getId()));
+            }
+        }
+
+        // статус и время; слова снимаются отдельно, только если они изменились
+        private void unindex(Task task) {
+            if (task.getStatus() != null) {
+                idsByStatus.computeIfPresent(task.getStatus(), (status, ids) -> ids.without(task.getId()));
+            }
+            if (isPrioritized(task)) {
+                prioritized = prioritized.without(new TimeKey(task.getStartTime(), task.getId()));
+            }
+        }
+
+        private void unindexWords(Task task) {
+            Words entry = words.get(task.getId());
+            if (entry == null) {
+                return;
+            }
+            words = words.without(task.getId());
+            for (String word : entry.words()) {
+                PersistentIntSet ids = postings.get(word);
+                if (ids != null) {
+                    PersistentIntSet rest = ids.without(task.getId());
+                    postings = rest.isEmpty() ? postings.without(word) : postings.with(word, rest);
+                }
+            }
+        }
+
+        private Task find(int id) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            if (task == null) {
+                task = epics.get(id);
+            }
+            return task;
+        }
+
+        // эпики в порядок по времени не попадают, серии повторяющихся задач хранятся отдельно
+        private static boolean isPrioritized(Task task) {
+            return !(task instanceof Epic) && task.getStartTime() != null && !task.isRecurring();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Инвертированный индекс слов названия и описания задач.
+ * Слова хранятся в отсортированном словаре, поэтому все слова с заданным префиксом
+ * занимают в нем непрерывный диапазон. Для каждого id запоминается проиндексированный текст,
+ * чтобы при изменении задачи убрать только ее старые слова.
+ */
+public class TextIndex {
+    private final TreeMap<String, IntHashSet> postings = new TreeMap<>();
+    private final IntObjectHashMap<Entry> entries = new IntObjectHashMap<>();
+    // границы проиндексированных id для обхода по возрастанию; после удалений могут быть шире
+    private int minId = Integer.MAX_VALUE;
+    private int maxId = Integer.MIN_VALUE;
+    // число id, просмотренных последним поиском; для тестов, при одновременных поисках не определено
+    private long visited;
+
+    /**
+     * Индексирует текст задачи, заменяя ранее проиндексированный текст с тем же id.
+     * Если текст не изменился, индекс не перестраивается.
+     */
+    public void add(int id, String title, String description) {
+        Entry previous = entries.get(id);
+        if (previous != null && Objects.equals(previous.title(), title)
+                && Objects.equals(previous.description(), description)) {
+            return;
+        }
+        remove(id);
+        Set<String> words = new LinkedHashSet<>(tokenize(title));
+        words.addAll(tokenize(description));
+        for (String word : words) {
+            postings.computeIfAbsent(word, key -> new IntHashSet()).add(id);
+        }
+        entries.put(id, new Entry(title, description, words.toArray(new String[0])));
+        minId = Math.min(minId, id);
+        maxId = Math.max(maxId, id);
+    }
+
+    public void remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (String word : entry.words()) {
+            IntHashSet ids = postings.get(word);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        entries.clear();
+        minId = Integer.MAX_VALUE;
+        maxId = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Не больше limit наименьших id задач, содержащих каждое слово запроса как слово или начало слова,
+     * по возрастанию. Выбирается дешевый из двух способов:
+     * - сбор: id самого редкого слова запроса проверяются и сортируются, стоимость - их число;
+     * - обход id по возрастанию с проверкой слов задачи, пока не найдено limit совпадений.
+     *   Для частых слов совпадения плотные и обход останавливается почти сразу;
+     *   если совпадения реже ожидаемого (частые слова редко встречаются вместе),
+     *   после нескольких ожидаемых длин обхода остаток собирается первым способом.
+     */
+    public int[] search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        visited = 0;
+        if (terms.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        long span = (long) maxId - minId + 1;
+        // Обход ожидаемо делает limit * span / n шагов для слова с n id, сбор - n шагов:
+        // начиная с n = sqrt(limit * span) обход дешевле, и точнее размеры считать незачем.
+        long threshold = (long) Math.sqrt((double) limit * span) + 1;
+        String rarest = null;
+        long rarestSize = threshold;
+        for (String term : terms) {
+            long size = sizeUpTo(term, rarestSize);
+            if (size == 0) {
+                return new int[0];
+            }
+            if (size < rarestSize || rarest == null) {
+                rarest = term;
+                rarestSize = size;
+            }
+        }
+        if (rarestSize < threshold) {
+            return collect(terms, rarest, limit, Integer.MIN_VALUE);
+        }
+        return walk(terms, rarest, limit, 4 * threshold);
+    }
+
+    // число id слов с префиксом term, но не больше cap: дальше считать не нужно
+    private long sizeUpTo(String term, long cap) {
+        long size = 0;
+        for (IntHashSet ids : withPrefix(term).values()) {
+            size += ids.size();
+            if (size >= cap) {
+                return cap;
+            }
+        }
+        return size;
+    }
+
+    private int[] walk(List<String> terms, String rarest, int limit, long budget) {
+        int[] result = new int[limit];
+        int count = 0;
+        long steps = 0;
+        for (long id = minId; id <= maxId; id++) {
+            visited++;
+            if (++steps > budget) {
+                int[] rest = collect(terms, rarest, limit - count, (int) id);
+                System.arraycopy(rest, 0, result, count, rest.length);
+                return Arrays.copyOf(result, count + rest.length);
+            }
+            Entry entry = entries.get((int) id);
+            if (entry != null && matchesAll(entry, terms, null)) {
+                result[count++] = (int) id;
+                if (count == limit) {
+                    return result;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // совпадения среди id самого редкого слова, не меньше fromId
+    private int[] collect(List<String> terms, String rarest, int limit, int fromId) {
+        IntHashSet seen = new IntHashSet();
+        int[] matches = new int[16];
+        int count = 0;
+        for (IntHashSet ids : withPrefix(rarest).values()) {
+            for (int id : ids.toArray()) {
+                visited++;
+                if (id >= fromId && seen.add(id) && (terms.size() == 1 || matchesAll(entries.get(id), terms, rarest))) {
+                    if (count == matches.length) {
+                        matches = Arrays.copyOf(matches, count * 2);
+                    }
+                    matches[count++] = id;
+                }
+            }
+        }
+        Arrays.sort(matches, 0, count);
+        return Arrays.copyOf(matches, Math.min(count, limit));
+    }
+
+    // каждое слово запроса, кроме skipped, - слово задачи или начало одного из ее слов
+    private static boolean matchesAll(Entry entry, List<String> terms, String skipped) {
+        for (String term : terms) {
+            if (term.equals(skipped)) {
+                continue;
+            }
+            boolean found = false;
+            for (String word : entry.words()) {
+                if (word.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long lastVisited() {
+        return visited;
+    }
+
+    // все слова, начинающиеся с prefix: диапазон [prefix, prefix + максимальный символ)
+    private SortedMap<String, IntHashSet> withPrefix(String prefix) {
+        return postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    /**
+     * Разбивает текст на слова из букв и цифр в нижнем регистре.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private record Entry(String title, String description, String[] words) {
+    }
+}
@@ -0,0 +1,36 @@
+package util;
+
+import tasks.Task;
+
+/**
+ * Журнал отката транзакции InMemoryTaskManager.
+ * Для каждой сущности запоминается ее версия до первого изменения в транзакции,
+ * повторные изменения той же сущности журнал не увеличивают. Хранимые версии неизменяемы,
+ * поэтому достаточно ссылки на прежнюю версию, без копирования полей.
+ */
+class UndoLog {
+    private final IntHashSet remembered = new IntHashSet();
+    private final IntObjectHashMap<Task> previous = new IntObjectHashMap<>();
+
+    /**
+     * Запоминает версию сущности с этим id, если она еще не записана.
+     *
+     * @param current сущность в менеджере или null, если ее еще нет
+     */
+    void remember(int id, Task current) {
+        if (remembered.add(id) && current != null) {
+            previous.put(id, current);
+        }
+    }
+
+    int[] ids() {
+        return remembered.toArray();
+    }
+
+    /**
+     * Версия, которую нужно вернуть в менеджер, или null, если до транзакции сущности не было.
+     */
+    Task restore(int id) {
+        return previous.get(id);
+    }
+}
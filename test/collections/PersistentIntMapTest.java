@@ -0,0 +1,67 @@
+package collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentIntMapTest {
+    @Test
+    void withAndWithoutShouldNotChangePreviousVersion() {
+        PersistentIntMap<String> first = PersistentIntMap.<String>empty().with(1, "a").with(2, "b");
+        PersistentIntMap<String> second = first.with(2, "c").without(1);
+
+        assertEquals(List.of("a", "b"), first.values());
+        assertEquals(List.of("c"), second.values());
+        assertSame(first, first.without(42));
+        assertTrue(first.without(1).without(2).isEmpty());
+        assertNull(second.get(1));
+    }
+
+    @Test
+    void shouldBehaveLikeTreeMapUnderRandomOperations() {
+        Random random = new Random(7);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        PersistentIntMap<Integer> map = PersistentIntMap.empty();
+        List<PersistentIntMap<Integer>> versions = new ArrayList<>();
+        List<List<Integer>> snapshots = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextBoolean()) {
+                expected.put(key, i);
+                map = map.with(key, i);
+            } else {
+                expected.remove(key);
+                map = map.without(key);
+            }
+            if (i % 5_000 == 0) {
+                versions.add(map);
+                snapshots.add(List.copyOf(expected.values()));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(List.copyOf(expected.values()), map.values());
+        for (int key = 0; key < 5_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(snapshots.get(i), versions.get(i).values());
+        }
+    }
+
+    @Test
+    void forEachWhileShouldStopEarly() {
+        PersistentIntMap<Integer> map = PersistentIntMap.empty();
+        for (int key = 1; key <= 100; key++) {
+            map = map.with(key, key);
+        }
+        List<Integer> seen = new ArrayList<>();
+
+        assertFalse(map.forEachWhile(value -> seen.add(value) && value < 3));
+        assertEquals(List.of(1, 2, 3), seen);
+    }
+}
@@ -0,0 +1,63 @@
+package collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentIntSetTest {
+    @Test
+    void withAndWithoutShouldNotChangePreviousVersion() {
+        PersistentIntSet first = PersistentIntSet.of(1, 2, 3);
+        PersistentIntSet second = first.with(4).without(1);
+
+        assertEquals("[1, 2, 3]", first.toString());
+        assertEquals("[2, 3, 4]", second.toString());
+        assertSame(first, first.with(2));
+        assertSame(first, first.without(42));
+        assertTrue(first.without(1).without(2).without(3).isEmpty());
+    }
+
+    @Test
+    void shouldBehaveLikeTreeSetUnderRandomOperations() {
+        Random random = new Random(7);
+        TreeSet<Integer> expected = new TreeSet<>();
+        PersistentIntSet set = PersistentIntSet.empty();
+        List<PersistentIntSet> versions = new ArrayList<>();
+        List<List<Integer>> snapshots = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(5_000);
+            if (random.nextBoolean()) {
+                expected.add(value);
+                set = set.with(value);
+            } else {
+                expected.remove(value);
+                set = set.without(value);
+            }
+            if (i % 5_000 == 0) {
+                versions.add(set);
+                snapshots.add(List.copyOf(expected));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        assertEquals(List.copyOf(expected), set.stream().boxed().toList());
+        for (int value = 0; value < 5_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(snapshots.get(i), versions.get(i).stream().boxed().toList());
+        }
+    }
+
+    @Test
+    void negativeValuesShouldBeStored() {
+        PersistentIntSet set = PersistentIntSet.of(-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0);
+        assertEquals(4, set.size());
+        assertTrue(set.contains(Integer.MIN_VALUE));
+        assertFalse(set.contains(-2));
+    }
+}
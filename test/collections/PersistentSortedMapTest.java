@@ -0,0 +1,67 @@
+package collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentSortedMapTest {
+    @Test
+    void withAndWithoutShouldNotChangePreviousVersion() {
+        PersistentSortedMap<String, Integer> first = PersistentSortedMap.<String, Integer>empty(Comparator.naturalOrder())
+                .with("b", 2).with("a", 1);
+        PersistentSortedMap<String, Integer> second = first.with("c", 3).without("a");
+
+        assertEquals(List.of(1, 2), first.values());
+        assertEquals(List.of(2, 3), second.values());
+        assertSame(first, first.without("z"));
+        assertEquals(2, first.size());
+        assertNull(second.get("a"));
+    }
+
+    @Test
+    void shouldBehaveLikeTreeMapUnderRandomOperations() {
+        Random random = new Random(7);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        PersistentSortedMap<Integer, Integer> map = PersistentSortedMap.empty(Comparator.naturalOrder());
+        List<PersistentSortedMap<Integer, Integer>> versions = new ArrayList<>();
+        List<List<Integer>> snapshots = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(5_000) - 2_500;
+            if (random.nextBoolean()) {
+                expected.put(key, i);
+                map = map.with(key, i);
+            } else {
+                expected.remove(key);
+                map = map.without(key);
+            }
+            if (i % 5_000 == 0) {
+                versions.add(map);
+                snapshots.add(List.copyOf(expected.values()));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(List.copyOf(expected.values()), map.values());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(snapshots.get(i), versions.get(i).values());
+        }
+    }
+
+    @Test
+    void forEachFromShouldStartAtKeyAndStopEarly() {
+        PersistentSortedMap<Integer, Integer> map = PersistentSortedMap.empty(Comparator.naturalOrder());
+        for (int key = 0; key < 1_000; key += 10) {
+            map = map.with(key, key);
+        }
+        List<Integer> seen = new ArrayList<>();
+
+        assertFalse(map.forEachFrom(495, (key, value) -> seen.add(key) && key < 520));
+        assertEquals(List.of(500, 510, 520), seen);
+        assertTrue(map.forEachFrom(2_000, (key, value) -> fail("Ключей больше 2000 нет")));
+    }
+}
@@ -0,0 +1,104 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import util.BlockIdAllocator;
+import util.FileTaskArchive;
+import util.InMemoryTaskManager;
+import util.Managers;
+import util.TaskManager;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveHandlerTest {
+    private Path archiveFile;
+    private TaskManager taskManager;
+    private HttpTaskServer server;
+    private HttpClient client;
+    private Gson gson;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archiveFile = Files.createTempFile("tasks", ".archive");
+        Files.delete(archiveFile);
+        taskManager = new InMemoryTaskManager(new BlockIdAllocator(), new FileTaskArchive(archiveFile));
+        gson = Managers.getGson();
+        server = new HttpTaskServer(taskManager);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop();
+        Files.deleteIfExists(archiveFile);
+    }
+
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testArchive_shouldMoveDoneTasksAndServeThemById() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 9, 1, 8, 0);
+        Task done = taskManager.createTask(new Task(0, "Отчет", "Отправлен", TaskStatus.DONE,
+                start, Duration.ofHours(1)));
+        Task open = taskManager.createTask(new Task(0, "Ревью", "Ждет", TaskStatus.NEW,
+                start.plusHours(2), Duration.ofHours(1)));
+
+        HttpResponse<String> response = send("POST", "/archive");
+        assertEquals(200, response.statusCode());
+        assertEquals(1, JsonParser.parseString(response.body()).getAsJsonObject().get("archived").getAsInt());
+        assertNull(taskManager.getTaskById(done.getId()));
+
+        response = send("GET", "/archive/" + done.getId());
+        assertEquals(200, response.statusCode());
+        assertEquals("Отчет", gson.fromJson(response.body(), Task.class).getTitle());
+        assertEquals(404, send("GET", "/archive/" + open.getId()).statusCode());
+    }
+
+    @Test
+    void testArchive_shouldFindArchivedTasksByQuery() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 9, 1, 8, 0);
+        Epic epic = taskManager.createEpic(new Epic("Релиз", "Выпущен"));
+        Subtask build = taskManager.createSubtask(new Subtask(0, "Сборка", "Готово", TaskStatus.DONE,
+                epic.getId(), start, Duration.ofHours(1)));
+        taskManager.archiveCompleted();
+
+        String query = URLEncoder.encode("type=SUBTASK AND epicId=" + epic.getId(), StandardCharsets.UTF_8);
+        HttpResponse<String> response = send("GET", "/archive?query=" + query);
+        assertEquals(200, response.statusCode());
+        Type listType = new TypeToken<List<Subtask>>() {
+        }.getType();
+        List<Subtask> found = gson.fromJson(response.body(), listType);
+        assertEquals(List.of(build.getId()), found.stream().map(Task::getId).toList());
+        assertEquals(400, send("GET", "/archive?query=" + URLEncoder.encode("owner=me", StandardCharsets.UTF_8))
+                .statusCode());
+    }
+}
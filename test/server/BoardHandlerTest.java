@@ -0,0 +1,106 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+import util.BoardRegistry;
+import util.InMemoryTaskManager;
+import util.Managers;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardHandlerTest {
+    private Path directory;
+    private BoardRegistry boards;
+    private HttpTaskServer server;
+    private HttpClient client;
+    private Gson gson;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("boards");
+        boards = new BoardRegistry(directory, 1);
+        server = new HttpTaskServer(new InMemoryTaskManager(), boards, null);
+        server.start();
+        client = HttpClient.newHttpClient();
+        gson = Managers.getGson();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder builder, String path) throws Exception {
+        return client.send(builder.uri(URI.create("http://localhost:8080" + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Task> getTasks(String path) throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder().GET(), path);
+        assertEquals(200, response.statusCode());
+        Type listType = new TypeToken<List<Task>>() {
+        }.getType();
+        return gson.fromJson(response.body(), listType);
+    }
+
+    // доска освобождается уже после отправки ответа, поэтому выгрузку ждем
+    private boolean awaitEvicted(String boardId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+        while (boards.isResident(boardId)) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Test
+    void testBoards_shouldKeepTasksSeparatePerBoard() throws Exception {
+        Task task = new Task(0, "Ревью", "Доска команды", TaskStatus.NEW,
+                LocalDateTime.of(2025, 9, 1, 8, 0), Duration.ofHours(1));
+        HttpResponse<String> created = send(HttpRequest.newBuilder()
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task))), "/boards/team/tasks");
+        assertEquals(201, created.statusCode());
+        int id = gson.fromJson(created.body(), Task.class).getId();
+
+        assertTrue(getTasks("/boards/other/tasks").isEmpty());
+        assertTrue(awaitEvicted("team"), "Доска выгружается после закрытия запросов к ней");
+        assertTrue(getTasks("/tasks").isEmpty());
+
+        HttpResponse<String> response = send(HttpRequest.newBuilder().GET(), "/boards/team/tasks/" + id);
+        assertEquals(200, response.statusCode());
+        assertEquals("Ревью", gson.fromJson(response.body(), Task.class).getTitle());
+    }
+
+    @Test
+    void testBoards_unknownResourceOrInvalidId() throws Exception {
+        assertEquals(404, send(HttpRequest.newBuilder().GET(), "/boards/team").statusCode());
+        assertEquals(404, send(HttpRequest.newBuilder().GET(), "/boards/team/unknown").statusCode());
+        assertEquals(400, send(HttpRequest.newBuilder().GET(), "/boards/te.am/tasks").statusCode());
+    }
+}
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import server.handlers.BaseHttpHandler;
 import tasks.Epic;
 import tasks.Subtask;
 import tasks.Task;
@@ -118,4 +119,33 @@ public class HistoryHandlerTest {
         List<?> history = gson.fromJson(response.body(), List.class);
         assertTrue(history.isEmpty());
     }
+
+    private HttpResponse<String> sendAsClient(String clientId, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .header(BaseHttpHandler.CLIENT_HEADER, clientId)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Integer> historyIds(HttpResponse<String> response) {
+        assertEquals(200, response.statusCode());
+        return List.of(gson.fromJson(response.body(), Task[].class)).stream().map(Task::getId).toList();
+    }
+
+    @Test
+    void testGetHistoryWithClientHeader_shouldKeepSeparateHistories() throws Exception {
+        Task first = taskManager.createTask(new Task("Task 1", "Description"));
+        Task second = taskManager.createTask(new Task("Task 2", "Description"));
+
+        assertEquals(200, sendAsClient("alice", "/tasks/" + first.getId()).statusCode());
+        assertEquals(200, sendAsClient("bob", "/tasks/" + second.getId()).statusCode());
+        assertEquals(200, sendAsClient("alice", "/tasks/" + second.getId()).statusCode());
+        taskManager.deleteTaskById(second.getId());
+
+        assertEquals(List.of(first.getId()), historyIds(sendAsClient("alice", "/history")));
+        assertTrue(historyIds(sendAsClient("bob", "/history")).isEmpty());
+        assertTrue(taskManager.getHistory().isEmpty(), "Просмотры клиентов не попадают в общую историю");
+    }
 }
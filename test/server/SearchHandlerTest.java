@@ -0,0 +1,76 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Task;
+import util.InMemoryTaskManager;
+import util.Managers;
+import util.TaskManager;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchHandlerTest {
+    private TaskManager taskManager;
+    private HttpTaskServer server;
+    private HttpClient client;
+    private Gson gson;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        taskManager = new InMemoryTaskManager();
+        gson = Managers.getGson();
+        server = new HttpTaskServer(taskManager);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> sendGet(String query) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/search" + query))
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testSearch_shouldReturnTasksMatchingAllWords() throws Exception {
+        Task report = taskManager.createTask(new Task("Отчет за квартал", "Собрать данные продаж"));
+        taskManager.createTask(new Task("Отчет за год", "Собрать данные"));
+        taskManager.createEpic(new Epic("Переезд", "Квартальный план"));
+
+        HttpResponse<String> response = sendGet("?q=" + URLEncoder.encode("отч кварт", StandardCharsets.UTF_8));
+
+        assertEquals(200, response.statusCode());
+        Type taskListType = new TypeToken<List<Task>>() {
+        }.getType();
+        List<Task> found = gson.fromJson(response.body(), taskListType);
+        assertEquals(1, found.size());
+        assertEquals(report.getId(), found.getFirst().getId());
+    }
+
+    @Test
+    void testSearchWithoutQuery_shouldReturn400() throws Exception {
+        HttpResponse<String> response = sendGet("?limit=5");
+
+        assertEquals(400, response.statusCode());
+    }
+}
@@ -0,0 +1,84 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+import util.InMemoryTaskManager;
+import util.Managers;
+import util.TaskManager;
+import util.TimeSlot;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotsHandlerTest {
+    private TaskManager taskManager;
+    private HttpTaskServer server;
+    private HttpClient client;
+    private Gson gson;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        taskManager = new InMemoryTaskManager();
+        gson = Managers.getGson();
+        server = new HttpTaskServer(taskManager);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> sendGet(String query) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/slots" + query))
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testFindFreeSlots_shouldReturnGapsAroundTasks() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 28, 9, 0);
+        taskManager.createTask(new Task(0, "Task", "Description", TaskStatus.NEW, start, Duration.ofHours(1)));
+
+        HttpResponse<String> response = sendGet("?duration=30&from=2025-07-28T08:00&to=2025-07-28T12:00&limit=5");
+
+        assertEquals(200, response.statusCode());
+        Type slotListType = new TypeToken<List<TimeSlot>>() {
+        }.getType();
+        List<TimeSlot> slots = gson.fromJson(response.body(), slotListType);
+        assertEquals(2, slots.size());
+        assertEquals(LocalDateTime.of(2025, 7, 28, 8, 0), slots.get(0).getStart());
+        assertEquals(LocalDateTime.of(2025, 7, 28, 10, 1), slots.get(1).getStart());
+    }
+
+    @Test
+    void testFindFreeSlotsWithoutDuration_shouldReturn400() throws Exception {
+        HttpResponse<String> response = sendGet("?from=2025-07-28T08:00&to=2025-07-28T12:00");
+
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    void testFindFreeSlotsWithReversedRange_shouldReturn400() throws Exception {
+        HttpResponse<String> response = sendGet("?duration=30&from=2025-07-28T12:00&to=2025-07-28T08:00");
+
+        assertEquals(400, response.statusCode());
+    }
+}
@@ -6,15 +6,18 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import tasks.Epic;
 import tasks.Subtask;
+import tasks.TaskStatus;
 import util.InMemoryTaskManager;
 import util.Managers;
 import util.TaskManager;
 
 import java.io.IOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 
@@ -170,4 +173,30 @@ public class SubtaskHandlerTest {
 
         assertEquals(406, response.statusCode());
     }
+
+    @Test
+    void testGetSubtasksByQuery_shouldReturnMatchingSubtasks() throws Exception {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Description"));
+        Subtask done = taskManager.createSubtask(new Subtask("Done", "Description", epic.getId()));
+        taskManager.updateSubtask(done.withStatus(TaskStatus.DONE));
+        taskManager.createSubtask(new Subtask("New", "Description", epic.getId()));
+
+        String query = URLEncoder.encode("status=DONE AND epicId=" + epic.getId(), StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/subtasks?query=" + query))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        Subtask[] found = gson.fromJson(response.body(), Subtask[].class);
+        assertEquals(1, found.length);
+        assertEquals(done.getId(), found[0].getId());
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/subtasks?query=" + URLEncoder.encode("title=New", StandardCharsets.UTF_8)))
+                .GET()
+                .build();
+        assertEquals(400, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
 }
@@ -1,10 +1,14 @@
 package server;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
 import util.InMemoryTaskManager;
 import util.Managers;
 import util.TaskManager;
@@ -164,4 +168,130 @@ class TaskHandlerTest {
         assertEquals(200, getResponse.statusCode());
         assertEquals(startTime.plus(duration), retrievedTask.getEndTime());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetTasksPage_returnsLimitAndCursor() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            createTask(new Task("Task " + i, "Description"));
+        }
+
+        HttpResponse<String> firstPage = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=2"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, firstPage.statusCode());
+        JsonObject first = JsonParser.parseString(firstPage.body()).getAsJsonObject();
+        assertEquals(2, first.getAsJsonArray("items").size());
+        int cursor = first.get("nextCursor").getAsInt();
+
+        HttpResponse<String> secondPage = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=2&cursor=" + cursor))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        JsonObject second = JsonParser.parseString(secondPage.body()).getAsJsonObject();
+        assertEquals(1, second.getAsJsonArray("items").size());
+        assertFalse(second.has("nextCursor"), "Для последней страницы курсор не передается");
+    }
+
+    @Test
+    void testGetTasksPage_invalidLimit_returns400() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=abc"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    void testGetTasksFilteredByStatusAndTime_returnsMatching() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 28, 9, 0);
+        taskManager.createTask(new Task(0, "In range", "Description", TaskStatus.IN_PROGRESS,
+                start, Duration.ofHours(1)));
+        taskManager.createTask(new Task(0, "Out of range", "Description", TaskStatus.IN_PROGRESS,
+                start.plusDays(10), Duration.ofHours(1)));
+        taskManager.createTask(new Task(0, "Other status", "Description", TaskStatus.NEW,
+                start.plusHours(2), Duration.ofHours(1)));
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=IN_PROGRESS&from=2025-07-28T00:00&to=2025-08-04T00:00"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        Task[] tasks = gson.fromJson(response.body(), Task[].class);
+        assertEquals(1, tasks.length);
+        assertEquals("In range", tasks[0].getTitle());
+    }
+
+    @Test
+    void testGetTasksFilteredByUnknownStatus_returns400() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=UNKNOWN"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    void testGetTaskWithCurrentETag_returns304WithoutHistory() throws Exception {
+        Task task = taskManager.createTask(new Task("Task", "Description"));
+        URI uri = URI.create("http://localhost:8080/tasks/" + task.getId());
+
+        HttpResponse<String> first = client.send(HttpRequest.newBuilder().uri(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        taskManager.clearAll();
+        task = taskManager.createTask(new Task(task.getId(), "Task", "Description"));
+
+        HttpResponse<String> stale = client.send(HttpRequest.newBuilder().uri(uri)
+                .header("If-None-Match", etag).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, stale.statusCode(), "Пересозданная задача получает новую версию");
+
+        String current = stale.headers().firstValue("ETag").orElseThrow();
+        int historySize = taskManager.getHistory().size();
+        HttpResponse<String> notModified = client.send(HttpRequest.newBuilder().uri(uri)
+                .header("If-None-Match", current).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, notModified.statusCode());
+        assertEquals(historySize, taskManager.getHistory().size(), "Ответ 304 не пишет историю");
+    }
+
+    @Test
+    void testWriteWithStaleIfMatch_returns412() throws Exception {
+        Task task = taskManager.createTask(new Task("Task", "Description"));
+        String staleTag = "\"" + task.getVersion() + "\"";
+        taskManager.updateTask(new Task(task.getId(), "Changed by other client", "Description"));
+
+        Task update = new Task(task.getId(), "Lost update", "Description");
+        HttpResponse<String> conflict = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .header("If-Match", staleTag)
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(update)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(412, conflict.statusCode());
+        assertEquals("Changed by other client", taskManager.getAllTasks().getFirst().getTitle());
+
+        HttpResponse<String> deleteConflict = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/" + task.getId()))
+                .header("If-Match", staleTag)
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(412, deleteConflict.statusCode());
+        assertEquals(1, taskManager.getAllTasks().size());
+
+        String currentTag = "\"" + taskManager.getVersion(TaskType.TASK, task.getId()) + "\"";
+        HttpResponse<String> updated = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .header("If-Match", currentTag)
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(update)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, updated.statusCode());
+        assertNotEquals(currentTag, updated.headers().firstValue("ETag").orElseThrow());
+        assertEquals("\"" + taskManager.getAllTasks().getFirst().getVersion() + "\"",
+                updated.headers().firstValue("ETag").orElseThrow(), "ETag - версия записанной задачи");
+        assertEquals("Lost update", taskManager.getAllTasks().getFirst().getTitle());
+        assertTrue(taskManager.getHistory().isEmpty(), "Проверки существования не должны писать историю");
+    }
+}
@@ -0,0 +1,87 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockIdAllocatorTest {
+
+    @Test
+    void idsShouldBeSequentialAcrossBlocks() {
+        BlockIdAllocator allocator = new BlockIdAllocator(new AtomicIdBlockSource(), 3);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ids.add(allocator.nextId());
+        }
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), ids);
+        assertEquals(8, allocator.peekNextId());
+    }
+
+    @Test
+    void reserveShouldSkipLoadedIds() {
+        BlockIdAllocator allocator = new BlockIdAllocator(new AtomicIdBlockSource(), 4);
+        assertEquals(1, allocator.nextId());
+        allocator.reserve(2);
+        assertEquals(3, allocator.nextId());
+        allocator.reserve(100);
+        assertEquals(101, allocator.nextId());
+        allocator.reserve(50);
+        assertEquals(102, allocator.nextId(), "Меньший id не сдвигает позицию назад");
+    }
+
+    @Test
+    void concurrentCallsShouldNotRepeatIds() throws Exception {
+        BlockIdAllocator allocator = new BlockIdAllocator(new AtomicIdBlockSource(), 16);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        assertTrue(ids.add(allocator.nextId()), "Id выдан повторно");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(8000, ids.size());
+    }
+
+    @Test
+    void allocatorsSharingLeaseFileShouldGetDisjointBlocks() throws IOException {
+        Path lease = Files.createTempFile("ids", ".lease");
+        try {
+            BlockIdAllocator first = new BlockIdAllocator(new LeaseFileIdBlockSource(lease), 5);
+            BlockIdAllocator second = new BlockIdAllocator(new LeaseFileIdBlockSource(lease), 5);
+            Set<Integer> ids = new HashSet<>();
+            for (int i = 0; i < 12; i++) {
+                assertTrue(ids.add(first.nextId()));
+                assertTrue(ids.add(second.nextId()));
+            }
+            assertEquals("31", Files.readString(lease), "В файле - граница последнего выданного блока");
+
+            second.reserve(40);
+            BlockIdAllocator third = new BlockIdAllocator(new LeaseFileIdBlockSource(lease), 5);
+            assertEquals(41, third.nextId());
+        } finally {
+            Files.deleteIfExists(lease);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardRegistryTest {
+    private Path directory;
+    private BoardRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("boards");
+        registry = new BoardRegistry(directory, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private Task createTask(String boardId, String title) {
+        try (BoardRegistry.Lease lease = registry.acquire(boardId)) {
+            return lease.getManager().createTask(new Task(0, title, "", TaskStatus.NEW,
+                    LocalDateTime.of(2025, 9, 1, 8, 0), Duration.ofHours(1)));
+        }
+    }
+
+    @Test
+    void boardsShouldBeLoadedOnFirstAccessOnly() {
+        assertEquals(0, registry.residentCount());
+        createTask("team", "Ревью");
+        assertTrue(registry.isResident("team"));
+        assertEquals(1, registry.residentCount());
+        assertTrue(Files.exists(directory.resolve("team.csv")));
+    }
+
+    @Test
+    void leastRecentlyUsedBoardShouldBeSavedAndEvicted() {
+        Task task = createTask("a", "Первая доска");
+        createTask("b", "Вторая доска");
+        registry.acquire("a").close();
+        createTask("c", "Третья доска");
+
+        assertFalse(registry.isResident("b"));
+        assertTrue(registry.isResident("a"));
+        assertEquals(2, registry.residentCount());
+
+        try (BoardRegistry.Lease lease = registry.acquire("a")) {
+            assertEquals("Первая доска", lease.getManager().getTaskById(task.getId()).getTitle());
+        }
+        try (BoardRegistry.Lease lease = registry.acquire("b")) {
+            assertEquals("Вторая доска", lease.getManager().getAllTasks().getFirst().getTitle());
+        }
+    }
+
+    @Test
+    void boardInUseShouldNotBeEvicted() {
+        try (BoardRegistry.Lease held = registry.acquire("held")) {
+            createTask("a", "a");
+            createTask("b", "b");
+            assertTrue(registry.isResident("held"));
+            try (BoardRegistry.Lease again = registry.acquire("held")) {
+                assertSame(held.getManager(), again.getManager());
+            }
+        }
+        registry.evictAll();
+        assertEquals(0, registry.residentCount());
+    }
+
+    @Test
+    void invalidBoardIdShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> registry.acquire("../tasks"));
+        assertThrows(IllegalArgumentException.class, () -> registry.acquire(""));
+        assertEquals(0, registry.residentCount());
+    }
+}
@@ -0,0 +1,70 @@
+package util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedHistoryManagerTest {
+    private BoundedHistoryManager historyManager;
+
+    @BeforeEach
+    public void setUp() {
+        historyManager = new BoundedHistoryManager(3);
+    }
+
+    private static Task task(int id) {
+        Task task = new Task("Task " + id, "Description " + id);
+        task.setId(id);
+        return task;
+    }
+
+    private List<Integer> ids() {
+        return historyManager.getHistory().stream().map(Task::getId).toList();
+    }
+
+    @Test
+    void addShouldEvictOldestWhenFull() {
+        for (int id = 1; id <= 5; id++) {
+            historyManager.add(task(id));
+        }
+        assertEquals(List.of(3, 4, 5), ids());
+    }
+
+    @Test
+    void readdShouldMoveToEndAndProtectFromEviction() {
+        historyManager.add(task(1));
+        historyManager.add(task(2));
+        historyManager.add(task(3));
+        historyManager.add(task(1));
+        historyManager.add(task(4));
+
+        assertEquals(List.of(3, 1, 4), ids());
+    }
+
+    @Test
+    void removedSlotShouldBeReusedBeforeEvicting() {
+        historyManager.add(task(1));
+        historyManager.add(task(2));
+        historyManager.add(task(3));
+        historyManager.remove(2);
+        historyManager.remove(42);
+        historyManager.add(task(4));
+        assertEquals(List.of(1, 3, 4), ids());
+
+        historyManager.remove(1);
+        historyManager.remove(3);
+        historyManager.remove(4);
+        assertTrue(historyManager.getHistory().isEmpty());
+        historyManager.add(task(5));
+        assertEquals(List.of(5), ids());
+    }
+
+    @Test
+    void constructorShouldRejectNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedHistoryManager(0));
+    }
+}
@@ -0,0 +1,79 @@
+package util;
+
+import exceptions.TimeConflictException;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final int THREADS = 8;
+
+    @Override
+    protected ConcurrentTaskManager createTaskManager() {
+        return new ConcurrentTaskManager(new InMemoryTaskManager());
+    }
+
+    @Test
+    void onlyOneOfConcurrentOverlappingTasksShouldBeCreated() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 8, 1, 10, 0);
+        AtomicInteger conflicts = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int slot = i % 10;
+            futures.add(executor.submit(() -> {
+                try {
+                    taskManager.createTask(new Task(0, "Task", "Description", TaskStatus.NEW,
+                            start.plusHours(slot * 2L), Duration.ofMinutes(30)));
+                } catch (TimeConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(10, taskManager.getAllTasks().size(), "В каждый слот должна попасть одна задача");
+        assertEquals(90, conflicts.get());
+        assertEquals(10, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void epicStatusShouldStayConsistentUnderConcurrentUpdates() throws Exception {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Description"));
+        List<Subtask> subtasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            subtasks.add(taskManager.createSubtask(new Subtask("Subtask " + i, "Description", epic.getId())));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (Subtask subtask : subtasks) {
+            executor.submit(() -> {
+                taskManager.getEpicById(epic.getId());
+                taskManager.updateSubtask(new Subtask(subtask.getId(), subtask.getTitle(),
+                        subtask.getDescription(), TaskStatus.DONE, epic.getId(), null, null));
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(TaskStatus.DONE, taskManager.getEpicById(epic.getId()).getStatus());
+        assertEquals(1, taskManager.getHistory().size());
+    }
+}
@@ -10,6 +10,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -32,6 +33,7 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
         if (tempFile != null) {
             try {
                 Files.deleteIfExists(tempFile.toPath());
+                Files.deleteIfExists(Path.of(tempFile.getPath() + ".archive"));
             } catch (IOException e) {
                 System.err.println("Не удалось удалить временный файл: " + e.getMessage());
             }
@@ -77,6 +79,163 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
         assertTrue(loadedEpic.getSubtaskId().contains(subtask1.getId()));
     }
 
+    @Test
+    void testRepeatedLoadShouldNotReuseDeletedIds() {
+        LocalDateTime start = LocalDateTime.of(2025, 9, 1, 8, 0);
+        for (int i = 0; i < 3; i++) {
+            taskManager.createTask(new Task(0, "Task " + i, "", TaskStatus.NEW,
+                    start.plusHours(2L * i), Duration.ofHours(1)));
+        }
+        Task deleted = taskManager.getAllTasks().getLast();
+        taskManager.deleteTaskById(deleted.getId());
+
+        FileBackedTaskManager.loadFromFile(tempFile);
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        Task created = loaded.createTask(new Task(0, "New", "", TaskStatus.NEW,
+                start.plusDays(1), Duration.ofHours(1)));
+
+        assertTrue(created.getId() > deleted.getId(), "Id удаленной задачи не выдается повторно");
+    }
+
+    @Test
+    void testLoadShouldReserveIdsOnceAndNotWriteHistory() {
+        LocalDateTime start = LocalDateTime.of(2025, 9, 1, 8, 0);
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Description"));
+        for (int i = 0; i < 5; i++) {
+            taskManager.createSubtask(new Subtask(0, "Subtask " + i, "Description", TaskStatus.NEW, epic.getId(),
+                    start.plusHours(2L * i), Duration.ofHours(1)));
+            taskManager.createTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW,
+                    start.plusDays(1).plusHours(2L * i), Duration.ofHours(1)));
+        }
+        int maxId = taskManager.getAllTasks().getLast().getId();
+        List<Integer> reserved = new ArrayList<>();
+        BlockIdAllocator inner = new BlockIdAllocator();
+        IdAllocator counting = new IdAllocator() {
+            @Override
+            public int nextId() {
+                return inner.nextId();
+            }
+
+            @Override
+            public void reserve(int existingId) {
+                reserved.add(existingId);
+                inner.reserve(existingId);
+            }
+
+            @Override
+            public int peekNextId() {
+                return inner.peekNextId();
+            }
+        };
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, counting);
+
+        assertEquals(List.of(maxId), reserved, "Аллокатор сдвигается один раз за наибольший id");
+        assertEquals(5, loaded.getSubtasksOfEpic(epic.getId()).size());
+        assertTrue(loaded.getHistory().isEmpty(), "Загрузка не должна писать историю");
+    }
+
+    @Test
+    void testBatchShouldBeSavedToFile() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Epic Description"));
+        taskManager.createAll(List.of(
+                new Task(0, "Task 1", "Description 1", TaskStatus.NEW,
+                        LocalDateTime.now(), Duration.ofHours(1)),
+                new Subtask(0, "Subtask 1", "Sub Description 1", TaskStatus.NEW, epic.getId(),
+                        LocalDateTime.now().plusHours(2), Duration.ofHours(1))));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(taskManager.getAllTasks(), loaded.getAllTasks());
+        assertEquals(taskManager.getAllSubtasks(), loaded.getAllSubtasks());
+
+        taskManager.deleteAll(List.of(epic.getId()));
+        loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertTrue(loaded.getAllEpics().isEmpty());
+        assertTrue(loaded.getAllSubtasks().isEmpty());
+    }
+
+    @Test
+    void testTransactionShouldBeSavedOnCommit() throws IOException {
+        taskManager.createTask(new Task(0, "Task 1", "Description 1", TaskStatus.NEW,
+                LocalDateTime.now(), Duration.ofHours(1)));
+        String saved = Files.readString(tempFile.toPath());
+
+        taskManager.begin();
+        taskManager.createTask(new Task(0, "Task 2", "Description 2", TaskStatus.NEW,
+                LocalDateTime.now().plusHours(2), Duration.ofHours(1)));
+        assertEquals(saved, Files.readString(tempFile.toPath()), "До commit файл не меняется");
+        taskManager.commit();
+
+        assertEquals(2, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+    }
+
+    @Test
+    void testLoadShouldNotReuseIdsOfDeletedTasks() {
+        taskManager.createTask(new Task(0, "Task 1", "Description 1", TaskStatus.NEW,
+                LocalDateTime.now(), Duration.ofHours(1)));
+        Task deleted = taskManager.createTask(new Task(0, "Task 2", "Description 2", TaskStatus.NEW,
+                LocalDateTime.now().plusHours(2), Duration.ofHours(1)));
+        taskManager.deleteTaskById(deleted.getId());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        Task created = loaded.createTask(new Task(0, "Task 3", "Description 3", TaskStatus.NEW,
+                LocalDateTime.now().plusHours(4), Duration.ofHours(1)));
+        assertTrue(created.getId() > deleted.getId());
+    }
+
+    @Test
+    void testRecurringTaskShouldBeSavedAsOneLine() throws IOException {
+        LocalDateTime start = LocalDateTime.of(2025, 9, 1, 8, 0);
+        Task standup = new Task(0, "Standup", "Daily", TaskStatus.NEW, start, Duration.ofMinutes(15));
+        standup.setRecurrence(Recurrence.daily().until(start.plusDays(364)));
+        taskManager.createTask(standup);
+
+        assertEquals(3, Files.readAllLines(tempFile.toPath()).size(), "Заголовок, серия и nextId");
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(standup.getRecurrence(), loaded.getTaskById(standup.getId()).getRecurrence());
+        assertEquals(7, loaded.getPrioritizedTasks(start, start.plusWeeks(1)).size());
+    }
+
+    @Test
+    void testArchiveCompletedShouldMoveDoneWorkToColdStore() {
+        LocalDateTime start = LocalDateTime.of(2025, 9, 1, 8, 0);
+        Task done = taskManager.createTask(new Task(0, "Report", "Sent", TaskStatus.DONE,
+                start, Duration.ofHours(1)));
+        Task open = taskManager.createTask(new Task(0, "Review", "Pending", TaskStatus.NEW,
+                start.plusHours(2), Duration.ofHours(1)));
+        Epic finished = taskManager.createEpic(new Epic("Release", "Shipped"));
+        Subtask build = taskManager.createSubtask(new Subtask(0, "Build", "Done", TaskStatus.DONE,
+                finished.getId(), start.plusHours(4), Duration.ofHours(1)));
+        Subtask deploy = taskManager.createSubtask(new Subtask(0, "Deploy", "Done", TaskStatus.DONE,
+                finished.getId(), start.plusHours(6), Duration.ofHours(1)));
+        Epic active = taskManager.createEpic(new Epic("Migration", "In progress"));
+        taskManager.createSubtask(new Subtask(0, "Schema", "Done", TaskStatus.DONE,
+                active.getId(), start.plusHours(8), Duration.ofHours(1)));
+        taskManager.createSubtask(new Subtask(0, "Data", "Todo", TaskStatus.NEW,
+                active.getId(), start.plusHours(10), Duration.ofHours(1)));
+        taskManager.getTaskById(done.getId());
+
+        assertEquals(4, taskManager.archiveCompleted(), "Задача, эпик и две его подзадачи");
+
+        assertEquals(List.of(open.getId()), taskManager.getAllTasks().stream().map(Task::getId).toList());
+        assertEquals(List.of(active.getId()), taskManager.getAllEpics().stream().map(Task::getId).toList());
+        assertEquals(2, taskManager.getAllSubtasks().size(), "Подзадачи незавершенного эпика остаются");
+        assertEquals(3, taskManager.getPrioritizedTasks().size());
+        assertTrue(taskManager.getHistory().isEmpty(), "Архивная задача убирается из истории");
+        assertEquals("Report", taskManager.getArchived(done.getId()).getTitle());
+        assertEquals(List.of(build.getId(), deploy.getId()), taskManager.findArchived(
+                TaskQuery.builder().epicId(finished.getId()).build()).stream().map(Task::getId).toList());
+        assertEquals(0, taskManager.archiveCompleted(), "Повторно нечего переносить");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertNull(loaded.getEpicById(finished.getId()));
+        assertEquals(TaskType.EPIC, loaded.getArchived(finished.getId()).getType());
+        assertEquals(2, loaded.findArchived(TaskQuery.parse("type=SUBTASK AND startTime>=" + start)).size());
+        Task created = loaded.createTask(new Task(0, "Next", "New", TaskStatus.NEW,
+                start.plusHours(12), Duration.ofHours(1)));
+        assertTrue(created.getId() > deploy.getId() && created.getId() > active.getId());
+    }
+
     @Test
     void testLoadFromNonExistentFile() {
         Path nonExistentPath = Path.of("non_existent_file.csv");
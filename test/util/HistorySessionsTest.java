@@ -0,0 +1,80 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistorySessionsTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final HistorySessions sessions = new HistorySessions(2, 3, Duration.ofSeconds(10), clock::get);
+
+    private static Task task(int id) {
+        Task task = new Task("Task " + id, "Description " + id);
+        task.setId(id);
+        return task;
+    }
+
+    private List<Integer> ids(String sessionId) {
+        return sessions.getHistory(sessionId).stream().map(Task::getId).toList();
+    }
+
+    @Test
+    void sessionsShouldHaveSeparateBoundedHistories() {
+        sessions.record("alice", task(1));
+        sessions.record("alice", task(2));
+        sessions.record("alice", task(3));
+        sessions.record("bob", task(1));
+
+        assertEquals(List.of(2, 3), ids("alice"));
+        assertEquals(List.of(1), ids("bob"));
+        assertTrue(ids("carol").isEmpty());
+        assertEquals(2, sessions.size());
+    }
+
+    @Test
+    void idleSessionsShouldExpire() {
+        sessions.record("alice", task(1));
+        sessions.record("bob", task(2));
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        sessions.record("bob", task(3));
+
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertTrue(ids("alice").isEmpty(), "История простаивавшей сессии сбрасывается");
+        assertEquals(List.of(2, 3), ids("bob"));
+
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+        sessions.record("carol", task(4));
+        assertEquals(1, sessions.size(), "Истекшие сессии удаляются при обращениях");
+    }
+
+    @Test
+    void expiredSessionsShouldBeRemovedOnReads() {
+        sessions.record("alice", task(1));
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        ids("bob");
+
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    void newSessionsShouldNotBeCreatedOverLimit() {
+        assertTrue(sessions.record("alice", task(1)));
+        assertTrue(sessions.record("bob", task(1)));
+        assertTrue(sessions.record("carol", task(1)));
+
+        assertFalse(sessions.record("dave", task(1)));
+        assertTrue(ids("dave").isEmpty());
+        assertTrue(sessions.record("alice", task(2)), "Существующие сессии продолжают работать");
+        assertEquals(3, sessions.size());
+
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertTrue(sessions.record("dave", task(3)), "После очистки истекших сессий место освобождается");
+        assertEquals(1, sessions.size());
+    }
+}
@@ -43,19 +43,17 @@ class InMemoryHistoryManagerTest {
     }
 
     @Test
-    void addShouldSaveCopy() {
-        Task originalTask = new Task(0, "original title", "original description", TaskStatus.NEW,
-                LocalDateTime.of(2025, 7, 21, 13, 30), // обновленное время
-                Duration.ofHours(1));
-        historyManager.add(originalTask);
-
-        originalTask.setStatus(TaskStatus.IN_PROGRESS);
-        originalTask.setDescription("changes");
+    void addShouldKeepViewedVersionWithoutCopy() {
+        Task viewed = new Task(0, "original title", "original description", TaskStatus.NEW,
+                LocalDateTime.of(2025, 7, 21, 13, 30),
+                Duration.ofHours(1)).freeze();
+        historyManager.add(viewed);
+        Task changed = viewed.withStatus(TaskStatus.IN_PROGRESS).withDescription("changes");
 
         Task fromHistoryTask = historyManager.getHistory().getFirst();
-        assertNotEquals(originalTask.getDescription(), fromHistoryTask.getDescription(),
-                "Должен хранить копии");
-        assertNotEquals(originalTask.getStatus(), fromHistoryTask.getStatus());
+        assertSame(viewed, fromHistoryTask, "Неизменяемая задача хранится без копирования");
+        assertNotEquals(changed.getDescription(), fromHistoryTask.getDescription());
+        assertThrows(UnsupportedOperationException.class, () -> fromHistoryTask.setStatus(TaskStatus.DONE));
     }
 
     @Test
@@ -73,4 +73,96 @@ class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
         assertEquals(task1, prioritized.get(2), "Третья задача должна быть task1.");
     }
 
-}
\ No newline at end of file
+    @Test
+    void prioritizedTasksShouldKeepTasksWithSameStartTime() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 23, 10, 0);
+        Task task1 = new Task("Task 1", "Description 1");
+        task1.setStartTime(start);
+        taskManager.createTask(task1);
+        Task task2 = new Task("Task 2", "Description 2");
+        task2.setStartTime(start);
+        taskManager.createTask(task2);
+
+        assertEquals(List.of(task1, task2), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void deletedAndMovedTasksShouldLeavePrioritizedTasks() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 23, 10, 0);
+        Task task1 = taskManager.createTask(new Task(0, "Task 1", "Description 1", TaskStatus.NEW,
+                start, Duration.ofMinutes(30)));
+        Task task2 = taskManager.createTask(new Task(0, "Task 2", "Description 2", TaskStatus.NEW,
+                start.plusHours(1), Duration.ofMinutes(30)));
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Description"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.NEW,
+                epic.getId(), start.plusHours(2), Duration.ofMinutes(30)));
+
+        taskManager.updateTask(new Task(task1.getId(), "Task 1", "Description 1", TaskStatus.NEW,
+                start.plusHours(3), Duration.ofMinutes(30)));
+        List<Integer> ids = taskManager.getPrioritizedTasks().stream().map(Task::getId).toList();
+        assertEquals(List.of(task2.getId(), subtask.getId(), task1.getId()), ids);
+
+        taskManager.deleteTaskById(task2.getId());
+        taskManager.deleteEpicById(epic.getId());
+        assertEquals(List.of(task1), taskManager.getPrioritizedTasks());
+
+        taskManager.clearAllTasks();
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty());
+    }
+
+    @Test
+    void repeatedReadsShouldShareSnapshotUntilNextChange() {
+        taskManager.createTask(new Task("Task 1", "Description 1"));
+        List<Task> first = taskManager.getAllTasks();
+
+        assertSame(first, taskManager.getAllTasks(), "Без изменений снимок не должен пересобираться");
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new Task("Task", "Description")));
+
+        taskManager.createTask(new Task("Task 2", "Description 2"));
+        List<Task> second = taskManager.getAllTasks();
+        assertEquals(1, first.size(), "Старый снимок не должен меняться");
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    void rollbackShouldRestoreClearedManager() {
+        Task task = taskManager.createTask(new Task(0, "Task", "D", TaskStatus.NEW,
+                LocalDateTime.of(2025, 7, 23, 10, 0), Duration.ofHours(1)));
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Sub", "D", TaskStatus.DONE, epic.getId(),
+                null, null));
+
+        taskManager.begin();
+        assertThrows(IllegalStateException.class, taskManager::begin, "Вложенные транзакции не поддерживаются");
+        taskManager.clearAll();
+        taskManager.createTask(new Task("Temp", "D"));
+        taskManager.rollback();
+
+        assertEquals(List.of(task), taskManager.getAllTasks());
+        assertEquals(List.of(epic), taskManager.getAllEpics());
+        assertEquals(List.of(subtask), taskManager.getSubtasksOfEpic(epic.getId()));
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+        assertSame(task, taskManager.getTaskById(task.getId()), "Восстанавливается тот же объект задачи");
+        assertThrows(IllegalStateException.class, taskManager::commit);
+    }
+
+    @Test
+    void explainShouldChooseMostSelectiveIndex() {
+        LocalDateTime start = LocalDateTime.of(2025, 8, 4, 9, 0);
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        for (int i = 0; i < 20; i++) {
+            taskManager.createTask(new Task(0, "Task " + i, "D", TaskStatus.NEW,
+                    start.plusHours(i), Duration.ofMinutes(30)));
+        }
+        taskManager.createSubtask(new Subtask(0, "Sub", "D", TaskStatus.NEW, epic.getId(),
+                start.plusDays(2), Duration.ofMinutes(30)));
+
+        assertEquals(QueryPlan.EPIC, taskManager.explain(TaskQuery.parse("status=NEW AND epicId=" + epic.getId())));
+        assertEquals(QueryPlan.TIME, taskManager.explain(
+                TaskQuery.parse("status=NEW AND startTime>=2025-08-04T09:00 AND startTime<2025-08-04T11:00")));
+        assertEquals(QueryPlan.STATUS, taskManager.explain(TaskQuery.parse("status=DONE")));
+        assertEquals(QueryPlan.TYPE, taskManager.explain(TaskQuery.parse("type=SUBTASK AND status=NEW")));
+        assertEquals(QueryPlan.SCAN, taskManager.explain(TaskQuery.parse("")));
+        assertEquals(QueryPlan.ID, taskManager.explain(TaskQuery.parse("id=5 AND status=NEW")));
+    }
+}
@@ -0,0 +1,40 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntHashSetTest {
+
+    @Test
+    void addShouldIgnoreDuplicates() {
+        IntHashSet set = new IntHashSet();
+        assertTrue(set.add(5));
+        assertFalse(set.add(5));
+        assertEquals(1, set.size());
+        assertEquals("[5]", set.toString());
+    }
+
+    @Test
+    void removeShouldKeepOtherValuesReachable() {
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(500);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (int value = 0; value < 500; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectHashMapTest {
+    private IntObjectHashMap<String> map;
+
+    @BeforeEach
+    void setUp() {
+        map = new IntObjectHashMap<>();
+    }
+
+    @Test
+    void putShouldReplaceValueAndReturnPrevious() {
+        assertNull(map.put(1, "one"));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("uno", map.get(1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void nullValuesAreNotAllowed() {
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+    }
+
+    @Test
+    void valuesShouldContainEveryValue() {
+        for (int i = 1; i <= 100; i++) {
+            map.put(i, "v" + i);
+        }
+        assertEquals(100, map.values().size());
+        assertEquals(100, map.keys().length);
+        assertTrue(map.values().contains("v1"));
+        assertTrue(map.values().contains("v100"));
+    }
+
+    @Test
+    void sequentialKeysShouldNotFormLongClusters() {
+        int count = 200_000;
+        for (int i = 1; i <= count; i++) {
+            map.put(i, "v");
+        }
+        // без перемешивания последовательные ключи занимают одну серию длиной count,
+        // и каждое удаление сдвигает элементы до ее конца
+        assertTrue(map.longestCluster() <= 64, "Самая длинная серия: " + map.longestCluster());
+
+        for (int i = 1; i <= count; i += 2) {
+            assertEquals("v", map.remove(i));
+        }
+        assertTrue(map.longestCluster() <= 64, "Самая длинная серия после удалений: " + map.longestCluster());
+        for (int i = 2; i <= count; i += 2) {
+            assertEquals("v", map.remove(i));
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.longestCluster());
+    }
+
+    @Test
+    void shouldBehaveLikeHashMapUnderRandomOperations() {
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000) - 100;
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -100; key < 1_900; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
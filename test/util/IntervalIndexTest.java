@@ -0,0 +1,66 @@
+package util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalIndexTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 7, 21, 8, 0);
+    private IntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new IntervalIndex();
+    }
+
+    @Test
+    void emptyIndexHasNoOverlaps() {
+        assertFalse(index.hasOverlap(START, START.plusHours(1), 0));
+    }
+
+    @Test
+    void shouldFindOverlapIncludingBorders() {
+        index.add(1, START, START.plusHours(1));
+
+        assertTrue(index.hasOverlap(START.plusMinutes(30), START.plusHours(2), 0));
+        assertTrue(index.hasOverlap(START.plusHours(1), START.plusHours(2), 0), "Границы включаются");
+        assertFalse(index.hasOverlap(START.plusHours(1).plusMinutes(1), START.plusHours(2), 0));
+    }
+
+    @Test
+    void shouldIgnoreExcludedId() {
+        index.add(1, START, START.plusHours(1));
+
+        assertFalse(index.hasOverlap(START, START.plusHours(1), 1));
+    }
+
+    @Test
+    void addWithSameIdShouldReplaceInterval() {
+        index.add(1, START, START.plusHours(1));
+        index.add(1, START.plusHours(5), START.plusHours(6));
+
+        assertEquals(1, index.size());
+        assertFalse(index.hasOverlap(START, START.plusHours(1), 0));
+        assertTrue(index.hasOverlap(START.plusHours(5), START.plusHours(6), 0));
+    }
+
+    @Test
+    void shouldStayConsistentAfterManyRemovals() {
+        for (int i = 1; i <= 1000; i++) {
+            LocalDateTime start = START.plusHours(2L * i);
+            index.add(i, start, start.plusHours(1));
+        }
+        for (int i = 1; i <= 1000; i += 2) {
+            index.remove(i);
+        }
+
+        assertEquals(500, index.size());
+        for (int i = 1; i <= 1000; i++) {
+            LocalDateTime start = START.plusHours(2L * i).plusMinutes(10);
+            assertEquals(i % 2 == 0, index.hasOverlap(start, start.plusMinutes(10), 0));
+        }
+    }
+}
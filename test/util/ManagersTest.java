@@ -1,6 +1,7 @@
 package util;
 
 import org.junit.jupiter.api.Test;
+import tasks.Task;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,4 +19,16 @@ class ManagersTest {
         assertNotNull(historyManager);
         assertTrue(historyManager.getHistory().isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getDefaultHistoryShouldRespectCapacity() {
+        HistoryManager bounded = Managers.getDefaultHistory(2);
+        for (int id = 1; id <= 3; id++) {
+            Task task = new Task("Task " + id, "");
+            task.setId(id);
+            bounded.add(task);
+        }
+        assertEquals(2, bounded.getHistory().size());
+        assertTrue(Managers.getDefaultHistory(0) instanceof InMemoryHistoryManager);
+    }
+}
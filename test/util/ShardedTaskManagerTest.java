@@ -0,0 +1,203 @@
+package util;
+
+import exceptions.TimeConflictException;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedTaskManagerTest extends TaskManagerTest<ShardedTaskManager> {
+    private static final int SHARDS = 4;
+
+    @Override
+    protected ShardedTaskManager createTaskManager() {
+        return new ShardedTaskManager(SHARDS);
+    }
+
+    @Test
+    void subtasksShouldStayInShardOfTheirEpic() {
+        for (int i = 0; i < 10; i++) {
+            Epic epic = taskManager.createEpic(new Epic("Epic " + i, "Description"));
+            Subtask subtask = taskManager.createSubtask(new Subtask("Subtask", "Description", epic.getId()));
+
+            assertEquals(Math.floorMod(epic.getId(), SHARDS), Math.floorMod(subtask.getId(), SHARDS));
+            assertEquals(List.of(subtask), taskManager.getSubtasksOfEpic(epic.getId()));
+        }
+        assertEquals(10, taskManager.getAllEpics().size());
+        assertEquals(10, taskManager.getAllSubtasks().size());
+    }
+
+    @Test
+    void listsShouldBeMergedAcrossShardsInOrder() {
+        LocalDateTime start = LocalDateTime.of(2025, 8, 1, 10, 0);
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            // задачи создаются в обратном порядке времени, чтобы порядок id и времени различался
+            created.add(taskManager.createTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW,
+                    start.plusHours(12 - i), Duration.ofMinutes(30))));
+        }
+
+        List<Task> all = taskManager.getAllTasks();
+        assertEquals(12, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getId() < all.get(i).getId(), "Задачи должны быть упорядочены по id");
+        }
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        assertEquals(12, prioritized.size());
+        for (int i = 1; i < prioritized.size(); i++) {
+            assertTrue(prioritized.get(i - 1).getStartTime().isBefore(prioritized.get(i).getStartTime()));
+        }
+        assertEquals(created.getLast().getId(), prioritized.getFirst().getId());
+    }
+
+    @Test
+    void overlapShouldBeCheckedAcrossShards() {
+        LocalDateTime start = LocalDateTime.of(2025, 8, 1, 10, 0);
+        taskManager.createTask(new Task(0, "Task", "Description", TaskStatus.NEW, start, Duration.ofHours(1)));
+
+        for (int i = 0; i < SHARDS; i++) {
+            assertThrows(TimeConflictException.class, () -> taskManager.createTask(new Task(0, "Task",
+                    "Description", TaskStatus.NEW, start.plusMinutes(30), Duration.ofHours(1))));
+        }
+        assertEquals(1, taskManager.getAllTasks().size());
+    }
+
+    // подзадачи переносятся только между эпиками одного сегмента, поэтому второй эпик берется из сегмента первого
+    @Override
+    @Test
+    void epicShouldBeRecalculatedWhenSubtaskMovesOrIsDeleted() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 24, 9, 0);
+        Epic epic1 = taskManager.createEpic(new Epic("E1", "D1"));
+        Epic epic2 = taskManager.createEpic(new Epic("E2", "D2"));
+        while (Math.floorMod(epic2.getId(), SHARDS) != Math.floorMod(epic1.getId(), SHARDS)) {
+            epic2 = taskManager.createEpic(new Epic("E2", "D2"));
+        }
+        Subtask subtask1 = taskManager.createSubtask(new Subtask(0, "S1", "D1", TaskStatus.DONE, epic1.getId(),
+                start, Duration.ofMinutes(30)));
+        Subtask subtask2 = taskManager.createSubtask(new Subtask(0, "S2", "D2", TaskStatus.NEW, epic1.getId(),
+                start.plusHours(1), Duration.ofMinutes(60)));
+        epic1 = taskManager.getEpicById(epic1.getId());
+        assertEquals(TaskStatus.IN_PROGRESS, epic1.getStatus());
+        assertEquals(Duration.ofMinutes(90), epic1.getDuration());
+
+        taskManager.updateSubtask(new Subtask(subtask2.getId(), "S2", "D2", TaskStatus.NEW, epic2.getId(),
+                start.plusHours(1), Duration.ofMinutes(60)));
+        epic1 = taskManager.getEpicById(epic1.getId());
+        epic2 = taskManager.getEpicById(epic2.getId());
+        assertEquals(TaskStatus.DONE, epic1.getStatus(), "Статус старого эпика должен пересчитаться");
+        assertEquals(start.plusMinutes(30), epic1.getEndTime(), "Время старого эпика должно пересчитаться");
+        assertEquals(Duration.ofMinutes(30), epic1.getDuration());
+        assertEquals(TaskStatus.NEW, epic2.getStatus());
+        assertEquals(start.plusHours(1), epic2.getStartTime());
+
+        taskManager.deleteSubtaskById(subtask1.getId());
+        epic1 = taskManager.getEpicById(epic1.getId());
+        assertNull(epic1.getStartTime());
+        assertNull(epic1.getEndTime());
+        assertNull(epic1.getDuration());
+    }
+
+    @Test
+    void subtaskShouldNotMoveToEpicOfAnotherShard() {
+        Epic first = taskManager.createEpic(new Epic("Epic 1", "Description"));
+        Epic second = taskManager.createEpic(new Epic("Epic 2", "Description"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("Subtask", "Description", first.getId()));
+
+        Subtask moved = new Subtask(subtask.getId(), "Subtask", "Description", second.getId());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateSubtask(moved));
+        assertEquals(first.getId(), taskManager.getSubtaskById(subtask.getId()).getEpicId());
+    }
+
+    @Test
+    void onlyOneOfConcurrentOverlappingTasksShouldBeCreated() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 8, 1, 10, 0);
+        AtomicInteger conflicts = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int slot = i % 10;
+            futures.add(executor.submit(() -> {
+                try {
+                    taskManager.createTask(new Task(0, "Task", "Description", TaskStatus.NEW,
+                            start.plusHours(slot * 2L), Duration.ofMinutes(30)));
+                } catch (TimeConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(10, taskManager.getAllTasks().size(), "В каждый слот должна попасть одна задача");
+        assertEquals(90, conflicts.get());
+    }
+
+    @Test
+    void pagesShouldWalkAllShardsInIdOrder() {
+        List<Integer> created = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            created.add(taskManager.createTask(new Task("Task " + i, "Description")).getId());
+        }
+
+        List<Integer> paged = new ArrayList<>();
+        Integer cursor = 0;
+        while (cursor != null) {
+            Page<Task> page = taskManager.getTasksPage(cursor, 7);
+            assertTrue(page.getItems().size() <= 7);
+            page.getItems().forEach(task -> paged.add(task.getId()));
+            cursor = page.getNextCursor();
+        }
+        assertEquals(created, paged);
+    }
+
+    @Test
+    void batchShouldBeRolledBackInAllShardsWhenOneShardFails() {
+        ShardedTaskManager manager = new ShardedTaskManager(2, allocator -> new ConcurrentTaskManager(
+                new InMemoryTaskManager(allocator, null, Managers.getDisabledHistory()) {
+                    @Override
+                    public List<Task> createAll(Collection<? extends Task> items) {
+                        if (items.stream().anyMatch(item -> item.getTitle().equals("Broken"))) {
+                            throw new IllegalArgumentException("Сегмент отклонил пакет");
+                        }
+                        return super.createAll(items);
+                    }
+                }), Runnable::run);
+
+        // задачи без id распределяются по кругу, поэтому пакет попадает в оба сегмента
+        assertThrows(IllegalArgumentException.class, () -> manager.createAll(
+                List.of(new Task("Ok", "Description"), new Task("Broken", "Description"))));
+
+        assertTrue(manager.getAllTasks().isEmpty(), "Часть пакета в первом сегменте должна быть отменена");
+    }
+
+    @Test
+    void freeSlotsWithSmallLimitShouldBeFirstSlotsOfFullList() {
+        LocalDateTime start = LocalDateTime.of(2025, 8, 1, 8, 0);
+        for (int i = 0; i < 40; i++) {
+            taskManager.createTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW,
+                    start.plusMinutes(90L * i), Duration.ofMinutes(30)));
+        }
+        LocalDateTime to = start.plusDays(3);
+
+        List<TimeSlot> all = taskManager.findFreeSlots(Duration.ofMinutes(20), start, to, 1_000);
+        List<TimeSlot> first = taskManager.findFreeSlots(Duration.ofMinutes(20), start, to, 3);
+
+        assertTrue(all.size() > 3);
+        assertEquals(all.subList(0, 3), first);
+    }
+}
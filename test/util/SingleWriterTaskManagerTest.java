@@ -0,0 +1,240 @@
+package util;
+
+import exceptions.TimeConflictException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleWriterTaskManagerTest extends TaskManagerTest<SingleWriterTaskManager> {
+    @Override
+    protected SingleWriterTaskManager createTaskManager() {
+        return new SingleWriterTaskManager(new InMemoryTaskManager(), 16);
+    }
+
+    @AfterEach
+    void clear() {
+        taskManager.close();
+    }
+
+    @Test
+    void writeShouldBeVisibleInSnapshotAfterReturn() {
+        Task task = taskManager.createTask(new Task("Task", "Description"));
+
+        assertEquals(task, taskManager.getAllTasks().getFirst());
+    }
+
+    @Test
+    void conflictShouldBeThrownToCaller() {
+        LocalDateTime start = LocalDateTime.of(2025, 8, 1, 10, 0);
+        taskManager.createTask(new Task(0, "Task 1", "Description", TaskStatus.NEW, start, Duration.ofHours(1)));
+
+        assertThrows(TimeConflictException.class, () -> taskManager.createTask(
+                new Task(0, "Task 2", "Description", TaskStatus.NEW, start, Duration.ofHours(1))));
+    }
+
+    @Test
+    void writesFromManyThreadsShouldAllBeApplied() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1_000; i++) {
+            int number = i;
+            executor.submit(() -> taskManager.createTask(new Task("Task " + number, "Description")));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1_000, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void closedManagerShouldRejectCommands() {
+        taskManager.close();
+
+        assertThrows(IllegalStateException.class, () -> taskManager.createTask(new Task("Task", "Description")));
+    }
+
+    @Test
+    void errorInCommandShouldReachCallerAndKeepWriterRunning() throws Exception {
+        SingleWriterTaskManager manager = new SingleWriterTaskManager(new InMemoryTaskManager() {
+            @Override
+            public Task getTaskById(int id) {
+                throw new AssertionError("Ошибка внутри менеджера");
+            }
+        });
+        try {
+            Thread caller = new Thread(() -> {
+                assertThrows(AssertionError.class, () -> manager.getTaskById(1));
+                manager.createTask(new Task("Task", "Description"));
+            });
+            caller.start();
+            caller.join(TimeUnit.SECONDS.toMillis(30));
+            assertFalse(caller.isAlive(), "Писатель перестал выполнять команды после ошибки");
+            assertEquals(1, manager.getAllTasks().size());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    void commandsRacingWithCloseShouldNotHang() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            calls.add(executor.submit(() -> {
+                try {
+                    taskManager.createTask(new Task("Task", "Description"));
+                } catch (IllegalStateException e) {
+                    // менеджер уже остановлен
+                }
+            }));
+        }
+        taskManager.close();
+        for (Future<?> call : calls) {
+            call.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void transactionShouldHoldOtherWritersUntilCommit() throws Exception {
+        taskManager.begin();
+        Task task = taskManager.createTask(new Task("Task 1", "Description"));
+        CompletableFuture<Task> other = CompletableFuture.supplyAsync(
+                () -> taskManager.createTask(new Task("Task 2", "Description")));
+
+        assertEquals(List.of(task), taskManager.getAllTasks(), "Владелец видит свои изменения");
+        Thread.sleep(100);
+        assertFalse(other.isDone(), "Запись другого потока ждет завершения транзакции");
+
+        taskManager.commit();
+
+        other.get(5, TimeUnit.SECONDS);
+        assertEquals(2, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void rollbackShouldDiscardChanges() {
+        taskManager.begin();
+        taskManager.createTask(new Task("Task", "Description"));
+        taskManager.rollback();
+
+        assertTrue(taskManager.getAllTasks().isEmpty());
+    }
+
+    @Test
+    void idleTransactionShouldBeRolledBackAfterTimeout() throws Exception {
+        SingleWriterTaskManager manager = new SingleWriterTaskManager(new InMemoryTaskManager(), 16, Duration.ofMillis(100));
+        try {
+            manager.begin();
+            manager.createTask(new Task("Task 1", "Description"));
+            // запись другого потока выполнится только после отката брошенной транзакции
+            CompletableFuture<Task> other = CompletableFuture.supplyAsync(
+                    () -> manager.createTask(new Task("Task 2", "Description")));
+
+            Task created = other.get(30, TimeUnit.SECONDS);
+
+            assertThrows(IllegalStateException.class, manager::commit, "Владелец узнает об отмене");
+            assertThrows(IllegalStateException.class, manager::commit, "Транзакции больше нет");
+            assertEquals(List.of(created), manager.getAllTasks());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    void snapshotReadsShouldMatchInnerManager() {
+        InMemoryTaskManager inner = new InMemoryTaskManager();
+        SingleWriterTaskManager manager = new SingleWriterTaskManager(inner, 16);
+        try {
+            Random random = new Random(11);
+            String[] words = {"fix", "bug", "review", "report", "deploy"};
+            LocalDateTime base = LocalDateTime.of(2025, 9, 1, 0, 0);
+            for (int i = 0; i < 2_000; i++) {
+                String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+                LocalDateTime start = random.nextBoolean() ? base.plusHours(i) : null;
+                List<Epic> epics = manager.getAllEpics();
+                List<Task> tasks = manager.getAllTasks();
+                List<Subtask> subtasks = manager.getAllSubtasks();
+                switch (random.nextInt(8)) {
+                    case 0 -> manager.createEpic(new Epic(title, "Description"));
+                    case 1, 2 -> {
+                        if (!epics.isEmpty()) {
+                            int epicId = epics.get(random.nextInt(epics.size())).getId();
+                            manager.createSubtask(new Subtask(0, title, "Description", TaskStatus.NEW, epicId,
+                                    start, start == null ? null : Duration.ofMinutes(30)));
+                        }
+                    }
+                    case 3 -> manager.createTask(new Task(0, title, "Description", TaskStatus.NEW,
+                            start, start == null ? null : Duration.ofMinutes(30)));
+                    case 4 -> {
+                        if (!subtasks.isEmpty()) {
+                            Subtask subtask = subtasks.get(random.nextInt(subtasks.size()));
+                            manager.updateSubtask(subtask.withStatus(TaskStatus.values()[random.nextInt(3)])
+                                    .withTitle(title));
+                        }
+                    }
+                    case 5 -> {
+                        if (!tasks.isEmpty()) {
+                            manager.deleteTaskById(tasks.get(random.nextInt(tasks.size())).getId());
+                        }
+                    }
+                    case 6 -> {
+                        if (!epics.isEmpty() && random.nextInt(4) == 0) {
+                            manager.deleteEpicById(epics.get(random.nextInt(epics.size())).getId());
+                        }
+                    }
+                    default -> {
+                        if (!subtasks.isEmpty()) {
+                            manager.getSubtaskById(subtasks.get(random.nextInt(subtasks.size())).getId());
+                        }
+                    }
+                }
+            }
+
+            assertEquals(inner.getAllTasks(), manager.getAllTasks());
+            assertEquals(inner.getAllSubtasks(), manager.getAllSubtasks());
+            assertEquals(inner.getAllEpics(), manager.getAllEpics());
+            assertEquals(inner.getPrioritizedTasks(), manager.getPrioritizedTasks());
+            assertEquals(inner.getHistory(), manager.getHistory());
+            for (Epic epic : inner.getAllEpics()) {
+                assertEquals(inner.getSubtasksOfEpic(epic.getId()), manager.getSubtasksOfEpic(epic.getId()));
+                assertEquals(inner.getVersion(TaskType.EPIC, epic.getId()),
+                        manager.getVersion(TaskType.EPIC, epic.getId()));
+                TaskQuery byEpic = TaskQuery.builder().epicId(epic.getId()).status(TaskStatus.DONE).build();
+                assertEquals(inner.query(byEpic), manager.query(byEpic));
+            }
+            for (String text : List.of("status=NEW", "type=SUBTASK AND status=IN_PROGRESS", "type=EPIC",
+                    "startTime>=2025-09-10T00:00 AND startTime<2025-09-12T00:00", "status=DONE AND startTime<2025-09-05T00:00")) {
+                TaskQuery query = TaskQuery.parse(text);
+                assertEquals(inner.query(query), manager.query(query), text);
+            }
+            for (String text : List.of("fix", "re", "bug fix", "deploy rev", "missing")) {
+                assertEquals(inner.search(text, 5), manager.search(text, 5), text);
+                assertEquals(inner.search(text, 1_000), manager.search(text, 1_000), text);
+            }
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    void commitWithoutTransactionShouldFail() {
+        assertThrows(IllegalStateException.class, taskManager::commit);
+    }
+}
@@ -5,13 +5,16 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import tasks.Epic;
+import tasks.Recurrence;
 import tasks.Subtask;
 import tasks.Task;
 import tasks.TaskStatus;
+import tasks.TaskType;
 
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -140,6 +143,54 @@ public abstract class TaskManagerTest<T extends TaskManager> {
                 "Должно быть исключение при пересечении времени");
     }
 
+    @Test
+    void deletedTaskShouldFreeTimeSlot() {
+        LocalDateTime startTime = LocalDateTime.of(2025, 7, 22, 10, 0);
+
+        Task task1 = new Task(0, "Task 1", "Description 1", TaskStatus.NEW, startTime, Duration.ofHours(1));
+        taskManager.createTask(task1);
+        taskManager.deleteTaskById(task1.getId());
+
+        Task task2 = new Task(0, "Task 2", "Description 2", TaskStatus.NEW,
+                startTime.plusMinutes(30), Duration.ofHours(1));
+        assertDoesNotThrow(() -> taskManager.createTask(task2), "Удаленная задача не должна занимать время");
+    }
+
+    @Test
+    void updatedTaskTimeShouldBeUsedForOverlapCheck() {
+        LocalDateTime startTime = LocalDateTime.of(2025, 7, 22, 10, 0);
+
+        Task task1 = new Task(0, "Task 1", "Description 1", TaskStatus.NEW, startTime, Duration.ofHours(1));
+        taskManager.createTask(task1);
+        taskManager.updateTask(new Task(task1.getId(), "Task 1", "Description 1", TaskStatus.NEW,
+                startTime.plusHours(5), Duration.ofHours(1)));
+
+        Task task2 = new Task(0, "Task 2", "Description 2", TaskStatus.NEW, startTime, Duration.ofHours(1));
+        assertDoesNotThrow(() -> taskManager.createTask(task2), "Старое время задачи должно освободиться");
+
+        Task task3 = new Task(0, "Task 3", "Description 3", TaskStatus.NEW,
+                startTime.plusHours(5).plusMinutes(30), Duration.ofHours(1));
+        assertThrows(TimeConflictException.class, () -> taskManager.createTask(task3),
+                "Новое время задачи должно быть занято");
+    }
+
+    @Test
+    void updateSubtaskShouldCheckOverlap() {
+        LocalDateTime startTime = LocalDateTime.of(2025, 7, 22, 10, 0);
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Description"));
+        Subtask subtask1 = taskManager.createSubtask(new Subtask(0, "S1", "D1", TaskStatus.NEW, epic.getId(),
+                startTime, Duration.ofHours(1)));
+        Subtask subtask2 = taskManager.createSubtask(new Subtask(0, "S2", "D2", TaskStatus.NEW, epic.getId(),
+                startTime.plusHours(2), Duration.ofHours(1)));
+
+        Subtask moved = new Subtask(subtask2.getId(), "S2", "D2", TaskStatus.NEW, epic.getId(),
+                startTime.plusMinutes(30), Duration.ofHours(1));
+        assertThrows(TimeConflictException.class, () -> taskManager.updateSubtask(moved));
+        assertEquals(startTime.plusHours(2), taskManager.getSubtaskById(subtask2.getId()).getStartTime(),
+                "Время подзадачи не должно измениться при конфликте");
+        assertEquals(subtask1.getStartTime(), taskManager.getEpicById(epic.getId()).getStartTime());
+    }
+
     @Test
     public void testEpicTimeCalculation() {
         LocalDateTime startTime = LocalDateTime.now();
@@ -174,23 +225,507 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         Subtask subtask1 = new Subtask(0, "S1", "D1", TaskStatus.NEW, epic.getId(),
                 start, Duration.ofMinutes(30));
         taskManager.createSubtask(subtask1);
-        assertEquals(TaskStatus.NEW, epic.getStatus(), "Статус эпика должен быть NEW");
+        assertEquals(TaskStatus.NEW, statusOf(epic), "Статус эпика должен быть NEW");
 
         // b. Все подзадачи DONE
         subtask1.setStatus(TaskStatus.DONE);
         taskManager.updateSubtask(subtask1);
-        assertEquals(TaskStatus.DONE, epic.getStatus(), "Статус эпика должен быть DONE");
+        assertEquals(TaskStatus.DONE, statusOf(epic), "Статус эпика должен быть DONE");
 
         // c. NEW и DONE
         Subtask subtask2 = new Subtask(0, "S2", "D2", TaskStatus.NEW, epic.getId(),
                 start.plusHours(1), Duration.ofMinutes(60));
         taskManager.createSubtask(subtask2);
-        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus(), "Статус эпика должен быть IN_PROGRESS");
+        assertEquals(TaskStatus.IN_PROGRESS, statusOf(epic), "Статус эпика должен быть IN_PROGRESS");
 
         // d. Подзадачи IN_PROGRESS
         subtask2.setStatus(TaskStatus.IN_PROGRESS);
         taskManager.updateSubtask(subtask2);
-        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus(), "Статус эпика должен быть IN_PROGRESS");
+        assertEquals(TaskStatus.IN_PROGRESS, statusOf(epic), "Статус эпика должен быть IN_PROGRESS");
+        assertEquals(TaskStatus.NEW, epic.getStatus(), "Полученная раньше версия эпика не меняется");
+    }
+
+    // текущая версия эпика: полученные раньше версии неизменяемы
+    private TaskStatus statusOf(Epic epic) {
+        return taskManager.getEpicById(epic.getId()).getStatus();
+    }
+
+    @Test
+    void epicShouldBeRecalculatedWhenSubtaskMovesOrIsDeleted() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 24, 9, 0);
+        Epic epic1 = taskManager.createEpic(new Epic("E1", "D1"));
+        Epic epic2 = taskManager.createEpic(new Epic("E2", "D2"));
+        Subtask subtask1 = taskManager.createSubtask(new Subtask(0, "S1", "D1", TaskStatus.DONE, epic1.getId(),
+                start, Duration.ofMinutes(30)));
+        Subtask subtask2 = taskManager.createSubtask(new Subtask(0, "S2", "D2", TaskStatus.NEW, epic1.getId(),
+                start.plusHours(1), Duration.ofMinutes(60)));
+        epic1 = taskManager.getEpicById(epic1.getId());
+        assertEquals(TaskStatus.IN_PROGRESS, epic1.getStatus());
+        assertEquals(Duration.ofMinutes(90), epic1.getDuration());
+
+        taskManager.updateSubtask(new Subtask(subtask2.getId(), "S2", "D2", TaskStatus.NEW, epic2.getId(),
+                start.plusHours(1), Duration.ofMinutes(60)));
+        epic1 = taskManager.getEpicById(epic1.getId());
+        epic2 = taskManager.getEpicById(epic2.getId());
+        assertEquals(TaskStatus.DONE, epic1.getStatus(), "Статус старого эпика должен пересчитаться");
+        assertEquals(start.plusMinutes(30), epic1.getEndTime(), "Время старого эпика должно пересчитаться");
+        assertEquals(Duration.ofMinutes(30), epic1.getDuration());
+        assertEquals(TaskStatus.NEW, epic2.getStatus());
+        assertEquals(start.plusHours(1), epic2.getStartTime());
+
+        taskManager.deleteSubtaskById(subtask1.getId());
+        epic1 = taskManager.getEpicById(epic1.getId());
+        assertNull(epic1.getStartTime());
+        assertNull(epic1.getEndTime());
+        assertNull(epic1.getDuration());
+    }
+
+    @Test
+    void pagesShouldNotSkipOrRepeatTasksAddedBetweenRequests() {
+        for (int i = 0; i < 5; i++) {
+            taskManager.createTask(new Task("Task " + i, "Description"));
+        }
+
+        Page<Task> first = taskManager.getTasksPage(0, 3);
+        assertEquals(3, first.getItems().size());
+        assertNotNull(first.getNextCursor());
+
+        taskManager.createTask(new Task("Task 5", "Description"));
+        Page<Task> second = taskManager.getTasksPage(first.getNextCursor(), 3);
+        assertEquals(3, second.getItems().size());
+        assertNull(second.getNextCursor(), "Страница должна быть последней");
+
+        List<Task> all = new ArrayList<>(first.getItems());
+        all.addAll(second.getItems());
+        assertEquals(taskManager.getAllTasks(), all);
+    }
+
+    @Test
+    void findTasksShouldUseStatusAndTimeIndexes() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 28, 9, 0);
+        Task monday = taskManager.createTask(new Task(0, "Mon", "D", TaskStatus.IN_PROGRESS,
+                start, Duration.ofHours(1)));
+        Task tuesday = taskManager.createTask(new Task(0, "Tue", "D", TaskStatus.NEW,
+                start.plusDays(1), Duration.ofHours(1)));
+        Task nextWeek = taskManager.createTask(new Task(0, "Next", "D", TaskStatus.IN_PROGRESS,
+                start.plusDays(7), Duration.ofHours(1)));
+        Task unscheduled = taskManager.createTask(new Task("No time", "D"));
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Sub", "D", TaskStatus.IN_PROGRESS,
+                epic.getId(), start.plusDays(2), Duration.ofHours(1)));
+
+        assertEquals(List.of(monday, nextWeek),
+                taskManager.findTasks(TaskType.TASK, TaskStatus.IN_PROGRESS, null, null));
+        assertEquals(List.of(monday, tuesday, subtask),
+                taskManager.findTasks(null, null, start, start.plusDays(7)), "Граница to не включается");
+        assertEquals(List.of(monday, subtask),
+                taskManager.findTasks(null, TaskStatus.IN_PROGRESS, start, start.plusDays(7)));
+
+        taskManager.updateTask(unscheduled.withStatus(TaskStatus.IN_PROGRESS));
+        taskManager.deleteTaskById(nextWeek.getId());
+        assertEquals(List.of(monday, unscheduled),
+                taskManager.findTasks(TaskType.TASK, TaskStatus.IN_PROGRESS, null, null));
+        assertEquals(List.of(epic), taskManager.findTasks(TaskType.EPIC, TaskStatus.IN_PROGRESS, null, null),
+                "Статус эпика должен попасть в индекс после пересчета");
+    }
+
+    @Test
+    void findFreeSlotsShouldReturnGapsBetweenScheduledTasks() {
+        LocalDateTime day = LocalDateTime.of(2025, 7, 28, 0, 0);
+        taskManager.createTask(new Task(0, "A", "D", TaskStatus.NEW, day.withHour(9), Duration.ofHours(1)));
+        taskManager.createTask(new Task(0, "B", "D", TaskStatus.NEW, day.withHour(12), Duration.ofHours(1)));
+        taskManager.createTask(new Task("No time", "D"));
+
+        List<TimeSlot> slots = taskManager.findFreeSlots(Duration.ofMinutes(30), day.withHour(8), day.withHour(14), 10);
+        assertEquals(List.of(
+                new TimeSlot(day.withHour(8), day.withHour(8).withMinute(59)),
+                new TimeSlot(day.withHour(10).withMinute(1), day.withHour(11).withMinute(59)),
+                new TimeSlot(day.withHour(13).withMinute(1), day.withHour(14))), slots);
+
+        assertEquals(List.of(new TimeSlot(day.withHour(10).withMinute(1), day.withHour(11).withMinute(59))),
+                taskManager.findFreeSlots(Duration.ofMinutes(90), day.withHour(8), day.withHour(14), 10),
+                "Окна короче нужной длительности пропускаются");
+        assertEquals(1, taskManager.findFreeSlots(Duration.ofMinutes(30), day.withHour(8), day.withHour(14), 1).size());
+        assertEquals(day.withHour(10).withMinute(1),
+                taskManager.findFreeSlots(Duration.ofMinutes(30), day.withHour(9).withMinute(30), day.withHour(14), 1)
+                        .getFirst().getStart(), "Задача, начатая до from, занимает начало интервала");
+
+        for (TimeSlot slot : slots) {
+            assertDoesNotThrow(() -> taskManager.createTask(new Task(0, "Slot", "D", TaskStatus.NEW,
+                    slot.getStart(), Duration.ofMinutes(30))), "Найденное окно должно проходить проверку пересечений");
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.findFreeSlots(Duration.ZERO, day, day.plusDays(1), 1));
+    }
+
+    @Test
+    void createAllShouldRejectWholeBatchOnOverlap() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 28, 9, 0);
+        taskManager.createTask(new Task(0, "Existing", "D", TaskStatus.NEW, start, Duration.ofHours(1)));
+
+        assertThrows(TimeConflictException.class, () -> taskManager.createAll(List.of(
+                new Task(0, "A", "D", TaskStatus.NEW, start.plusHours(2), Duration.ofHours(1)),
+                new Task(0, "B", "D", TaskStatus.NEW, start.plusHours(2).plusMinutes(30), Duration.ofHours(1)))),
+                "Задачи пакета пересекаются между собой");
+        assertThrows(TimeConflictException.class, () -> taskManager.createAll(List.of(
+                new Task(0, "C", "D", TaskStatus.NEW, start.plusHours(3), Duration.ofHours(1)),
+                new Task(0, "D", "D", TaskStatus.NEW, start.plusMinutes(30), Duration.ofHours(1)))),
+                "Задача пакета пересекается с существующей");
+        assertEquals(1, taskManager.getAllTasks().size(), "При конфликте пакет не должен применяться частично");
+
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        List<Task> created = taskManager.createAll(List.of(
+                new Task(0, "E", "D", TaskStatus.NEW, start.plusHours(4), Duration.ofHours(1)),
+                new Subtask(0, "F", "D", TaskStatus.DONE, epic.getId(), start.plusHours(2), Duration.ofHours(1)),
+                new Task("No time", "D")));
+        assertEquals(3, created.size());
+        assertEquals(3, taskManager.getAllTasks().size());
+        assertEquals(1, taskManager.getSubtasksOfEpic(epic.getId()).size());
+        assertEquals(TaskStatus.DONE, taskManager.getEpicById(epic.getId()).getStatus());
+        assertEquals(3, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void updateAllShouldValidateNewTimesOfWholeBatch() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 28, 9, 0);
+        Task first = taskManager.createTask(new Task(0, "First", "D", TaskStatus.NEW, start, Duration.ofHours(1)));
+        Task second = taskManager.createTask(new Task(0, "Second", "D", TaskStatus.NEW,
+                start.plusHours(2), Duration.ofHours(1)));
+
+        // задачи меняются местами: по одной такие изменения дали бы конфликт
+        taskManager.updateAll(List.of(
+                new Task(first.getId(), "First", "D", TaskStatus.DONE, start.plusHours(2), Duration.ofHours(1)),
+                new Task(second.getId(), "Second", "D", TaskStatus.NEW, start, Duration.ofHours(1))));
+        assertEquals(List.of(second.getId(), first.getId()),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertEquals(List.of(first), taskManager.findTasks(TaskType.TASK, TaskStatus.DONE, null, null));
+
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateAll(List.of(
+                new Task(first.getId(), "Renamed", "D", TaskStatus.NEW, null, null),
+                new Task(999, "Missing", "D", TaskStatus.NEW, null, null))));
+        assertEquals("First", taskManager.getTaskById(first.getId()).getTitle(),
+                "При ошибке пакет не должен применяться частично");
+    }
+
+    @Test
+    void updateAllShouldLetOneItemTakeSlotFreedByAnother() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 28, 9, 0);
+        Task first = taskManager.createTask(new Task(0, "First", "D", TaskStatus.NEW, start, Duration.ofHours(1)));
+        Task second = taskManager.createTask(new Task(0, "Second", "D", TaskStatus.NEW,
+                start.plusHours(2), Duration.ofHours(1)));
+
+        // первая задача снимает время, вторая занимает ее прежний интервал
+        assertDoesNotThrow(() -> taskManager.updateAll(List.of(
+                new Task(first.getId(), "First", "D", TaskStatus.NEW, null, null),
+                new Task(second.getId(), "Second", "D", TaskStatus.NEW, start, Duration.ofHours(1)))));
+        assertEquals(List.of(second.getId()), taskManager.getPrioritizedTasks().stream()
+                .filter(task -> task.getStartTime() != null).map(Task::getId).toList());
+    }
+
+    @Test
+    void autoScheduleShouldPackTasksIntoFreeGapsInListOrder() {
+        LocalDateTime day = LocalDateTime.of(2025, 8, 5, 9, 0);
+        taskManager.createTask(new Task(0, "Busy", "D", TaskStatus.NEW, day.plusHours(1), Duration.ofHours(1)));
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        Task longTask = taskManager.createTask(new Task(0, "Long", "D", TaskStatus.NEW, null, Duration.ofMinutes(90)));
+        Task shortTask = taskManager.createTask(new Task(0, "Short", "D", TaskStatus.NEW, null, Duration.ofMinutes(30)));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Sub", "D", TaskStatus.NEW, epic.getId(),
+                null, Duration.ofMinutes(20)));
+        Task huge = taskManager.createTask(new Task(0, "Huge", "D", TaskStatus.NEW, null, Duration.ofHours(5)));
+
+        List<Task> scheduled = taskManager.autoSchedule(List.of(longTask, shortTask, subtask, huge),
+                day, day.plusHours(4));
+
+        // окно до занятой задачи - 59 минут, поэтому длинная задача уходит после нее
+        assertEquals(List.of(longTask.getId(), shortTask.getId(), subtask.getId()),
+                scheduled.stream().map(Task::getId).toList());
+        assertEquals(day.plusHours(2).plusMinutes(1), taskManager.getTaskById(longTask.getId()).getStartTime());
+        assertEquals(day, taskManager.getTaskById(shortTask.getId()).getStartTime());
+        assertEquals(day.plusMinutes(31), taskManager.getSubtaskById(subtask.getId()).getStartTime());
+        assertNull(taskManager.getTaskById(huge.getId()).getStartTime(), "Задача без места остается без времени");
+        assertEquals(day.plusMinutes(31), taskManager.getEpicById(epic.getId()).getStartTime());
+        assertEquals(4, taskManager.getPrioritizedTasks().size());
+
+        assertThrows(IllegalArgumentException.class, () -> taskManager.autoSchedule(List.of(
+                taskManager.getTaskById(shortTask.getId())), day, day.plusHours(4)));
+    }
+
+    @Test
+    void updateEpicStatusShouldAcceptOlderVersion() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("Sub", "D", epic.getId()));
+        taskManager.updateSubtask(subtask.withStatus(TaskStatus.DONE));
+
+        assertDoesNotThrow(() -> taskManager.updateEpicStatus(epic), "Прежняя версия эпика не меняется");
+        assertEquals(TaskStatus.NEW, epic.getStatus());
+        assertEquals(TaskStatus.DONE, taskManager.getEpicById(epic.getId()).getStatus());
+    }
+
+    @Test
+    void createShouldStoreCopyAndLeaveDraftMutable() {
+        Task draft = new Task("Draft", "D");
+        Epic epicDraft = new Epic("Epic", "D");
+        Task created = taskManager.createTask(draft);
+        taskManager.createEpic(epicDraft);
+        Subtask subtaskDraft = new Subtask("Sub", "D", epicDraft.getId());
+        taskManager.createSubtask(subtaskDraft);
+
+        assertFalse(draft.isFrozen() || epicDraft.isFrozen() || subtaskDraft.isFrozen(), "Черновик не замораживается");
+        assertNotSame(draft, created);
+        assertEquals(created.getId(), draft.getId(), "Черновик получает id созданной задачи");
+
+        draft.setTitle("Changed");
+        assertEquals("Draft", taskManager.getTaskById(draft.getId()).getTitle(), "Изменение черновика не видно менеджеру");
+        taskManager.updateTask(draft);
+        assertEquals("Changed", taskManager.getTaskById(draft.getId()).getTitle());
+    }
+
+    @Test
+    void storedTasksShouldBeSharedImmutableVersions() {
+        LocalDateTime start = LocalDateTime.of(2025, 9, 8, 9, 0);
+        Task task = taskManager.createTask(Task.builder().title("Plan").description("D")
+                .startTime(start).duration(Duration.ofHours(1)).build());
+        Epic epic = taskManager.createEpic(Epic.builder().title("Epic").description("D").build());
+        Subtask subtask = taskManager.createSubtask(Subtask.builder(epic.getId()).title("Sub").description("D").build());
+
+        Task stored = taskManager.getTaskById(task.getId());
+        assertSame(stored, taskManager.getTaskById(task.getId()), "Чтение по id не копирует задачу");
+        assertSame(stored, taskManager.getPrioritizedTasks().getFirst());
+        assertThrows(UnsupportedOperationException.class, () -> stored.setTitle("Changed"));
+
+        Task updated = taskManager.updateTask(stored.withTitle("Changed"));
+        assertTrue(updated.isFrozen(), "Обновление возвращает сохраненную версию");
+        assertSame(updated, taskManager.getTaskById(task.getId()));
+        taskManager.getSubtaskById(subtask.getId());
+        taskManager.updateSubtask(subtask.withStatus(TaskStatus.DONE));
+        assertEquals("Plan", stored.getTitle(), "Прежняя версия не меняется");
+        List<Task> history = taskManager.getHistory();
+        assertEquals("Changed", history.getFirst().getTitle(), "История отдает текущую версию");
+        assertEquals(TaskType.SUBTASK, history.getLast().getType(), "Тип подзадачи в истории сохраняется");
+        assertEquals(TaskStatus.DONE, history.getLast().getStatus());
+        assertSame(taskManager.getPrioritizedTasks().getFirst(), taskManager.getTaskById(task.getId()));
+    }
+
+    @Test
+    void recurringTaskShouldBeExpandedOnlyInsideQueriedWindow() {
+        LocalDateTime monday = LocalDateTime.of(2025, 9, 1, 9, 0);
+        Task standup = new Task(0, "Standup", "D", TaskStatus.NEW, monday, Duration.ofMinutes(30));
+        standup.setRecurrence(Recurrence.daily());
+        taskManager.createTask(standup);
+        Task review = new Task(0, "Review", "D", TaskStatus.NEW, monday.plusHours(2), Duration.ofHours(1));
+        review.setRecurrence(new Recurrence(Recurrence.Frequency.WEEKLY, 2, monday.plusWeeks(4)));
+        taskManager.createTask(review);
+
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty(), "Вхождения серий не хранятся");
+        List<Task> week = taskManager.getPrioritizedTasks(monday, monday.plusWeeks(1));
+        assertEquals(8, week.size());
+        assertEquals(monday.plusHours(2), week.get(1).getStartTime());
+        assertEquals(monday.plusDays(6), week.getLast().getStartTime());
+        assertEquals(1, taskManager.getPrioritizedTasks(monday.plusWeeks(6), monday.plusWeeks(6).plusDays(1)).size(),
+                "После until вхождений серии нет");
+
+        // вхождение через год проверяется без разворачивания серии
+        LocalDateTime nextYear = monday.plusYears(1);
+        assertThrows(TimeConflictException.class, () -> taskManager.createTask(new Task(0, "Conflict", "D",
+                TaskStatus.NEW, nextYear.plusMinutes(10), Duration.ofMinutes(10))));
+        taskManager.createTask(new Task(0, "Free", "D", TaskStatus.NEW, nextYear.plusHours(1), Duration.ofMinutes(10)));
+        taskManager.createTask(new Task(0, "After review", "D", TaskStatus.NEW,
+                monday.plusWeeks(6).plusHours(2), Duration.ofMinutes(30)));
+
+        Task daily = new Task(0, "Daily", "D", TaskStatus.NEW, monday.plusDays(3).plusMinutes(15), Duration.ofMinutes(5));
+        daily.setRecurrence(Recurrence.daily());
+        assertThrows(TimeConflictException.class, () -> taskManager.createTask(daily), "Серии пересекаются");
+        Task weekly = new Task(0, "Weekly", "D", TaskStatus.NEW, monday.plusDays(1).plusHours(1), Duration.ofMinutes(30));
+        weekly.setRecurrence(Recurrence.weekly());
+        assertThrows(TimeConflictException.class, () -> taskManager.createTask(weekly),
+                "Серия пересекается с разовой задачей через год");
+
+        List<TimeSlot> slots = taskManager.findFreeSlots(Duration.ofMinutes(30), monday.minusHours(1), monday.plusHours(4), 10);
+        assertEquals(List.of(monday.minusHours(1), monday.plusMinutes(31), monday.plusHours(3).plusMinutes(1)),
+                slots.stream().map(TimeSlot::getStart).toList());
+
+        Subtask recurringSubtask = new Subtask(0, "Sub", "D", TaskStatus.NEW,
+                taskManager.createEpic(new Epic("Epic", "D")).getId(), monday.minusDays(1), Duration.ofMinutes(10));
+        recurringSubtask.setRecurrence(Recurrence.daily());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createSubtask(recurringSubtask));
+    }
+
+    @Test
+    void queryShouldCombineAllConditions() {
+        LocalDateTime start = LocalDateTime.of(2025, 8, 4, 9, 0);
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        Epic other = taskManager.createEpic(new Epic("Other", "D"));
+        Subtask first = taskManager.createSubtask(new Subtask(0, "S1", "D", TaskStatus.NEW, epic.getId(),
+                start, Duration.ofHours(1)));
+        taskManager.createSubtask(new Subtask(0, "S2", "D", TaskStatus.DONE, epic.getId(),
+                start.plusHours(2), Duration.ofHours(1)));
+        Subtask late = taskManager.createSubtask(new Subtask(0, "S3", "D", TaskStatus.NEW, epic.getId(),
+                start.plusDays(1), Duration.ofHours(1)));
+        taskManager.createTask(new Task(0, "Task", "D", TaskStatus.NEW, start.plusHours(4), Duration.ofHours(1)));
+
+        assertEquals(List.of(first, late), taskManager.query(TaskQuery.builder()
+                .status(TaskStatus.NEW).type(TaskType.SUBTASK).epicId(epic.getId()).build()));
+        assertEquals(List.of(first), taskManager.query(TaskQuery.parse("status=NEW AND type=SUBTASK AND epicId="
+                + epic.getId() + " AND startTime>=2025-08-04T00:00 AND startTime<2025-08-05T00:00")));
+        assertTrue(taskManager.query(TaskQuery.parse("epicId=" + other.getId())).isEmpty());
+        assertTrue(taskManager.query(TaskQuery.parse("epicId=999")).isEmpty());
+        assertEquals(List.of(epic), taskManager.query(TaskQuery.parse("id=" + epic.getId())));
+        assertEquals(taskManager.findTasks(null, TaskStatus.NEW, null, null),
+                taskManager.query(TaskQuery.parse("status=new")));
+        assertThrows(IllegalArgumentException.class, () -> TaskQuery.parse("title=Task"));
+    }
+
+    @Test
+    void searchShouldFollowCreateUpdateAndDelete() {
+        Task task = taskManager.createTask(new Task("Купить молоко", "Зайти в магазин"));
+        Epic epic = taskManager.createEpic(new Epic("Ремонт кухни", "Купить плитку"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("Магазин плитки", "Выбрать цвет", epic.getId()));
+
+        assertEquals(List.of(task, epic), taskManager.search("КУП", 10));
+        assertEquals(List.of(task, subtask), taskManager.search("магаз", 10));
+        assertEquals(List.of(epic), taskManager.search("купить плит", 10));
+        assertEquals(List.of(task), taskManager.search("купить", 1), "Результат ограничивается limit");
+
+        taskManager.updateTask(new Task(task.getId(), "Купить хлеб", "Пекарня"));
+        assertEquals(List.of(subtask), taskManager.search("магаз", 10), "Старые слова должны уйти из индекса");
+        assertEquals(List.of(task), taskManager.search("хлеб", 10));
+
+        taskManager.deleteEpicById(epic.getId());
+        assertEquals(List.of(task), taskManager.search("куп", 10));
+        assertTrue(taskManager.search("плитк", 10).isEmpty());
+        assertTrue(taskManager.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void deleteAllShouldRemoveEntitiesOfAnyType() {
+        Task task = taskManager.createTask(new Task("Task", "D"));
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Sub", "D", TaskStatus.NEW, epic.getId(),
+                LocalDateTime.of(2025, 7, 28, 9, 0), Duration.ofHours(1)));
+        Task kept = taskManager.createTask(new Task("Kept", "D"));
+
+        taskManager.deleteAll(List.of(task.getId(), subtask.getId(), 999));
+
+        assertEquals(List.of(kept), taskManager.getAllTasks());
+        assertTrue(taskManager.getAllSubtasks().isEmpty());
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty());
+        assertTrue(taskManager.getSubtasksOfEpic(epic.getId()).isEmpty());
+    }
+
+    @Test
+    void inTransactionShouldRollBackAllChangesOnFailure() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 28, 9, 0);
+        Task task = taskManager.createTask(new Task(0, "Task", "D", TaskStatus.NEW, start, Duration.ofHours(1)));
+        Task deleted = taskManager.createTask(new Task("Deleted", "D"));
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Sub", "D", TaskStatus.NEW, epic.getId(),
+                start.plusHours(2), Duration.ofHours(1)));
+        List<Task> prioritizedBefore = taskManager.getPrioritizedTasks();
+
+        assertThrows(TimeConflictException.class, () -> taskManager.inTransaction(manager -> {
+            manager.updateTask(new Task(task.getId(), "Moved", "D", TaskStatus.DONE,
+                    start.plusHours(4), Duration.ofHours(1)));
+            manager.createSubtask(new Subtask(0, "New sub", "D", TaskStatus.DONE, epic.getId(),
+                    start.plusHours(6), Duration.ofHours(1)));
+            manager.deleteTaskById(deleted.getId());
+            manager.deleteSubtaskById(subtask.getId());
+            manager.createTask(new Task(0, "Conflict", "D", TaskStatus.NEW, start.plusHours(6), Duration.ofHours(1)));
+        }));
+
+        assertEquals(List.of(task, deleted), taskManager.getAllTasks());
+        assertEquals("Task", taskManager.getTaskById(task.getId()).getTitle());
+        assertEquals(start, taskManager.getTaskById(task.getId()).getStartTime());
+        assertEquals(List.of(subtask), taskManager.getSubtasksOfEpic(epic.getId()));
+        assertEquals(prioritizedBefore, taskManager.getPrioritizedTasks());
+        assertEquals(TaskStatus.NEW, taskManager.getEpicById(epic.getId()).getStatus());
+        assertEquals(start.plusHours(2), taskManager.getEpicById(epic.getId()).getStartTime());
+        assertTrue(taskManager.findTasks(null, TaskStatus.DONE, null, null).isEmpty());
+        assertThrows(TimeConflictException.class, () -> taskManager.createTask(
+                new Task(0, "Old slot", "D", TaskStatus.NEW, start, Duration.ofHours(1))),
+                "Прежнее время задачи должно снова быть занято");
+        assertTrue(taskManager.createTask(new Task("Next", "D")).getId() > subtask.getId() + 1,
+                "Id, выданные в отмененной транзакции, повторно не используются");
+    }
+
+    @Test
+    void inTransactionShouldApplyChangesOnSuccess() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+
+        taskManager.inTransaction(manager -> {
+            manager.createTask(new Task("Task", "D"));
+            manager.createSubtask(new Subtask(0, "Sub", "D", TaskStatus.DONE, epic.getId(), null, null));
+        });
+
+        assertEquals(1, taskManager.getAllTasks().size());
+        assertEquals(1, taskManager.getSubtasksOfEpic(epic.getId()).size());
+        assertEquals(TaskStatus.DONE, taskManager.getEpicById(epic.getId()).getStatus());
+    }
+
+    @Test
+    void listenersShouldReceiveTypedEventsInOrder() {
+        List<TaskEvent> events = new ArrayList<>();
+        taskManager.addListener(events::add);
+
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Sub", "D", TaskStatus.NEW, epic.getId(),
+                null, null));
+        taskManager.updateSubtask(new Subtask(subtask.getId(), "Sub", "D", TaskStatus.DONE, epic.getId(),
+                null, null));
+        taskManager.deleteEpicById(epic.getId());
+
+        assertEquals(List.of(TaskEvent.Type.CREATED, TaskEvent.Type.CREATED, TaskEvent.Type.EPIC_RECALCULATED,
+                        TaskEvent.Type.UPDATED, TaskEvent.Type.EPIC_RECALCULATED,
+                        TaskEvent.Type.DELETED, TaskEvent.Type.DELETED),
+                events.stream().map(TaskEvent::getType).toList());
+        for (int i = 1; i < events.size(); i++) {
+            assertEquals(events.get(i - 1).getSequence() + 1, events.get(i).getSequence());
+        }
+        TaskEvent updated = events.get(3);
+        assertEquals(TaskStatus.NEW, updated.getOldValue().getStatus());
+        assertEquals(TaskStatus.DONE, updated.getNewValue().getStatus());
+        TaskEvent recalculated = events.get(4);
+        assertEquals(TaskStatus.NEW, recalculated.getOldValue().getStatus());
+        assertEquals(TaskStatus.DONE, recalculated.getNewValue().getStatus());
+        assertEquals(subtask.getId(), events.get(6).getId());
+        assertNull(events.get(6).getNewValue());
     }
 
-}
\ No newline at end of file
+    @Test
+    void transactionEventsShouldBeDeliveredOnlyAfterCommit() {
+        List<TaskEvent> events = new ArrayList<>();
+        TaskChangeListener listener = events::add;
+        taskManager.addListener(listener);
+
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(manager -> {
+            manager.createTask(new Task("Task", "D"));
+            throw new IllegalStateException("Ошибка в транзакции");
+        }));
+        assertTrue(events.isEmpty(), "События отмененной транзакции не доставляются");
+
+        taskManager.inTransaction(manager -> manager.createTask(new Task("Task", "D")));
+        assertEquals(1, events.size());
+
+        taskManager.removeListener(listener);
+        taskManager.createTask(new Task("Unobserved", "D"));
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    void versionShouldChangeOnEveryModificationWithoutHistory() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "D"));
+        long epicVersion = taskManager.getVersion(TaskType.EPIC, epic.getId());
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Sub", "D", TaskStatus.NEW, epic.getId(),
+                null, null));
+        long subtaskVersion = taskManager.getVersion(TaskType.SUBTASK, subtask.getId());
+
+        assertTrue(epicVersion > 0);
+        assertTrue(taskManager.getVersion(TaskType.EPIC, epic.getId()) > epicVersion,
+                "Пересчет эпика меняет его версию");
+        taskManager.updateSubtask(new Subtask(subtask.getId(), "Sub", "D", TaskStatus.DONE, epic.getId(),
+                null, null));
+        assertTrue(taskManager.getVersion(TaskType.SUBTASK, subtask.getId()) > subtaskVersion);
+        assertEquals(0, taskManager.getVersion(TaskType.TASK, subtask.getId()), "Версия учитывает тип сущности");
+        assertEquals(0, taskManager.getVersion(TaskType.TASK, 999));
+        assertTrue(taskManager.getHistory().isEmpty());
+    }
+}
@@ -0,0 +1,47 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextIndexTest {
+    private static final String[] WORDS = {"task", "fix", "bug", "review", "deploy", "test", "update", "docs"};
+
+    @Test
+    void searchShouldReturnSmallestMatchingIdsInOrder() {
+        TextIndex index = new TextIndex();
+        index.add(5, "Fix bug", "login");
+        index.add(2, "Fix typo", "docs");
+        index.add(9, "Bug report", "fixed later");
+        index.add(7, "Review", null);
+
+        assertArrayEquals(new int[]{2, 5, 9}, index.search("fix", 10));
+        assertArrayEquals(new int[]{2, 5}, index.search("fix", 2));
+        assertArrayEquals(new int[]{5, 9}, index.search("bug fix", 10));
+        assertEquals(0, index.search("deploy", 10).length);
+
+        index.remove(5);
+        assertArrayEquals(new int[]{9}, index.search("bug fix", 10));
+    }
+
+    @Test
+    void searchForCommonTermShouldStopAtLimit() {
+        TextIndex index = new TextIndex();
+        int count = 200_000;
+        for (int id = 1; id <= count; id++) {
+            index.add(id, "Task " + id, WORDS[id % WORDS.length] + " " + WORDS[(id / 8) % WORDS.length]);
+        }
+        int[] expected = new int[50];
+        Arrays.setAll(expected, i -> i + 1);
+        assertArrayEquals(expected, index.search("task", 50));
+        assertArrayEquals(expected, index.search("t", 50));
+
+        // обход останавливается на limit-м совпадении; сбор всех совпадений просмотрел бы десятки тысяч id
+        for (String query : new String[]{"task", "t", "review", "fix bug"}) {
+            assertEquals(50, index.search(query, 50).length);
+            assertTrue(index.lastVisited() <= 5_000, query + ": просмотрено " + index.lastVisited());
+        }
+    }
+}